@@ -0,0 +1,38 @@
+package com.github.pandora.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 跑benchmark的入口。
+ * <p>
+ * 依次以1,2,4..N个线程跑一遍所有(或匹配的)benchmark，并且总是挂上{@link GCProfiler}，
+ * 关注点是每个stage的分配量：gc.alloc.rate.norm (B/op)
+ * <p>
+ * eg:
+ * java -jar pandora-benchmarks/target/benchmarks.jar              所有benchmark, 1..cpu个线程
+ * java -jar pandora-benchmarks/target/benchmarks.jar -Dthreads=4  所有benchmark, 1..4个线程
+ * java -jar pandora-benchmarks/target/benchmarks.jar Chain        其余参数与jmh命令行一致
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        int maxThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            ChainedOptionsBuilder builder = new OptionsBuilder()
+                    .parent(cmd)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class);
+            if (cmd.getIncludes().isEmpty()) builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+            new Runner(builder.build()).run();
+            if (threads >= maxThreads) break;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.pandora.benchmarks;
+
+import com.github.pandora.asyncResult.Async;
+import com.github.pandora.asyncResult.Future;
+import com.github.pandora.asyncResult.Promise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * {@link Future#map(Function)}/{@link Future#flatMap(Function)}链的开销，深度由{@link #depth}决定。
+ * <p>
+ * 先挂好整条链，再完成头部的promise，完成时的通知会穿过整条链。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Ddisable.pandora.warningGetOnBlocking=true", "-Xss4m"})
+@State(Scope.Thread)
+public class ChainBenchmark {
+
+    private static final Function<Integer, Integer> INC = i -> i + 1;
+    private static final Function<Integer, Future<Integer>> INC_ASYNC = i -> Async.succeededFuture(i + 1);
+    private static final Function<Integer, CompletableFuture<Integer>> CF_INC_ASYNC = i -> CompletableFuture.completedFuture(i + 1);
+
+    @Param({"1", "10", "100", "1000"})
+    public int depth;
+
+    @Benchmark
+    public Object mapChain() {
+        Promise<Integer> head = Async.promise();
+        Future<Integer> fut = head.toFuture();
+        for (int i = 0; i < depth; i++) {
+            fut = fut.map(INC);
+        }
+        head.trySuccess(0);
+        return fut.result();
+    }
+
+    @Benchmark
+    public Object cfThenApplyChain() {
+        CompletableFuture<Integer> head = new CompletableFuture<>();
+        CompletableFuture<Integer> cf = head;
+        for (int i = 0; i < depth; i++) {
+            cf = cf.thenApply(INC);
+        }
+        head.complete(0);
+        return cf.getNow(null);
+    }
+
+    @Benchmark
+    public Object flatMapChain() {
+        Promise<Integer> head = Async.promise();
+        Future<Integer> fut = head.toFuture();
+        for (int i = 0; i < depth; i++) {
+            fut = fut.flatMap(INC_ASYNC);
+        }
+        head.trySuccess(0);
+        return fut.result();
+    }
+
+    @Benchmark
+    public Object cfThenComposeChain() {
+        CompletableFuture<Integer> head = new CompletableFuture<>();
+        CompletableFuture<Integer> cf = head;
+        for (int i = 0; i < depth; i++) {
+            cf = cf.thenCompose(CF_INC_ASYNC);
+        }
+        head.complete(0);
+        return cf.getNow(null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.pandora.benchmarks;
+
+import com.github.pandora.asyncResult.Async;
+import com.github.pandora.asyncResult.Promise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link com.github.pandora.asyncResult.CompletableResult#thenCombine}，
+ * {@link com.github.pandora.asyncResult.CompletableResult#applyToEither}，
+ * {@link Async#all(java.util.Collection)}的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Ddisable.pandora.warningGetOnBlocking=true")
+@State(Scope.Thread)
+public class CombineBenchmark {
+
+    private static final BiFunction<Integer, Integer, Integer> SUM = Integer::sum;
+    private static final Function<Integer, Integer> IDENTITY = i -> i;
+
+    private final Integer one = 1;
+    private final Integer two = 2;
+
+    @State(Scope.Thread)
+    public static class FanOut {
+        @Param({"100", "10000"})
+        public int size;
+    }
+
+    @Benchmark
+    public Object thenCombine() {
+        Promise<Integer> p1 = Async.promise();
+        Promise<Integer> p2 = Async.promise();
+        Object combined = p1.toCompletableResult().thenCombine(p2.toCompletableResult(), SUM);
+        p1.trySuccess(one);
+        p2.trySuccess(two);
+        return combined;
+    }
+
+    @Benchmark
+    public Object cfThenCombine() {
+        CompletableFuture<Integer> cf1 = new CompletableFuture<>();
+        CompletableFuture<Integer> cf2 = new CompletableFuture<>();
+        Object combined = cf1.thenCombine(cf2, SUM);
+        cf1.complete(one);
+        cf2.complete(two);
+        return combined;
+    }
+
+    @Benchmark
+    public Object applyToEither() {
+        Promise<Integer> p1 = Async.promise();
+        Promise<Integer> p2 = Async.promise();
+        Object either = p1.toCompletableResult().applyToEither(p2.toCompletableResult(), IDENTITY);
+        p1.trySuccess(one);
+        p2.trySuccess(two);
+        return either;
+    }
+
+    @Benchmark
+    public Object cfApplyToEither() {
+        CompletableFuture<Integer> cf1 = new CompletableFuture<>();
+        CompletableFuture<Integer> cf2 = new CompletableFuture<>();
+        Object either = cf1.applyToEither(cf2, IDENTITY);
+        cf1.complete(one);
+        cf2.complete(two);
+        return either;
+    }
+
+    @Benchmark
+    public Object all(FanOut fanOut) {
+        List<Promise<Integer>> promises = new ArrayList<>(fanOut.size);
+        for (int i = 0; i < fanOut.size; i++) promises.add(Async.promise());
+        Object all = Async.all(promises);
+        for (Promise<Integer> promise : promises) promise.trySuccess(one);
+        return all;
+    }
+
+    @Benchmark
+    public Object cfAllOf(FanOut fanOut) {
+        CompletableFuture<?>[] cfs = new CompletableFuture<?>[fanOut.size];
+        for (int i = 0; i < fanOut.size; i++) cfs[i] = new CompletableFuture<Integer>();
+        Object all = CompletableFuture.allOf(cfs);
+        for (CompletableFuture<?> cf : cfs) ((CompletableFuture<Integer>) cf).complete(one);
+        return all;
+    }
+}
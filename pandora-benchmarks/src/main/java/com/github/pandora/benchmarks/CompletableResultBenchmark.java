@@ -0,0 +1,168 @@
+package com.github.pandora.benchmarks;
+
+import com.github.pandora.asyncResult.Async;
+import com.github.pandora.asyncResult.CompletableResult;
+import com.github.pandora.asyncResult.Handler;
+import com.github.pandora.asyncResult.AsyncResult;
+import com.github.pandora.asyncResult.BiHandler;
+import com.github.pandora.asyncResult.Promise;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link com.github.pandora.asyncResult.CompletableResultImpl}的创建、完成、添加handler的开销。
+ * <p>
+ * cf开头的benchmark是{@link CompletableFuture}的基线
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Ddisable.pandora.warningGetOnBlocking=true")
+@State(Scope.Thread)
+public class CompletableResultBenchmark {
+
+    private static final Handler<AsyncResult<Object>> NOOP_HANDLER = ar -> {
+    };
+    private static final BiHandler<AsyncResult<Object>, Blackhole> CONSUME = (ar, bh) -> bh.consume(ar);
+    private static final BiConsumer<Object, Throwable> NOOP_ACTION = (r, err) -> {
+    };
+
+    private static final Function<Object, Object> IDENTITY = o -> o;
+    private static final BiFunction<Object, Throwable, Object> IDENTITY_HANDLE = (r, err) -> r;
+
+    private final Object value = new Object();
+
+    private CompletableResult<Object> completed;
+    private CompletableFuture<Object> cfCompleted;
+    private CompletableResult<Object> completedPromise; //由promise完成的结果，例如命中缓存
+
+    @Setup
+    public void setup() {
+        completed = Async.succeededResult(value);
+        cfCompleted = CompletableFuture.completedFuture(value);
+        Promise<Object> promise = Async.promise();
+        promise.trySuccess(value);
+        completedPromise = promise.toCompletableResult();
+    }
+
+    /**
+     * 在已完成的promise上添加同步的操作符
+     */
+    @Benchmark
+    public void thenApplyOnCompletedPromise(Blackhole bh) {
+        bh.consume(completedPromise.thenApply(IDENTITY).handle(IDENTITY_HANDLE));
+    }
+
+    @Benchmark
+    public void cfThenApplyOnCompleted(Blackhole bh) {
+        bh.consume(cfCompleted.thenApply(IDENTITY).handle(IDENTITY_HANDLE));
+    }
+
+    @Benchmark
+    public Object createAndComplete() {
+        Promise<Object> promise = Async.promise();
+        promise.trySuccess(value);
+        return promise;
+    }
+
+    @Benchmark
+    public Object cfCreateAndComplete() {
+        CompletableFuture<Object> cf = new CompletableFuture<>();
+        cf.complete(value);
+        return cf;
+    }
+
+    @Benchmark
+    public Object addHandlerBeforeComplete() {
+        Promise<Object> promise = Async.promise();
+        promise.toFuture().addHandler(NOOP_HANDLER);
+        promise.trySuccess(value);
+        return promise;
+    }
+
+    @Benchmark
+    public Object addHandlersBeforeComplete() {
+        Promise<Object> promise = Async.promise();
+        for (int i = 0; i < 4; i++) promise.toFuture().addHandler(NOOP_HANDLER);
+        promise.trySuccess(value);
+        return promise;
+    }
+
+    /**
+     * 需要状态的handler: 捕获变量的lambda vs 以上下文传入的共享handler
+     */
+    @Benchmark
+    public Object addCapturingHandlerBeforeComplete(Blackhole bh) {
+        Promise<Object> promise = Async.promise();
+        promise.toFuture().addHandler(ar -> bh.consume(ar));
+        promise.trySuccess(value);
+        return promise;
+    }
+
+    @Benchmark
+    public Object addBiHandlerBeforeComplete(Blackhole bh) {
+        Promise<Object> promise = Async.promise();
+        promise.toFuture().addHandler(CONSUME, bh);
+        promise.trySuccess(value);
+        return promise;
+    }
+
+    @Benchmark
+    public Object cfWhenCompleteBeforeComplete() {
+        CompletableFuture<Object> cf = new CompletableFuture<>();
+        cf.whenComplete(NOOP_ACTION);
+        cf.complete(value);
+        return cf;
+    }
+
+    @Benchmark
+    public void addHandlerAfterComplete(Blackhole bh) {
+        bh.consume(completed.addHandler(NOOP_HANDLER));
+    }
+
+    @Benchmark
+    public void cfWhenCompleteAfterComplete(Blackhole bh) {
+        bh.consume(cfCompleted.whenComplete(NOOP_ACTION));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object addHandlerContended(SharedPromise shared) {
+        return shared.promise.toFuture().addHandler(NOOP_HANDLER);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object cfWhenCompleteContended(SharedPromise shared) {
+        return shared.cf.whenComplete(NOOP_ACTION);
+    }
+
+    /**
+     * 所有线程共享的、尚未完成的future。每次迭代之后完成，释放掉积累的handler
+     */
+    @State(Scope.Benchmark)
+    public static class SharedPromise {
+
+        Promise<Object> promise;
+        CompletableFuture<Object> cf;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            promise = Async.promise();
+            cf = new CompletableFuture<>();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            promise.trySuccess(null);
+            cf.complete(null);
+        }
+    }
+}
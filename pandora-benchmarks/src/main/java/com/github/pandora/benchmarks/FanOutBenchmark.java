@@ -0,0 +1,71 @@
+package com.github.pandora.benchmarks;
+
+import com.github.pandora.asyncResult.Async;
+import com.github.pandora.asyncResult.CompletableResult;
+import com.github.pandora.asyncResult.Promise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * 一个共享结果上挂着大量{@link CompletableResult#thenApplyAsync(Function, Executor)}，完成之后到所有continuation都执行完的开销。
+ * <p>
+ * Batched以-Denable.pandora.batchDispatch=true运行，与默认的逐个提交对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Ddisable.pandora.warningGetOnBlocking=true")
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+
+    private static final Function<Integer, Integer> INC = i -> i + 1;
+
+    @Param({"10", "500"})
+    public int fanOut;
+
+    private ExecutorService pool;
+
+    @Setup
+    public void setup() {
+        pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public Object thenApplyAsyncFanOut() throws InterruptedException {
+        Promise<Integer> promise = Async.promise();
+        CompletableResult<Integer> source = promise.toCompletableResult();
+        CountDownLatch latch = new CountDownLatch(fanOut);
+        for (int i = 0; i < fanOut; i++) {
+            source.thenApplyAsync(INC, pool).whenComplete((r, err) -> latch.countDown());
+        }
+        promise.trySuccess(1);
+        latch.await();
+        return source;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Ddisable.pandora.warningGetOnBlocking=true", "-Denable.pandora.batchDispatch=true"})
+    public Object thenApplyAsyncFanOutBatched() throws InterruptedException {
+        return thenApplyAsyncFanOut();
+    }
+
+    @Benchmark
+    public Object cfThenApplyAsyncFanOut() throws InterruptedException {
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        CountDownLatch latch = new CountDownLatch(fanOut);
+        for (int i = 0; i < fanOut; i++) {
+            source.thenApplyAsync(INC, pool).whenComplete((r, err) -> latch.countDown());
+        }
+        source.complete(1);
+        latch.await();
+        return source;
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.pandora.benchmarks;
+
+import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.listenable.executor.ListenableExecutorService;
+import com.github.pandora.listenable.executor.ListenableExecutorWrapper;
+import com.github.pandora.listenable.future.ListenableFuture;
+import com.github.pandora.listenable.future.ListenablePromise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link ListenableExecutor#submit(Runnable)}之后再map，以及{@link com.github.pandora.listenable.future.SimpleListenableFuture#get()}和完成的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Ddisable.pandora.warningGetOnBlocking=true")
+@State(Scope.Benchmark)
+public class ListenableBenchmark {
+
+    private static final Callable<Integer> TASK = () -> 1;
+    private static final Supplier<Integer> CF_TASK = () -> 1;
+    private static final Function<Integer, Integer> INC = i -> i + 1;
+
+    private ExecutorService pool;
+    private ListenableExecutorService executor;
+
+    @Setup
+    public void setup() {
+        pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        executor = ListenableExecutor.create(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public Object submitMap() throws ExecutionException, InterruptedException {
+        return executor.submit(TASK).map(INC).get();
+    }
+
+    @Benchmark
+    public Object cfSupplyAsyncThenApply() throws ExecutionException, InterruptedException {
+        return CompletableFuture.supplyAsync(CF_TASK, pool).thenApply(INC).get();
+    }
+
+    /**
+     * 已缓存的executor，查找不分配对象：gc.alloc.rate.norm应该接近0 B/op
+     */
+    @Benchmark
+    public Object intern() {
+        return ListenableExecutorWrapper.intern(pool);
+    }
+
+    /**
+     * continuation回到同一个线程池
+     */
+    @Benchmark
+    public Object submitFlatMapSamePool() throws ExecutionException, InterruptedException {
+        return executor.submit(TASK).flatMap(INC, pool).get();
+    }
+
+    @Benchmark
+    public Object cfSupplyAsyncThenApplyAsyncSamePool() throws ExecutionException, InterruptedException {
+        return CompletableFuture.supplyAsync(CF_TASK, pool).thenApplyAsync(INC, pool).get();
+    }
+
+    @Benchmark
+    public Object completedGet(CompletedPromise completed) throws ExecutionException, InterruptedException {
+        return completed.promise.get();
+    }
+
+    @Benchmark
+    public Object cfCompletedGet(CompletedPromise completed) throws ExecutionException, InterruptedException {
+        return completed.cf.get();
+    }
+
+    /**
+     * 没有线程阻塞等待时，完成的开销
+     */
+    @Benchmark
+    public Object completeNoWaiter() {
+        ListenablePromise<Integer> promise = ListenableFuture.ofPromise(executor);
+        promise.trySuccess(1);
+        return promise;
+    }
+
+    @Benchmark
+    public Object cfCompleteNoWaiter() {
+        CompletableFuture<Integer> cf = new CompletableFuture<>();
+        cf.complete(1);
+        return cf;
+    }
+
+    @State(Scope.Thread)
+    public static class CompletedPromise {
+
+        ListenablePromise<Integer> promise;
+        CompletableFuture<Integer> cf;
+
+        @Setup
+        public void setup(ListenableBenchmark benchmark) {
+            promise = ListenableFuture.ofPromise(benchmark.executor, 1);
+            cf = CompletableFuture.completedFuture(1);
+        }
+    }
+}
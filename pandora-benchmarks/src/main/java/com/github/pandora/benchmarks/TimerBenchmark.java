@@ -0,0 +1,59 @@
+package com.github.pandora.benchmarks;
+
+import com.github.pandora.asyncResult.Async;
+import com.github.pandora.asyncResult.Future;
+import com.github.pandora.asyncResult.Promise;
+import com.github.pandora.timer.HashedWheelTimer;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 添加一个超时并在到期前取消的开销: {@link HashedWheelTimer} vs {@link ScheduledThreadPoolExecutor}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Ddisable.pandora.warningGetOnBlocking=true")
+@State(Scope.Benchmark)
+public class TimerBenchmark {
+
+    private static final Runnable NOOP = () -> {
+    };
+
+    private final Duration timeout = Duration.ofSeconds(30);
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @Setup
+    public void setup() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean wheel() {
+        return HashedWheelTimer.shared().newTimeout(NOOP, 30, TimeUnit.SECONDS).cancel();
+    }
+
+    @Benchmark
+    public boolean scheduled() {
+        return scheduler.schedule(NOOP, 30, TimeUnit.SECONDS).cancel(false);
+    }
+
+    @Benchmark
+    public Object futureTimeout() {
+        Promise<Integer> promise = Async.promise();
+        Future<Integer> future = promise.toFuture().timeout(timeout);
+        promise.trySuccess(1);
+        return future;
+    }
+}
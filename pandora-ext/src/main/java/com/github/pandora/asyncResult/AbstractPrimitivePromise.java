@@ -0,0 +1,242 @@
+package com.github.pandora.asyncResult;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 原始类型特化的promise({@link IntPromise}, {@link LongPromise}, {@link DoublePromise})的骨架。
+ * <p>
+ * 状态机与handler栈在这里，结果字段由子类以原始类型保存：
+ * 先CAS状态 PENDING -> COMPLETING 抢到写结果的权利，写完结果字段之后再以volatile写发布最终状态，
+ * 读到最终状态的线程一定能看到结果字段。
+ * <p>
+ * 操作符(map, mapToObj, otherwise以及{@link Future#mapToInt(java.util.function.ToIntFunction)}等)创建的结果是各自的MapStage(如{@link IntPromiseImpl.MapStage})，
+ * 与{@link Stage}一样记录上游和下游个数，取消沿着原始类型与通用的future之间的派生关系传播，见{@link CompletableResultImpl#cancel()}
+ */
+abstract class AbstractPrimitivePromise {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractPrimitivePromise.class);
+
+    private static final AtomicIntegerFieldUpdater<AbstractPrimitivePromise> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(AbstractPrimitivePromise.class, "state");
+    private static final AtomicReferenceFieldUpdater<AbstractPrimitivePromise, Object> HANDLERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractPrimitivePromise.class, Object.class, "handlers");
+    private static final AtomicReferenceFieldUpdater<AbstractPrimitivePromise, Object> UPSTREAM_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractPrimitivePromise.class, Object.class, "upstream");
+    private static final AtomicIntegerFieldUpdater<AbstractPrimitivePromise> DEPENDENTS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(AbstractPrimitivePromise.class, "dependents");
+
+    private static final int PENDING = 0;
+    private static final int COMPLETING = 1;
+    private static final int SUCCEEDED = 2;
+    private static final int FAILED = 3;
+
+    private static final Object Notified = new Object(); //handler已通知过，之后添加的handler立即执行
+
+    private volatile int state;
+
+    private Throwable cause;
+
+    /**
+     * @see CompletableResultImpl 中的handlers
+     */
+    private volatile Object handlers;
+
+    /**
+     * @see CompletableResultImpl 中的upstream
+     */
+    private volatile Object upstream;
+
+    /**
+     * @see Stage 中的dependents，只有{@link #isStage()}的结果计数
+     */
+    private volatile int dependents;
+
+    private static final class HandlerNode {
+        final Object handler;  //Handler or BiHandler
+        final Object ctx;
+        HandlerNode next;
+
+        HandlerNode(Object handler, Object ctx) {
+            this.handler = handler;
+            this.ctx = ctx;
+        }
+    }
+
+    public boolean isCompleted() {
+        return state > COMPLETING;
+    }
+
+    public boolean succeeded() {
+        return state == SUCCEEDED;
+    }
+
+    public boolean failed() {
+        return state == FAILED;
+    }
+
+    public Throwable cause() {
+        return state == FAILED ? cause : null;
+    }
+
+    public boolean tryFailure(Throwable cause) {
+        if (!startCompleting()) return false;
+        if (upstream != null) upstream = null;
+        this.cause = cause == null ? new NullPointerException("cause is null") : cause;
+        state = FAILED;
+        notifyHandlers();
+        return true;
+    }
+
+    /**
+     * 取消当前future，并向派生出当前future的上游传播取消，见{@link CompletableResultImpl#cancel()}
+     *
+     * @return true: 取消成功，false: 已完成
+     */
+    public boolean cancel() {
+        CancellationException e = Failures.cancellation();
+        if (!cancel0(e)) return false;
+        CompletableResultImpl.cancelUpstream(getAndClearUpstream(), e);
+        return true;
+    }
+
+    /**
+     * 以e结束，保留上游，由调用方继续传播
+     */
+    final boolean cancel0(CancellationException e) {
+        if (!startCompleting()) return false;
+        this.cause = e;
+        state = FAILED;
+        notifyHandlers();
+        return true;
+    }
+
+    /**
+     * 记下派生出当前结果的上游，上游是{@link Stage}或者{@link #isStage()}的原始类型结果时计入它的下游个数。
+     * 只在创建之后、返回给调用方之前调用
+     *
+     * @param upstream 上游的future
+     */
+    final void dependOn(Object upstream) {
+        CompletableResultImpl.retain(upstream);
+        this.upstream = upstream;
+    }
+
+    final Object getAndClearUpstream() {
+        return UPSTREAM_UPDATER.getAndSet(this, null);
+    }
+
+    /**
+     * @return true: 操作符创建的结果，取消可以从下游传播过来
+     */
+    boolean isStage() {
+        return false;
+    }
+
+    /**
+     * @see Stage#retain()
+     */
+    final void retain() {
+        if (isStage()) DEPENDENTS_UPDATER.incrementAndGet(this);
+    }
+
+    /**
+     * @see Stage#release()
+     */
+    final boolean release() {
+        return isStage() && DEPENDENTS_UPDATER.decrementAndGet(this) == 0;
+    }
+
+    /**
+     * @return true: 抢到了写结果的权利，之后必须调用{@link #completeSucceeded()}
+     */
+    protected final boolean startCompleting() {
+        return STATE_UPDATER.compareAndSet(this, PENDING, COMPLETING);
+    }
+
+    protected final void completeSucceeded() {
+        if (upstream != null) upstream = null;
+        state = SUCCEEDED;
+        notifyHandlers();
+    }
+
+    /**
+     * 构造时即已正常完成，此时不可能有handler
+     */
+    protected final void completed() {
+        handlers = Notified;
+        state = SUCCEEDED;
+    }
+
+    protected final void addHandler0(Handler handler) {
+        addHandler0(handler, null);
+    }
+
+    /**
+     * @param handler Handler or BiHandler
+     * @param ctx     BiHandler的上下文
+     */
+    protected final void addHandler0(Object handler, Object ctx) {
+        if (isCompleted()) {
+            invoke(handler, ctx);
+            return;
+        }
+        HandlerNode node = null;
+        for (; ; ) {
+            Object h = handlers;
+            if (h == Notified) {
+                invoke(handler, ctx);
+                return;
+            }
+            if (node == null) node = new HandlerNode(handler, ctx);
+            node.next = (HandlerNode) h;
+            if (HANDLERS_UPDATER.compareAndSet(this, h, node)) return;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyHandlers() {
+        Object h = HANDLERS_UPDATER.getAndSet(this, Notified);
+        if (!(h instanceof HandlerNode)) return;
+
+        HandlerNode node = (HandlerNode) h, prev = null;
+        while (node != null) {  //反转，按添加顺序通知
+            HandlerNode next = node.next;
+            node.next = prev;
+            prev = node;
+            node = next;
+        }
+        for (node = prev; node != null; node = node.next) {
+            try {
+                invoke(node.handler, node.ctx);
+            } catch (Throwable e) {
+                logger.warn("execute handler#handle failed.", e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invoke(Object handler, Object ctx) {
+        if (handler instanceof BiHandler) ((BiHandler<Object, Object>) handler).handle(this, ctx);
+        else ((Handler<Object>) handler).handle(this);
+    }
+
+    /**
+     * 原始类型的结果转到通用的{@link Future}，{@link IntFuture#mapToObj(java.util.function.IntFunction)}等的结果
+     *
+     * @param <F> 转换函数的类型
+     * @param <R> 结果的类型
+     */
+    static final class ToObj<F, R> extends Stage<R> {
+
+        final F fn;
+
+        ToObj(F fn) {
+            this.fn = fn;
+        }
+    }
+}
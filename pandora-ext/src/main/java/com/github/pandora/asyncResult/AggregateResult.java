@@ -0,0 +1,191 @@
+package com.github.pandora.asyncResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 多个异步结果的聚合，见{@link Async#all(Collection),Async#any(Collection),Async#join(Collection)}
+ * <p>
+ * 整个聚合只有一个对象：一个计数器和一个按输入个数预先分配好的数组，每个输入只在上面挂一个handler，
+ * 不需要像{@link CompletableResult#thenCombine}那样两两组合。
+ * 每个输入的结果写到自己的下标上，最后一个完成的输入负责汇总。
+ * <p>
+ * 聚合依赖所有的输入，被取消时向每个输入传播取消，见{@link CompletableResultImpl#cancel()}
+ */
+abstract class AggregateResult<T, R> extends Stage<R> {
+
+    private static final AtomicIntegerFieldUpdater<AggregateResult> REMAINING_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(AggregateResult.class, "remaining");
+
+    /**
+     * 每个输入的结果，成功时是结果，失败时是Throwable(由子类决定)
+     */
+    final Object[] outcomes;
+
+    private volatile int remaining;
+
+    AggregateResult(int size) {
+        this.outcomes = new Object[size];
+        this.remaining = size;
+    }
+
+    static <T> CompletableResult<List<T>> all(Collection<? extends Asyncable<T>> asyncs) {
+        Object[] inputs = asyncs.toArray();
+        return new All<T>(inputs.length).subscribe(inputs);
+    }
+
+    static <T> CompletableResult<T> any(Collection<? extends Asyncable<T>> asyncs) {
+        Object[] inputs = asyncs.toArray();
+        return new Any<T>(inputs.length).subscribe(inputs);
+    }
+
+    static <T> CompletableResult<List<T>> join(Collection<? extends Asyncable<T>> asyncs) {
+        Object[] inputs = asyncs.toArray();
+        return new Join<T>(inputs.length).subscribe(inputs);
+    }
+
+    /**
+     * @param inputs 输入的快照，个数与{@link #outcomes}一致，不受调用方之后修改集合的影响
+     */
+    @SuppressWarnings("unchecked")
+    final AggregateResult<T, R> subscribe(Object[] inputs) {
+        if (inputs.length == 0) {
+            onAllCompleted();
+            return this;
+        }
+        Future<T>[] futures = new Future[inputs.length];
+        for (int i = 0; i < inputs.length; i++) futures[i] = ((Asyncable<T>) inputs[i]).toFuture();
+        dependOn(futures);
+        for (int i = 0; i < futures.length; i++) {
+            final int index = i;
+            futures[i].addHandler(ar -> onCompleted(index, ar));
+        }
+        return this;
+    }
+
+    /**
+     * @param index 输入的下标
+     * @param ar    输入的结果
+     */
+    abstract void onCompleted(int index, AsyncResult<T> ar);
+
+    /**
+     * 所有的输入都已完成
+     */
+    abstract void onAllCompleted();
+
+    /**
+     * 计数减一，最后一个完成的输入负责汇总
+     */
+    final void countDown() {
+        if (REMAINING_UPDATER.decrementAndGet(this) == 0) onAllCompleted();
+    }
+
+    @SuppressWarnings("unchecked")
+    final List<T> resultList() {
+        return Collections.unmodifiableList(Arrays.asList((T[]) outcomes));
+    }
+
+    /**
+     * 全部成功时成功，结果按输入的顺序；任意一个失败时立即以该失败结束
+     */
+    private static final class All<T> extends AggregateResult<T, List<T>> {
+
+        All(int size) {
+            super(size);
+        }
+
+        @Override
+        void onCompleted(int index, AsyncResult<T> ar) {
+            if (ar.failed()) {
+                tryFailure(ar.cause());
+                return;
+            }
+            outcomes[index] = ar.result();
+            countDown();
+        }
+
+        @Override
+        void onAllCompleted() {
+            trySuccess(resultList());
+        }
+    }
+
+    /**
+     * 第一个成功的结果；全部失败时以{@link CompositeException}结束
+     */
+    private static final class Any<T> extends AggregateResult<T, T> {
+
+        Any(int size) {
+            super(size);
+        }
+
+        @Override
+        void onCompleted(int index, AsyncResult<T> ar) {
+            if (ar.succeeded()) {
+                trySuccess(ar.result());
+                return;
+            }
+            outcomes[index] = ar.cause();
+            countDown();
+        }
+
+        @Override
+        void onAllCompleted() {
+            List<Throwable> causes = new ArrayList<>(outcomes.length);
+            for (Object cause : outcomes) causes.add((Throwable) cause);
+            tryFailure(new CompositeException(causes));
+        }
+    }
+
+    /**
+     * 等待所有的输入完成。全部成功时结果按输入的顺序；否则以包含所有失败的{@link CompositeException}结束
+     */
+    private static final class Join<T> extends AggregateResult<T, List<T>> {
+
+        private volatile boolean failed;
+
+        Join(int size) {
+            super(size);
+        }
+
+        @Override
+        void onCompleted(int index, AsyncResult<T> ar) {
+            if (ar.failed()) {
+                outcomes[index] = new Failure(ar.cause());
+                failed = true;
+            } else {
+                outcomes[index] = ar.result();
+            }
+            countDown();
+        }
+
+        @Override
+        void onAllCompleted() {
+            if (!failed) {
+                trySuccess(resultList());
+                return;
+            }
+            List<Throwable> causes = new ArrayList<>();
+            for (Object outcome : outcomes) {
+                if (outcome instanceof Failure) causes.add(((Failure) outcome).cause);
+            }
+            tryFailure(new CompositeException(causes));
+        }
+
+        /**
+         * 成功的结果可能本身就是Throwable，失败单独包一层区分
+         */
+        private static final class Failure {
+            final Throwable cause;
+
+            Failure(Throwable cause) {
+                this.cause = cause;
+            }
+        }
+    }
+}
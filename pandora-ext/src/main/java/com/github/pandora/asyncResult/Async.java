@@ -1,7 +1,17 @@
 package com.github.pandora.asyncResult;
 
+import com.github.pandora.timer.HashedWheelTimer;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 /**
  * 工具类
@@ -24,6 +34,16 @@ public interface Async {
         return Promise.promise();
     }
 
+    /**
+     * 创建未完成的Promise，完成时按policy通知handler.
+     *
+     * @param policy 通知handler的策略，见{@link DispatchPolicy}
+     * @return {@link Promise}
+     */
+    static <T> Promise<T> promise(DispatchPolicy policy) {
+        return Promise.promise(policy);
+    }
+
     /**
      * 创建已完成正常结果的{@link Future,Asyncable}
      *
@@ -64,13 +84,13 @@ public interface Async {
 
     /**
      * 创建已完成正常结果的{@link CompletableResult,Asyncable}
+     * 不可变对象，null, true, false以及空集合等结果使用共享的实例
      *
      * @param t 正常结果
      * @return {@link CompletableResult,Asyncable}
      */
     static <T> CompletableResult<T> succeededResult(T t) {
-        Promise<T> promise = Promise.promise();
-        return promise.setSuccess(t).toCompletableResult();
+        return SucceededResult.of(t);
     }
 
     /**
@@ -79,18 +99,61 @@ public interface Async {
      * @return {@link CompletableResult,Asyncable}
      */
     static <T> CompletableResult<T> failedResult(Throwable err) {
-        Promise<T> promise = Promise.promise();
-        return promise.setFailure(err).toCompletableResult();
+        return new FailedResult<>(err);
+    }
+
+    /**
+     * 创建delay之后以null成功的{@link Future}
+     * <p>
+     * 基于共享的时间轮{@link HashedWheelTimer#shared()}，精度是一格(默认10ms)，完成通知在timer的线程上。
+     * 到期之前取消返回的{@link Future}时，释放timer上占用的位置
+     *
+     * @param delay 延迟
+     * @return {@link Future}
+     */
+    static Future<Void> delay(Duration delay) {
+        Objects.requireNonNull(delay);
+        return DelayStage.delay(delay.toNanos());
+    }
+
+    /**
+     * 按policy重试，直到成功、失败不再满足重试条件、次数用完或超过deadline。失败时以最后一次的失败结束
+     * <p>
+     * 退避的等待在共享的时间轮{@link HashedWheelTimer#shared()}上，不占用线程。
+     * 整个重试只有一个结果对象，不会随着尝试次数增加promise链。见{@link RetryPolicy}
+     *
+     * @param supplier 每次调用发起一次新的尝试，{@link Future,com.github.pandora.listenable.future.ListenableFuture}等都可以
+     * @param policy   重试策略
+     * @return {@link CompletableResult,Asyncable}
+     */
+    static <T> CompletableResult<T> retry(Supplier<? extends Asyncable<T>> supplier, RetryPolicy policy) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(policy);
+        return RetryStage.retry(supplier, policy);
     }
 
     /**
      * 包装{@link CompletionStage},转换成{@link CompletableResult,Asyncable}
+     * <p>
+     * 1. cs本身就是{@link CompletableResult}时直接返回
+     * 2. cs是{@link CompletableResult#toCompletableFuture()}的视图时，拆出原来的{@link CompletableResult}
+     * 3. cs是已正常完成的{@link CompletableFuture}时，直接返回已完成的结果，不再注册回调
      *
      * @param cs {@link CompletionStage}
      * @return {@link CompletableResult,Asyncable}
      */
+    @SuppressWarnings("unchecked")
     static <R> CompletableResult<R> wrap(CompletionStage<R> cs) {
         Objects.requireNonNull(cs);
+        if (cs instanceof CompletableResult) return (CompletableResult<R>) cs;
+        if (cs instanceof CompletableFutureView && ((CompletableFutureView<R>) cs).attached()) {
+            return ((CompletableFutureView<R>) cs).source;
+        }
+        if (cs instanceof CompletableFuture) {
+            CompletableFuture<R> cf = (CompletableFuture<R>) cs;
+            //异常完成的还是走whenComplete，与未完成时拿到的异常保持一致
+            if (cf.isDone() && !cf.isCompletedExceptionally()) return succeededResult(cf.join());
+        }
         Promise<R> promise = Promise.promise();
         cs.whenComplete((r, err) -> {
             AsyncResult<R> ar;
@@ -106,15 +169,128 @@ public interface Async {
 
     /**
      * 包装{@link Asyncable},转换成{@link CompletableResult}
+     * <p>
+     * 直接使用{@link Asyncable#toCompletableResult()}，aa本身就是{@link CompletableResult}时返回它自己
      *
      * @param aa {@link Asyncable}
      * @return {@link CompletableResult}
      */
     static <R> CompletableResult<R> wrap(Asyncable<R> aa) {
         Objects.requireNonNull(aa);
-        Promise<R> promise = Promise.promise();
-        aa.toFuture().addHandler(promise);
-        return promise.toCompletableResult();
+        return aa.toCompletableResult();
+    }
+
+    /**
+     * 全部成功时成功，结果按输入的顺序；任意一个失败时立即以该失败结束。
+     * <p>
+     * 背后只有一个聚合对象(一个计数器，一个预先分配好的结果数组)，每个输入只多一个handler。
+     * 输入为空时，立即以空list成功
+     *
+     * @param asyncs 异步结果
+     * @return {@link CompletableResult,Asyncable}
+     */
+    static <T> CompletableResult<List<T>> all(Collection<? extends Asyncable<T>> asyncs) {
+        Objects.requireNonNull(asyncs);
+        return AggregateResult.all(asyncs);
+    }
+
+    /**
+     * 以第一个成功的结果成功；全部失败时以{@link CompositeException}结束，包含所有的失败。
+     * <p>
+     * 输入为空时，立即以不包含失败的{@link CompositeException}结束
+     *
+     * @param asyncs 异步结果
+     * @return {@link CompletableResult,Asyncable}
+     */
+    static <T> CompletableResult<T> any(Collection<? extends Asyncable<T>> asyncs) {
+        Objects.requireNonNull(asyncs);
+        return AggregateResult.any(asyncs);
+    }
+
+    /**
+     * 等待所有的输入完成，与{@link #all(Collection)}不同，失败时不会提前结束。
+     * 全部成功时结果按输入的顺序；否则以{@link CompositeException}结束，按输入的顺序包含所有的失败。
+     * <p>
+     * 输入为空时，立即以空list成功
+     *
+     * @param asyncs 异步结果
+     * @return {@link CompletableResult,Asyncable}
+     */
+    static <T> CompletableResult<List<T>> join(Collection<? extends Asyncable<T>> asyncs) {
+        Objects.requireNonNull(asyncs);
+        return AggregateResult.join(asyncs);
+    }
+
+    /**
+     * 在单独的线程上执行body，body中可以用{@link #await(Asyncable)}像同步代码一样等待其他异步结果。
+     * <p>
+     * java21+上body运行在虚拟线程上，await只挂起虚拟线程，不占用carrier线程；
+     * 不支持虚拟线程时(java21以下，或者jar不是在JDK 21+上构建的)运行在共享的有界平台线程池上，await阻塞的是池中的线程：
+     * 同时执行的body最多-Dpandora.async.maxThreads个(默认256)，超出的最多排队-Dpandora.async.queueSize个(默认1024)，
+     * 队列也满了时返回以{@link java.util.concurrent.RejectedExecutionException}失败的结果。
+     * 排队的body要等正在执行的body结束，正在执行的body不要await排队中的body的结果。 见{@link AsyncRunner}
+     * <pre>
+     * CompletableResult&lt;Order&gt; order = Async.async(() -&gt; {
+     *     User user = Async.await(userService.find(id));
+     *     return Async.await(orderService.latest(user));
+     * });
+     * </pre>
+     * 取消返回的结果时中断body所在的线程，正在进行的{@link #await(Asyncable)}抛出{@link InterruptedException}
+     *
+     * @param body 函数体，抛出的异常原样作为失败的结果
+     * @return {@link CompletableResult,Asyncable}
+     */
+    static <T> CompletableResult<T> async(Callable<T> body) {
+        Objects.requireNonNull(body);
+        return AsyncRunner.run(body);
+    }
+
+    /**
+     * 包装executor，开启合并提交：一个结果成功完成时，切换到这个executor的多个操作符(map(fn, executor), flatMap,
+     * thenApplyAsync等)合并成少数几个task提交，而不是每个操作符单独提交一次。
+     * <p>
+     * 同一个task中的continuation串行执行，只适合continuation很轻、不阻塞，并且executor本身就是串行的(event loop，单线程executor)场景。
+     * 见{@link BatchDispatcher}
+     *
+     * @param executor 执行continuation的executor
+     * @return 开启了合并提交的executor，已经包装过时返回原对象
+     */
+    static Executor batching(Executor executor) {
+        return BatchDispatcher.batching(executor);
+    }
+
+    /**
+     * 等待asyncable完成并返回结果，失败时原样抛出失败的异常(不包装成{@link ExecutionException})，
+     * 在{@link #async(Callable)}中可以直接try catch。
+     * <p>
+     * 已完成时直接返回，不会挂起。 未完成时与{@link Asyncable#await()}一样等待：虚拟线程上只挂起虚拟线程，
+     * 平台线程上阻塞，不要在event loop等不能阻塞的线程上调用
+     *
+     * @param asyncable 异步结果
+     * @return 结果
+     * @throws InterruptedException 等待时被中断
+     * @throws Exception            失败的异常，取消时是{@link java.util.concurrent.CancellationException}
+     */
+    static <T> T await(Asyncable<T> asyncable) throws Exception {
+        Objects.requireNonNull(asyncable);
+        if (!(asyncable instanceof Future)) {
+            //listenable等其他实现按自己的方式等待，toFuture()可能会在上面留下handler
+            try {
+                return asyncable.await();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) throw (Exception) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+        Future<T> future = asyncable.toFuture();
+        Awaiter.await(future);
+        if (future.succeeded()) return future.result();
+        Throwable cause = future.cause();
+        if (cause instanceof Exception) throw (Exception) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        throw new ExecutionException(cause);
     }
 
 }
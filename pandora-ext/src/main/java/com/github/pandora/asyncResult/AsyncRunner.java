@@ -0,0 +1,93 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.listenable.future.ListenableRunTask;
+import com.github.pandora.utils.VirtualThreads;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Async#async(Callable)}的执行者。
+ * <p>
+ * 每个body一个线程：java21+上是虚拟线程，body中的{@link Async#await(Asyncable)}只挂起虚拟线程；
+ * 不支持虚拟线程时(java21以下，或者jar不是在JDK 21+上构建的)退化为共享的有界平台线程池，await阻塞的是这个池中的线程，
+ * 不会是调用方的线程。 线程按需创建，空闲60s回收，daemon；线程都在用时body在队列中排队，队列也满了时以
+ * {@link RejectedExecutionException}结束。 两种情况下结果都通过{@link CompletableResult}的回调通知
+ * <p>
+ * -Dpandora.async.maxThreads=N 平台线程池最多的线程数，默认256
+ * -Dpandora.async.queueSize=N 平台线程池排队的body个数，默认1024。 0: 不排队，线程都在用时直接拒绝
+ */
+final class AsyncRunner {
+
+    private AsyncRunner() {
+    }
+
+    /**
+     * @param body 函数体
+     * @return body的结果，取消时中断body所在的线程
+     */
+    static <T> CompletableResult<T> run(Callable<T> body) {
+        return run(body, VirtualThreads.isSupported() ? Virtual.EXECUTOR : Platform.EXECUTOR);
+    }
+
+    static <T> CompletableResult<T> run(Callable<T> body, ListenableExecutor executor) {
+        ListenableRunTask<T> task = new ListenableRunTask<>(body, executor);
+        BodyResult<T> result = new BodyResult<>(task);
+        task.addHandler(result);
+        try {
+            executor.execute(task);
+        } catch (Throwable e) {
+            result.tryFailure(e);
+        }
+        return result;
+    }
+
+    /**
+     * @param maxThreads 最多的线程数
+     * @param queueSize  排队的body个数
+     * @return 不支持虚拟线程时使用的平台线程池
+     */
+    static ListenableExecutor platform(int maxThreads, int queueSize) {
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                queueSize == 0 ? new SynchronousQueue<>() : new LinkedBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "pandora-async-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return ListenableExecutor.create(pool);
+    }
+
+    /**
+     * body的结果。 task只由这个结果持有，取消时直接取消task，中断body所在的线程
+     */
+    private static final class BodyResult<T> extends Stage<T> {
+
+        private final java.util.concurrent.Future<T> task;
+
+        BodyResult(java.util.concurrent.Future<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        void onCancelled() {
+            task.cancel(true);
+        }
+    }
+
+    private static final class Virtual {
+        static final ListenableExecutor EXECUTOR = ListenableExecutor.create(VirtualThreads.newVirtualThreadPerTaskExecutor());
+    }
+
+    private static final class Platform {
+        static final ListenableExecutor EXECUTOR = platform(Math.max(1, Integer.getInteger("pandora.async.maxThreads", 256)),
+                Math.max(0, Integer.getInteger("pandora.async.queueSize", 1024)));
+    }
+}
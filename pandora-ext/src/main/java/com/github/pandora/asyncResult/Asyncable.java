@@ -1,6 +1,8 @@
 package com.github.pandora.asyncResult;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 
 /**
  * 代表一个可异步化的对象，且该对象必须有完成的动作
@@ -45,6 +47,28 @@ public interface Asyncable<T> {
         return toCompletableResult();
     }
 
+    /**
+     * 等待完成并返回结果，语义与{@link java.util.concurrent.Future#get()}相同。
+     * <p>
+     * 通过{@link java.util.concurrent.locks.LockSupport#park(Object)}等待，不经过synchronized：
+     * 在虚拟线程上(例如{@link com.github.pandora.listenable.executor.ListenableExecutor#virtual()}中的task)只挂起虚拟线程，
+     * carrier线程继续执行其他虚拟线程；在平台线程上与{@link java.util.concurrent.Future#get()}一样阻塞，
+     * 不要在event loop等不能阻塞的线程上调用
+     *
+     * @return 结果
+     * @throws InterruptedException 等待时被中断
+     * @throws ExecutionException 失败，cause是原始异常
+     * @throws CancellationException 已取消
+     */
+    default T await() throws InterruptedException, ExecutionException {
+        Future<T> future = toFuture();
+        Awaiter.await(future);
+        if (future.succeeded()) return future.result();
+        Throwable cause = future.cause();
+        if (cause instanceof CancellationException) throw (CancellationException) cause;
+        throw new ExecutionException(cause);
+    }
+
     /**
      * 与之关联的AsyncStageResult，当Promise设置结果时，通知到{@link CompletionStage}
      * 与java标准库api关联
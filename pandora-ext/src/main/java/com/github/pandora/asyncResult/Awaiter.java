@@ -0,0 +1,57 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Asyncable#await()}的等待者。
+ * <p>
+ * 在future上挂一个unpark当前线程的handler，然后{@link LockSupport#park(Object)}直到完成。
+ * 虚拟线程park时从carrier线程上卸载，不占用carrier，整个等待过程没有synchronized，不会pin住carrier。
+ * 平台线程上与{@link java.util.concurrent.Future#get()}一样阻塞。 被中断时从future上摘掉handler
+ * <p>
+ * 只用于pandora的{@link Future}。 listenable future覆盖了{@link Asyncable#await()}，在自己的等待栈上等待
+ */
+final class Awaiter {
+
+    /**
+     * 完成时unpark等待的线程。 共享的常量，被中断时按identity摘掉
+     */
+    private static final BiHandler<AsyncResult<Object>, Awaiter> WAKEUP = (ar, w) -> {
+        Thread t = w.thread;
+        if (t != null) LockSupport.unpark(t);
+    };
+
+    /**
+     * 完成时unpark的线程。 等待结束之后清空，之后才执行的handler不会unpark一个已经不再等待的线程
+     */
+    volatile Thread thread = Thread.currentThread();
+
+    private Awaiter() {
+    }
+
+    /**
+     * 等待future完成
+     *
+     * @param future future
+     * @throws InterruptedException 等待时被中断
+     */
+    @SuppressWarnings("unchecked")
+    static void await(Future<?> future) throws InterruptedException {
+        if (future.isCompleted()) return;
+        if (Thread.interrupted()) throw new InterruptedException();
+        Awaiter awaiter = new Awaiter();
+        ((Future<Object>) future).addHandler(WAKEUP, awaiter);
+        try {
+            while (!future.isCompleted()) {
+                LockSupport.park(future);
+                if (Thread.interrupted()) {
+                    //不再等待，摘掉handler。 同一个未完成的future上反复被中断的await不会堆积handler
+                    if (future instanceof CompletableResultImpl) ((CompletableResultImpl<?>) future).removeHandler(WAKEUP, awaiter);
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            awaiter.thread = null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.listenable.executor.RunNowExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * 合并提交同一次完成通知中的{@link Continuation}。
+ * <p>
+ * 共享的结果上挂着几百个切换executor的操作符时(例如配置刷新、缓存填充的future)，每个操作符都单独executor.execute一次，
+ * 一次完成就会带来几百次入队和唤醒。 结果以成功完成并通知多个handler时，提交到同一个executor的continuation合并成一个task提交，
+ * 按{@link #BATCH_SIZE}切分成多个task，每个task中依次执行。
+ * <p>
+ * 执行其他handler(用户代码)之前，先提交已收集的continuation，用户代码中阻塞等待这些continuation的结果也不会死锁。
+ * {@link RunNowExecutor}不参与合并。
+ * <p>
+ * 默认关闭：同一个task中的continuation是串行执行的，线程池、虚拟线程executor上的fan-out会失去并行度，
+ * continuation阻塞等待同一个task中后面的continuation时会死锁。 只适合continuation很轻、不阻塞，
+ * 并且executor本身就是串行的(event loop，单线程executor)或者入队代价远大于执行代价的场景。
+ * 按executor开启：操作符使用{@link Async#batching(Executor)}包装过的executor，只有提交到它上面的continuation合并提交
+ * <p>
+ * -Denable.pandora.batchDispatch=true 所有的executor都开启合并提交，启动时读取一次，之后不能切换
+ * -Dpandora.dispatch.batchSize=N 每个合并的task最多执行的continuation个数，默认64。 0: 不切分
+ */
+final class BatchDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchDispatcher.class);
+
+    static final boolean ENABLED = Boolean.getBoolean("enable.pandora.batchDispatch");
+
+    static final int BATCH_SIZE = Math.max(0, Integer.getInteger("pandora.dispatch.batchSize", 64));
+
+    /**
+     * 按executor分组，一次通知中的executor通常只有一两个，线性查找即可
+     */
+    private final List<Group> groups = new ArrayList<>(2);
+
+    /**
+     * @param handler handler
+     * @return true: 可合并提交的handler
+     */
+    static boolean batchable(Object handler) {
+        if (!(handler instanceof Continuation)) return false;
+        Executor executor = ((Continuation<?>) handler).executor;
+        return executor instanceof Batching || ENABLED && !(executor instanceof RunNowExecutor);
+    }
+
+    /**
+     * @param executor executor
+     * @return 开启了合并提交的executor，见{@link Async#batching(Executor)}
+     */
+    static Executor batching(Executor executor) {
+        Objects.requireNonNull(executor, "executor");
+        return executor instanceof Batching ? executor : new Batching(executor);
+    }
+
+    <T> void add(Continuation<T> continuation, AsyncResult<T> ar) {
+        continuation.prepare(ar);
+        Executor executor = continuation.executor;
+        for (Group group : groups) {
+            if (group.executor == executor) {
+                group.continuations.add(continuation);
+                return;
+            }
+        }
+        Group group = new Group(executor);
+        group.continuations.add(continuation);
+        groups.add(group);
+    }
+
+    /**
+     * 提交已收集的continuation
+     */
+    void flush() {
+        if (groups.isEmpty()) return;
+        Group[] flushing = groups.toArray(new Group[0]);
+        groups.clear();
+        for (Group group : flushing) group.flush();
+    }
+
+    /**
+     * 开启了合并提交的executor，只是标记，执行交给原来的executor
+     */
+    private static final class Batching implements Executor {
+
+        private final Executor executor;
+
+        Batching(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            executor.execute(command);
+        }
+    }
+
+    private static final class Group {
+
+        final Executor executor;
+        final List<Continuation<?>> continuations = new ArrayList<>();
+
+        Group(Executor executor) {
+            this.executor = executor;
+        }
+
+        void flush() {
+            int size = continuations.size();
+            if (size == 1) {
+                continuations.get(0).submit();
+                return;
+            }
+            int chunk = BATCH_SIZE == 0 ? size : BATCH_SIZE;
+            for (int from = 0; from < size; from += chunk) {
+                Continuation<?>[] tasks = continuations.subList(from, Math.min(size, from + chunk)).toArray(new Continuation<?>[0]);
+                try {
+                    executor.execute(new Chunk(tasks));
+                } catch (Throwable e) {
+                    for (Continuation<?> task : tasks) task.next.tryFailure(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 合并提交的task，依次执行其中的continuation
+     */
+    private static final class Chunk implements Runnable {
+
+        private final Continuation<?>[] tasks;
+
+        Chunk(Continuation<?>[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void run() {
+            for (Continuation<?> task : tasks) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    logger.warn("execute batched continuation failed.", e);
+                }
+            }
+        }
+    }
+}
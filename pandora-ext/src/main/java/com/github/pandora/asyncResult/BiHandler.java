@@ -0,0 +1,19 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * 带上下文的事件处理器。
+ * <p>
+ * 与{@link Handler}的区别：注册时把需要的状态作为ctx一起传入，处理时再交给handler，handler本身不需要捕获任何变量。
+ * 不捕获变量的handler可以是一个共享的静态常量，注册回调时不再为每次注册分配lambda。
+ * <p>
+ * 例如: {@link Future#addHandler(BiHandler, Object)}
+ * <pre>
+ * static final BiHandler&lt;AsyncResult&lt;String&gt;, Session&gt; REPLY = (ar, session) -&gt; session.reply(ar);
+ * fut.addHandler(REPLY, session);
+ * </pre>
+ */
+@FunctionalInterface
+public interface BiHandler<T, C> {
+
+    void handle(T t, C ctx);
+}
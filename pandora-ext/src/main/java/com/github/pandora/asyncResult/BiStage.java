@@ -0,0 +1,280 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 两个异步结果组合成的stage，{@link CompletableResult#thenCombine}，{@link CompletableResult#applyToEither}等
+ * both/either操作符的实现。
+ * <p>
+ * 两边的结果直接保存在stage的字段上，两边的完成情况以及是否已触发合成一个state，只通过一个field updater更新。
+ * 不再需要额外的Atomic*对象，other是{@link Future}时也不再包装成新的promise。
+ * <p>
+ * both: 两边都成功时执行；任意一边失败时立即以该失败结束。
+ * either: 先成功的一边执行；两边都失败时以后失败的一边结束。
+ */
+abstract class BiStage<R> extends Stage<R> implements Runnable {
+
+    private static final AtomicIntegerFieldUpdater<BiStage> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(BiStage.class, "state");
+
+    static final int FIRST = 1;   //当前future已完成
+    static final int SECOND = 2;  //other已完成
+    static final int BOTH = FIRST | SECOND;
+    static final int FIRED = 4;   //已触发，之后的结果都忽略
+
+    private final Executor executor;
+
+    private volatile int state;
+
+    /**
+     * 两边的结果。 写完之后再更新state，通过state发布给另一边
+     */
+    Object first;
+    Object second;
+
+    BiStage(Executor executor) {
+        this.executor = executor;
+    }
+
+    static <T, U, V> CompletableResult<V> combine(Future<T> source, CompletionStage<? extends U> other,
+                                                  BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
+        return new Combine<T, U, V>(fn, executor).subscribe(source, other);
+    }
+
+    static <T, U> CompletableResult<Void> acceptBoth(Future<T> source, CompletionStage<? extends U> other,
+                                                     BiConsumer<? super T, ? super U> action, Executor executor) {
+        return new AcceptBoth<>(action, executor).subscribe(source, other);
+    }
+
+    static CompletableResult<Void> runAfterBoth(Future<?> source, CompletionStage<?> other, Runnable action, Executor executor) {
+        return new RunAfterBoth(action, executor).subscribe(source, other);
+    }
+
+    static <T, U> CompletableResult<U> applyToEither(Future<T> source, CompletionStage<? extends T> other,
+                                                     Function<? super T, U> fn, Executor executor) {
+        return new ApplyToEither<>(fn, executor).subscribe(source, other);
+    }
+
+    static <T> CompletableResult<Void> acceptEither(Future<T> source, CompletionStage<? extends T> other,
+                                                    Consumer<? super T> action, Executor executor) {
+        return new AcceptEither<>(action, executor).subscribe(source, other);
+    }
+
+    static CompletableResult<Void> runAfterEither(Future<?> source, CompletionStage<?> other, Runnable action, Executor executor) {
+        return new RunAfterEither(action, executor).subscribe(source, other);
+    }
+
+    @SuppressWarnings("unchecked")
+    final BiStage<R> subscribe(Future<?> source, CompletionStage<?> other) {
+        dependOn(new Object[]{source, other});
+        //不捕获变量，以stage作为上下文，注册时不分配lambda
+        source.addHandler((ar, stage) -> stage.onCompleted(FIRST, ar.result(), ar.failed() ? ar.cause() : null), this);
+        if (other instanceof Future) {
+            ((Future<Object>) other).addHandler((ar, stage) -> stage.onCompleted(SECOND, ar.result(), ar.failed() ? ar.cause() : null), this);
+        } else {
+            other.whenComplete((u, err) -> onCompleted(SECOND, u, err));
+        }
+        return this;
+    }
+
+    /**
+     * @param side  {@link #FIRST} or {@link #SECOND}
+     * @param value 成功时的结果
+     * @param cause 失败时的异常，成功时为null
+     */
+    abstract void onCompleted(int side, Object value, Throwable cause);
+
+    /**
+     * @return 执行操作符的结果
+     */
+    abstract R apply();
+
+    /**
+     * 标记为已触发
+     *
+     * @return true: 当前调用触发成功，false: 已经被触发过了
+     */
+    final boolean fire() {
+        for (; ; ) {
+            int s = state;
+            if ((s & FIRED) != 0) return false;
+            if (STATE_UPDATER.compareAndSet(this, s, s | FIRED)) return true;
+        }
+    }
+
+    /**
+     * 记下side已完成
+     *
+     * @return 两边都已完成，并且当前调用触发成功
+     */
+    final boolean complete(int side) {
+        for (; ; ) {
+            int s = state;
+            if ((s & FIRED) != 0) return false;
+            int ns = s | side;
+            if (ns == BOTH) ns |= FIRED;
+            if (STATE_UPDATER.compareAndSet(this, s, ns)) return (ns & FIRED) != 0;
+        }
+    }
+
+    /**
+     * 将操作符执行在executor上
+     */
+    final void dispatch() {
+        try {
+            executor.execute(this);
+        } catch (Throwable e) {
+            tryFailure(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            trySuccess(apply());
+        } catch (Throwable e) {
+            tryFailure(e);
+        }
+    }
+
+    private static abstract class Both<R> extends BiStage<R> {
+
+        Both(Executor executor) {
+            super(executor);
+        }
+
+        @Override
+        final void onCompleted(int side, Object value, Throwable cause) {
+            if (cause != null) {
+                if (fire()) tryFailure(cause);
+                return;
+            }
+            if (side == FIRST) first = value;
+            else second = value;
+            if (complete(side)) dispatch();
+        }
+    }
+
+    private static abstract class Either<R> extends BiStage<R> {
+
+        Either(Executor executor) {
+            super(executor);
+        }
+
+        @Override
+        final void onCompleted(int side, Object value, Throwable cause) {
+            if (cause == null) {
+                if (fire()) {
+                    first = value;
+                    dispatch();
+                }
+                return;
+            }
+            if (complete(side)) tryFailure(cause);
+        }
+    }
+
+    private static final class Combine<T, U, V> extends Both<V> {
+
+        private final BiFunction<? super T, ? super U, ? extends V> fn;
+
+        Combine(BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
+            super(executor);
+            this.fn = fn;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        V apply() {
+            return fn.apply((T) first, (U) second);
+        }
+    }
+
+    private static final class AcceptBoth<T, U> extends Both<Void> {
+
+        private final BiConsumer<? super T, ? super U> action;
+
+        AcceptBoth(BiConsumer<? super T, ? super U> action, Executor executor) {
+            super(executor);
+            this.action = action;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Void apply() {
+            action.accept((T) first, (U) second);
+            return null;
+        }
+    }
+
+    private static final class RunAfterBoth extends Both<Void> {
+
+        private final Runnable action;
+
+        RunAfterBoth(Runnable action, Executor executor) {
+            super(executor);
+            this.action = action;
+        }
+
+        @Override
+        Void apply() {
+            action.run();
+            return null;
+        }
+    }
+
+    private static final class ApplyToEither<T, U> extends Either<U> {
+
+        private final Function<? super T, U> fn;
+
+        ApplyToEither(Function<? super T, U> fn, Executor executor) {
+            super(executor);
+            this.fn = fn;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        U apply() {
+            return fn.apply((T) first);
+        }
+    }
+
+    private static final class AcceptEither<T> extends Either<Void> {
+
+        private final Consumer<? super T> action;
+
+        AcceptEither(Consumer<? super T> action, Executor executor) {
+            super(executor);
+            this.action = action;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Void apply() {
+            action.accept((T) first);
+            return null;
+        }
+    }
+
+    private static final class RunAfterEither extends Either<Void> {
+
+        private final Runnable action;
+
+        RunAfterEither(Runnable action, Executor executor) {
+            super(executor);
+            this.action = action;
+        }
+
+        @Override
+        Void apply() {
+            action.run();
+            return null;
+        }
+    }
+}
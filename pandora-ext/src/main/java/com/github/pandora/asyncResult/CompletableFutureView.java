@@ -0,0 +1,87 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link CompletableResult#toCompletableFuture()}返回的视图，由source完成。
+ * <p>
+ * 同一个{@link CompletableResultImpl}只创建一次，之后重复调用{@link CompletableResult#toCompletableFuture()}
+ * 返回同一个视图。 {@link Async#wrap(java.util.concurrent.CompletionStage)}遇到视图时直接拆出source，
+ * 不需要再包装一次。
+ * <p>
+ * 视图被外部直接complete、cancel过之后(结果可能与source不一致)，不再拆出source
+ * <p>
+ * 视图与source的其他下游一样参与取消的传播，见{@link #cancel(boolean)}
+ */
+class CompletableFutureView<T> extends CompletableFuture<T> {
+
+    final CompletableResult<T> source;
+
+    /**
+     * 视图被外部完成过
+     */
+    private volatile boolean detached;
+
+    CompletableFutureView(CompletableResult<T> source) {
+        this.source = source;
+    }
+
+    /**
+     * 在source上注册，source完成时完成当前视图
+     *
+     * @return this
+     */
+    CompletableFutureView<T> subscribe() {
+        CompletableResultImpl.retain(source);
+        source.addHandler((ar, view) -> view.onCompleted(ar), this);
+        return this;
+    }
+
+    private void onCompleted(AsyncResult<T> ar) {
+        if (ar.succeeded()) super.complete(ar.result());
+        else super.completeExceptionally(ar.cause());
+    }
+
+    /**
+     * @return 可以直接使用source代替当前视图
+     */
+    boolean attached() {
+        return !detached;
+    }
+
+    @Override
+    public boolean complete(T value) {
+        detached = true;
+        return super.complete(value);
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable ex) {
+        detached = true;
+        return super.completeExceptionally(ex);
+    }
+
+    /**
+     * source是pandora创建的中间结果({@link Stage})时，依赖它的最后一个下游(包括当前视图)被取消才取消source。
+     * 用户自己的{@link Promise}等不受影响，只能由持有者自己取消
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        detached = true;
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) CompletableResultImpl.cancelUpstream(source, Failures.cancellation());
+        return cancelled;
+    }
+
+    @Override
+    public void obtrudeValue(T value) {
+        detached = true;
+        super.obtrudeValue(value);
+    }
+
+    @Override
+    public void obtrudeException(Throwable ex) {
+        detached = true;
+        super.obtrudeException(ex);
+    }
+}
@@ -8,7 +8,6 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.atomic.*;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -172,58 +171,10 @@ public interface CompletableResult<T> extends Future<T>, CompletionStage<T>, Asy
         return thenCombineAsync(other, fn, ForkJoinPool.commonPool());
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     default <U, V> CompletableResult<V> thenCombineAsync(CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
         ObjectUtils.requireNonNull(other, fn, executor);
-
-        Promise<V> promise = Promise.promise();
-        CompletableResult<? extends U> other0 = Async.wrap(other);
-        AtomicInteger successCount = new AtomicInteger();
-        AtomicBoolean ifExec = new AtomicBoolean();
-        AtomicReference<Object> ref0 = new AtomicReference<>();
-        AtomicReference<Object> ref1 = new AtomicReference<>();
-
-        BiConsumer<T, U> bc = (t, u) -> {
-            try {
-                executor.execute(() -> {
-                    try {
-                        V apply = fn.apply(t, u);
-                        promise.setSuccess(apply);
-                    } catch (Throwable e1) {
-                        promise.setFailure(e1);
-                    }
-                });
-            } catch (Throwable e) {
-                promise.setFailure(cause());
-            }
-        };
-
-        other0.addHandler(ar -> {
-            if (ar.succeeded()) {
-                ref0.set(ar.result());
-                if (successCount.incrementAndGet() == 2 && ifExec.compareAndSet(false, true)) {
-                    T t = (T) ref1.get();
-                    U u = ar.result();
-                    bc.accept(t, u);
-                }
-                return;
-            }
-            if (ifExec.compareAndSet(false, true)) promise.setFailure(ar.cause());
-        });
-        addHandler(ar -> {
-            if (ar.succeeded()) {
-                ref1.set(ar.result());
-                if (successCount.incrementAndGet() == 2 && ifExec.compareAndSet(false, true)) {
-                    T t = ar.result();
-                    U u = (U) ref0.get();
-                    bc.accept(t, u);
-                }
-                return;
-            }
-            if (ifExec.compareAndSet(false, true)) promise.setFailure(ar.cause());
-        });
-        return promise.toCompletableResult();
+        return BiStage.combine(this, other, fn, executor);
     }
 
     @Override
@@ -238,12 +189,8 @@ public interface CompletableResult<T> extends Future<T>, CompletionStage<T>, Asy
 
     @Override
     default <U> CompletableResult<Void> thenAcceptBothAsync(CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action, Executor executor) {
-        Objects.requireNonNull(action);
-        BiFunction<T, U, Void> bf = (t, u) -> {
-            action.accept(t, u);
-            return null;
-        };
-        return thenCombineAsync(other, bf, executor).toCompletableResult();
+        ObjectUtils.requireNonNull(other, action, executor);
+        return BiStage.acceptBoth(this, other, action, executor);
     }
 
     @Override
@@ -258,12 +205,8 @@ public interface CompletableResult<T> extends Future<T>, CompletionStage<T>, Asy
 
     @Override
     default CompletableResult<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action, Executor executor) {
-        Objects.requireNonNull(action);
-        BiFunction<T, Object, Void> bf = (t, u) -> {
-            action.run();
-            return null;
-        };
-        return thenCombineAsync(other, bf, executor);
+        ObjectUtils.requireNonNull(other, action, executor);
+        return BiStage.runAfterBoth(this, other, action, executor);
     }
 
     @Override
@@ -279,40 +222,7 @@ public interface CompletableResult<T> extends Future<T>, CompletionStage<T>, Asy
     @Override
     default <U> CompletableResult<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn, Executor executor) {
         ObjectUtils.requireNonNull(other, fn, executor);
-
-        Promise<U> promise = Promise.promise();
-        AtomicInteger failedCount = new AtomicInteger();
-        AtomicBoolean ifExec = new AtomicBoolean();
-
-        CompletableResult<? extends T> other0 = Async.wrap(other);
-
-        Handler<AsyncResult<? extends T>> handler = ar -> {
-            if (ar.succeeded()) {
-                if (ifExec.compareAndSet(false, true)) {
-                    try {
-                        executor.execute(() -> {
-                            try {
-                                U apply = fn.apply(ar.result());
-                                promise.setSuccess(apply);
-                            } catch (Throwable e1) {
-                                promise.setFailure(e1);
-                            }
-                        });
-                    } catch (Throwable e) {
-                        promise.setFailure(e);
-                    }
-                }
-            } else {
-                if (failedCount.incrementAndGet() == 2 && ifExec.compareAndSet(false, true)) {
-                    promise.setFailure(ar.cause());
-                }
-            }
-        };
-
-        other0.addHandler(handler::handle);
-        addHandler(handler::handle);
-
-        return promise.toCompletableResult();
+        return BiStage.applyToEither(this, other, fn, executor);
     }
 
     @Override
@@ -327,12 +237,8 @@ public interface CompletableResult<T> extends Future<T>, CompletionStage<T>, Asy
 
     @Override
     default CompletableResult<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action, Executor executor) {
-        Objects.requireNonNull(action);
-        Function<T, Void> fn = t -> {
-            action.accept(t);
-            return null;
-        };
-        return applyToEitherAsync(other, fn, executor);
+        ObjectUtils.requireNonNull(other, action, executor);
+        return BiStage.acceptEither(this, other, action, executor);
     }
 
     @Override
@@ -345,16 +251,10 @@ public interface CompletableResult<T> extends Future<T>, CompletionStage<T>, Asy
         return runAfterEitherAsync(other, action, ForkJoinPool.commonPool());
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     default CompletableResult<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action, Executor executor) {
-        Objects.requireNonNull(action);
-        Function<T, Void> fn = t -> {
-            action.run();
-            return null;
-        };
-        CompletionStage<T> other0 = (CompletionStage<T>) other;
-        return applyToEitherAsync(other0, fn, executor);
+        ObjectUtils.requireNonNull(other, action, executor);
+        return BiStage.runAfterEither(this, other, action, executor);
     }
 
     @Override
@@ -371,33 +271,25 @@ public interface CompletableResult<T> extends Future<T>, CompletionStage<T>, Asy
     default <U> CompletableResult<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn, Executor executor) {
         ObjectUtils.requireNonNull(fn, executor);
 
-        Promise<U> promise = Promise.promise();
-        addHandler(ar -> {
-            if(succeeded()) {
-                try {
-                    executor.execute(() -> {
-                        try {
-                            CompletionStage<U> apply = fn.apply(ar.result());
-                            apply.whenComplete((u, err) -> {
-                                if(err != null) {
-                                    promise.setFailure(err);
-                                } else {
-                                    promise.setSuccess(u);
-                                }
-                            });
-                        } catch (Throwable e1) {
-                            promise.setFailure(e1);
-                        }
-                    });
-                } catch (Throwable e) {
-                    promise.setFailure(e);
-                }
-            } else {
-                promise.setFailure(ar.cause());
+        CompletableResultImpl<U> promise = new ComposedResult<U>().dependOn(this);
+        addHandler(new Continuation<T>(executor, promise) {
+            @Override
+            void apply(AsyncResult<T> ar) {
+                CompletionStage<U> apply = fn.apply(ar.result());
+                promise.dependOn(apply); //之后取消时，取消的是内层的stage
+                //内层的结果链接到promise上，递归的thenCompose不会一层一层地转发
+                if (apply instanceof CompletableResultImpl && ((CompletableResultImpl<U>) apply).linkTo(promise)) return;
+                apply.whenComplete((u, err) -> {
+                    if(err != null) {
+                        promise.tryFailure(err);
+                    } else {
+                        promise.trySuccess(u);
+                    }
+                });
             }
         });
 
-        return promise.toCompletableResult();
+        return promise;
     }
 
     @Override
@@ -438,39 +330,31 @@ public interface CompletableResult<T> extends Future<T>, CompletionStage<T>, Asy
     @Override
     default <U> CompletableResult<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
         ObjectUtils.requireNonNull(fn, executor);
+        if (executor instanceof RunNowExecutor) return FusedStage.handle(this, fn); //同步执行，与上下游的同步操作符融合
 
-        Promise<U> promise = Promise.promise();
-        addHandler(ar -> {
-            try {
-                executor.execute(() -> {
-                    try {
-                        U apply = fn.apply(ar.result(), ar.cause());
-                        promise.setSuccess(apply);
-                    } catch (Throwable e1) {
-                        promise.setFailure(e1);
-                    }
-                });
-            } catch (Throwable e) {
-                promise.setFailure(e);
+        CompletableResultImpl<U> promise = new Stage<U>().dependOn(this);
+        addHandler(new Continuation<T>(executor, promise) {
+            @Override
+            boolean acceptFailure() {
+                return true;
             }
 
+            @Override
+            void apply(AsyncResult<T> ar) {
+                promise.trySuccess(fn.apply(ar.result(), ar.cause()));
+            }
         });
-        return promise.toCompletableResult();
+        return promise;
     }
 
+    /**
+     * 由当前结果完成的{@link CompletableFuture}视图
+     * <p>
+     * 注意: 视图被外部complete、cancel时不会影响当前结果
+     */
     @Override
     default CompletableFuture<T> toCompletableFuture() {
-        CompletableFuture<T> fut = new CompletableFuture<>();
-        addHandler(ar -> {
-            if (ar.succeeded()) {
-                if (!fut.complete(ar.result()))
-                    throw new IllegalStateException("call CompletableFuture#complete failed");
-                return;
-            }
-            if (fut.completeExceptionally(ar.cause()))
-                throw new IllegalStateException("call CompletableFuture#completeExceptionally failed");
-        });
-        return fut;
+        return new CompletableFutureView<>(this).subscribe();
     }
 
 }
@@ -0,0 +1,58 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * {@link CompletableResultImpl}状态字段的原子操作。
+ * <p>
+ * java8的实现，基于{@link AtomicReferenceFieldUpdater}。 jar是multi-release的，
+ * java9+上加载src/main/java9下的同名类，基于VarHandle，不需要每次访问时的类型检查，并且在不需要完整volatile语义的地方使用acquire/release
+ */
+final class CompletableResultAccess {
+
+    private static final AtomicReferenceFieldUpdater<CompletableResultImpl, Object> RESULT =
+            AtomicReferenceFieldUpdater.newUpdater(CompletableResultImpl.class, Object.class, "result");
+    private static final AtomicReferenceFieldUpdater<CompletableResultImpl, Object> HANDLERS =
+            AtomicReferenceFieldUpdater.newUpdater(CompletableResultImpl.class, Object.class, "handlers");
+    private static final AtomicReferenceFieldUpdater<CompletableResultImpl, Object> UPSTREAM =
+            AtomicReferenceFieldUpdater.newUpdater(CompletableResultImpl.class, Object.class, "upstream");
+    private static final AtomicReferenceFieldUpdater<CompletableResultImpl, CompletableFutureView> VIEW =
+            AtomicReferenceFieldUpdater.newUpdater(CompletableResultImpl.class, CompletableFutureView.class, "view");
+
+    private CompletableResultAccess() {
+    }
+
+    /**
+     * 读取结果，只需要看到完成时发布的结果(acquire)
+     */
+    static Object result(CompletableResultImpl<?> r) {
+        return r.result;
+    }
+
+    static boolean casResult(CompletableResultImpl<?> r, Object expect, Object update) {
+        return RESULT.compareAndSet(r, expect, update);
+    }
+
+    static boolean casHandlers(CompletableResultImpl<?> r, Object expect, Object update) {
+        return HANDLERS.compareAndSet(r, expect, update);
+    }
+
+    static Object getAndSetHandlers(CompletableResultImpl<?> r, Object value) {
+        return HANDLERS.getAndSet(r, value);
+    }
+
+    static Object getAndClearUpstream(CompletableResultImpl<?> r) {
+        return UPSTREAM.getAndSet(r, null);
+    }
+
+    /**
+     * 完成之后释放上游，只是为了让gc回收，不需要与其他读写排序(release)
+     */
+    static void releaseUpstream(CompletableResultImpl<?> r) {
+        r.upstream = null;
+    }
+
+    static boolean casView(CompletableResultImpl<?> r, CompletableFutureView<?> expect, CompletableFutureView<?> update) {
+        return VIEW.compareAndSet(r, expect, update);
+    }
+}
@@ -1,16 +1,16 @@
 package com.github.pandora.asyncResult;
 
 
+import com.github.pandora.utils.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 
 
@@ -30,112 +30,451 @@ public class CompletableResultImpl<T> implements CompletableResult<T>, Promise<T
 
     private static final Logger logger = LoggerFactory.getLogger(CompletableResultImpl.class);
 
-    private static final AtomicReferenceFieldUpdater<CompletableResultImpl, Object> RESULT_UPDATER =
-            AtomicReferenceFieldUpdater.newUpdater(CompletableResultImpl.class, Object.class, "result");
     private static final Object Success = new Object();  //设置结果为null
+    private static final Object Notified = new Object(); //handler已通知过，之后添加的handler立即执行
 
-    private volatile Object result;
+    /**
+     * null: 未完成
+     * Success: 成功，结果为null
+     * Throwable: 失败
+     * ThrowableValue: 成功，结果是Throwable
+     * 其他: 成功的结果
+     * <p>
+     * 状态字段都是包内可见的，原子操作由{@link CompletableResultAccess}完成
+     */
+    volatile Object result;
 
-    private Object handlers;
+    /**
+     * null: 没有handler
+     * HandlerNode: 通过CAS压入的handler栈，栈顶是最后添加的handler
+     * Notified: 已完成并且已取走所有handler
+     * Link: 已链接到另一个结果上(见{@link #linkTo(CompletableResultImpl)})，handler都转到root上
+     */
+    volatile Object handlers;
 
-    private static class CauseHolder {
-        public Throwable cause;
-        public CauseHolder(Throwable cause) {
-            this.cause = cause;
+    /**
+     * 派生出当前结果的上游，{@link #cancel()}时向上游传播取消。 完成之后不再引用
+     * {@link Future}, {@link CompletionStage}, {@link java.util.concurrent.Future}, or Object[](多个上游)
+     */
+    volatile Object upstream;
+
+    /**
+     * {@link #toCompletableFuture()}的视图，第一次调用时创建，被外部修改过之后替换成新的视图
+     */
+    volatile CompletableFutureView<T> view;
+
+    /**
+     * 失败时result直接保存Throwable，不再额外包一层。
+     * 只有成功的结果本身是Throwable时，才用这个包起来区分
+     */
+    private static final class ThrowableValue {
+        final Throwable value;
+
+        ThrowableValue(Throwable value) {
+            this.value = value;
         }
-        public static CauseHolder cause(Throwable cause) {
-            Objects.requireNonNull(cause, "cause");
-            return new CauseHolder(cause);
+    }
+
+    /**
+     * 当前结果已链接到root：添加handler、取消、读取结果都转到root上，完成时把结果转给root
+     */
+    private static final class Link {
+        final CompletableResultImpl root;
+
+        Link(CompletableResultImpl root) {
+            this.root = root;
+        }
+    }
+
+    /**
+     * handler栈的节点。 next只在压入之前设置，压入之后节点不再修改，并发的{@link #handlers()}可以直接遍历
+     */
+    private static final class HandlerNode {
+        final Object handler; //Handler or BiHandler
+        final Object ctx;     //BiHandler的上下文
+        HandlerNode next;
+
+        HandlerNode(Object handler, Object ctx) {
+            this.handler = handler;
+            this.ctx = ctx;
         }
     }
 
     @Override
     public Future<T> addHandler(Handler<AsyncResult<T>> handler) {
-        if (isCompleted()) {
-            handler.handle(this);
-            return this;
+        if (isCompleted() || !push(handler, null)) handler.handle(this);
+        return this;
+    }
+
+    /**
+     * 与{@link #addHandler(Handler)}相同，ctx和handler保存在同一个节点上，不需要额外分配lambda
+     */
+    @Override
+    public <C> Future<T> addHandler(BiHandler<AsyncResult<T>, C> handler, C ctx) {
+        ObjectUtils.requireNonNull(handler);
+        if (isCompleted() || !push(handler, ctx)) handler.handle(this, ctx);
+        return this;
+    }
+
+    /**
+     * 把handler压入handler栈。 已链接时压入root的栈
+     *
+     * @return false: 已通知过，调用方直接执行handler
+     */
+    private boolean push(Object handler, Object ctx) {
+        HandlerNode node = null;
+        for (; ; ) {
+            Object h = handlers;
+            if (h == Notified || h instanceof Link) {
+                //并发完成了，handler已被取走，直接执行
+                if (h == Notified) return false;
+                CompletableResultImpl<T> root = root();
+                return !root.isCompleted() && root.push(handler, ctx);
+            }
+            if (node == null) node = new HandlerNode(handler, ctx);
+            node.next = (HandlerNode) h;
+            if (CompletableResultAccess.casHandlers(this, h, node)) return true;
         }
-        synchronized (this) {
-            if (handlers == null) handlers = handler;
-            else if (handlers instanceof List) {
-                List<Handler<?>> lfs = (List<Handler<?>>) handlers;
-                lfs.add(handler);
-            } else {
-                List<Handler<?>> lfs = new ArrayList<>();
-                lfs.add((Handler<?>) handlers);
-                lfs.add(handler);
-                this.handlers = lfs;
+    }
+
+    /**
+     * 移除还未执行的handler，handler和ctx都按identity匹配。 给不再需要结果的一次性handler使用(见{@link Awaiter})，
+     * 长期未完成的结果上不会堆积已经没用的handler。
+     * <p>
+     * 不修改栈上已有的节点：复制被移除节点之上的节点，再CAS替换栈顶，与并发的push, {@link #handlers()}和通知互不影响
+     *
+     * @return true: 已移除。 false: 没有找到，或者已通知过
+     */
+    boolean removeHandler(Object handler, Object ctx) {
+        for (; ; ) {
+            Object h = handlers;
+            if (h instanceof Link) return root().removeHandler(handler, ctx);
+            if (!(h instanceof HandlerNode)) return false;
+            int above = 0;
+            HandlerNode target = (HandlerNode) h;
+            while (target != null && (target.handler != handler || target.ctx != ctx)) {
+                target = target.next;
+                above++;
+            }
+            if (target == null) return false;
+            HandlerNode[] prefix = new HandlerNode[above];
+            HandlerNode node = (HandlerNode) h;
+            for (int i = 0; i < above; i++, node = node.next) prefix[i] = node;
+            HandlerNode top = target.next;
+            for (int i = above - 1; i >= 0; i--) {
+                HandlerNode copy = new HandlerNode(prefix[i].handler, prefix[i].ctx);
+                copy.next = top;
+                top = copy;
             }
+            if (CompletableResultAccess.casHandlers(this, h, top)) return true;
         }
-        return this;
     }
 
-    public synchronized List<Handler<AsyncResult<T>>> handlers() {
-        Object handlers = this.handlers;
-        if (handlers == null) return Collections.emptyList();
-        else if (handlers instanceof List) {
-            List<Handler<AsyncResult<T>>> lfs = (List<Handler<AsyncResult<T>>>) handlers;
-            return Collections.unmodifiableList(lfs);
+    @SuppressWarnings("unchecked")
+    private static void invoke(Object handler, Object ctx, AsyncResult<?> ar) {
+        if (handler instanceof BiHandler) ((BiHandler<AsyncResult<?>, Object>) handler).handle(ar, ctx);
+        else ((Handler<AsyncResult<?>>) handler).handle(ar);
+    }
+
+    /**
+     * @return 当前还未执行的handler，按添加的顺序。 已通知过的handler不再持有
+     */
+    public List<Handler<AsyncResult<T>>> handlers() {
+        Object h = this.handlers;
+        if (h instanceof Link) return root().handlers();
+        if (!(h instanceof HandlerNode)) return Collections.emptyList();
+        List<Handler<AsyncResult<T>>> lfs = new ArrayList<>();
+        for (HandlerNode node : toArray((HandlerNode) h)) {
+            Object handler = node.handler, ctx = node.ctx;
+            lfs.add(handler instanceof BiHandler ? ar -> invoke(handler, ctx, ar) : (Handler<AsyncResult<T>>) handler);
         }
-        return Collections.singletonList((Handler<AsyncResult<T>>) handlers);
+        return Collections.unmodifiableList(lfs);
+    }
+
+    /**
+     * @param top 栈顶，null: 没有handler
+     * @return 按添加顺序排列的节点。 只复制到数组里，不修改节点，与并发遍历同一个栈的{@link #handlers()}互不影响
+     */
+    private static HandlerNode[] toArray(HandlerNode top) {
+        int n = 0;
+        for (HandlerNode node = top; node != null; node = node.next) n++;
+        HandlerNode[] nodes = new HandlerNode[n];
+        for (HandlerNode node = top; node != null; node = node.next) nodes[--n] = node;
+        return nodes;
     }
 
     /**
      * 执行通知handler
+     * <p>
+     * 一次性取走整个handler栈并置为{@link #Notified}，之后不再持有这些handler。
+     * 已链接到root时，handler已经转到root上，把结果转给root
      */
     protected void notifyHandlers() {
-        handlers().forEach(ls -> {
+        Object h = CompletableResultAccess.getAndSetHandlers(this, Notified);
+        if (h instanceof Link) {
+            ((CompletableResultImpl<T>) ((Link) h).root).root().complete0(result);
+            return;
+        }
+        if (!(h instanceof HandlerNode)) return;
+
+        HandlerNode top = (HandlerNode) h;
+        DispatchPolicy policy = dispatchPolicy();
+        if (policy == null) {
+            runHandlers(top);
+        } else {
+            policy.dispatch(() -> runHandlers(top));
+        }
+    }
+
+    /**
+     * 按添加顺序执行handler。 只有一个handler时直接执行，不需要复制
+     * <p>
+     * 成功完成并且有多个handler时，提交到同一个开启了合并提交的executor的{@link Continuation}合并提交，见{@link BatchDispatcher}
+     */
+    private void runHandlers(HandlerNode top) {
+        if (top.next == null) {
+            try {
+                invoke(top.handler, top.ctx, this);
+            } catch (Throwable e) {
+                logger.warn("execute handler#handle failed.", e);
+            }
+            return;
+        }
+        BatchDispatcher batch = null;
+        boolean batching = succeeded();
+        for (HandlerNode node : toArray(top)) {
+            Object handler = node.handler, ctx = node.ctx;
+            if (batching && BatchDispatcher.batchable(handler)) {
+                if (batch == null) batch = new BatchDispatcher();
+                batch.add((Continuation<T>) handler, this);
+                continue;
+            }
+            if (batch != null) batch.flush(); //执行用户代码之前先提交
             try {
-                ls.handle(this);
+                invoke(handler, ctx, this);
             } catch (Throwable e) {
                 logger.warn("execute handler#handle failed.", e);
             }
-        });
+        }
+        if (batch != null) batch.flush();
+    }
+
+    /**
+     * @return 完成时通知handler的策略，null: 在完成的线程上直接通知
+     */
+    DispatchPolicy dispatchPolicy() {
+        return null;
     }
 
     @Override
     public T result() {
-        return result == Success ? null : (T) result;
+        Object r = state();
+        if (r == Success || r instanceof Throwable) return null;
+        if (r instanceof ThrowableValue) return (T) ((ThrowableValue) r).value;
+        return (T) r;
     }
 
     @Override
     public Throwable cause() {
-        if (result instanceof CauseHolder) return ((CauseHolder) result).cause;
-        return null;
+        Object r = state();
+        return r instanceof Throwable ? (Throwable) r : null;
     }
 
     @Override
     public boolean succeeded() {
-        return result != null && !(result instanceof CauseHolder);
+        Object r = state();
+        return r != null && !(r instanceof Throwable);
     }
 
     @Override
     public boolean failed() {
-        return result != null && result instanceof CauseHolder;
+        return state() instanceof Throwable;
     }
 
     @Override
     public boolean trySuccess(T result) {
-        Object r = result == null ? Success : result;
-        if (RESULT_UPDATER.compareAndSet(this, null, r)) {
-            notifyHandlers();
-            return true;
-        }
-        return false;
+        Object r = result == null ? Success : result instanceof Throwable ? new ThrowableValue((Throwable) result) : result;
+        return complete0(r);
     }
 
     @Override
     public boolean tryFailure(Throwable cause) {
         Throwable err = cause == null ? new NullPointerException("cause is null") : cause;
-        if (RESULT_UPDATER.compareAndSet(this, null, CauseHolder.cause(err))) {
+        return complete0(err);
+    }
+
+    /**
+     * @param r 已编码的结果，见{@link #result}
+     */
+    private boolean complete0(Object r) {
+        if (CompletableResultAccess.casResult(this, null, r)) {
+            if (upstream != null) CompletableResultAccess.releaseUpstream(this);
             notifyHandlers();
             return true;
         }
         return false;
     }
 
+    /**
+     * 已编码的结果。 当前结果还未完成但已链接到root时，读root的结果
+     */
+    private Object state() {
+        Object r = CompletableResultAccess.result(this);
+        if (r == null && handlers instanceof Link) r = root().result;
+        return r;
+    }
+
+    /**
+     * 沿着{@link Link}找到最终的root，顺便把当前结果的Link直接指向root(路径压缩)
+     *
+     * @return root，没有链接时是this
+     */
+    private CompletableResultImpl<T> root() {
+        Object h = handlers;
+        if (!(h instanceof Link)) return this;
+        Link link = (Link) h;
+        CompletableResultImpl<T> root = link.root;
+        Object next;
+        while ((next = root.handlers) instanceof Link) root = ((Link) next).root;
+        if (root != link.root) CompletableResultAccess.casHandlers(this, link, new Link(root));
+        return root;
+    }
+
+    /**
+     * 把当前结果链接到target上，由flatMap, thenCompose对fn返回的内层结果调用。
+     * <p>
+     * 当前结果的handler转到target的root上，之后添加handler、取消、读取结果都转到root上，当前结果完成时把结果转给root。
+     * 递归的flatMap(例如 loop() = fetch().flatMap(x -> done(x) ? succeeded(x) : loop()))每一层返回的结果都链接到
+     * 最外层的结果上，不会一层一层地转发，占用的内存不随递归的次数增长。
+     *
+     * 只链接{@link ComposedResult}(flatMap, thenCompose创建的外层结果)：用户自己的{@link Promise}可能还被别处持有、
+     * 被多个调用方flatMap，链接之后它的handler、结果、取消都会转到某一个调用方的root上。
+     * root带有{@link DispatchPolicy}时也不链接，否则handler转到root上之后不再按policy通知
+     *
+     * @param target 外层的结果，只会由当前结果完成(或者被取消)
+     * @return false: 当前结果不是{@link ComposedResult}、已完成或者已链接到别处，调用方改为添加handler转发
+     */
+    final boolean linkTo(CompletableResultImpl<T> target) {
+        if (!(this instanceof ComposedResult)) return false;
+        CompletableResultImpl<T> root = target.root();
+        if (root == this) return true;
+        if (root.dispatchPolicy() != null) return false;
+        Link link = null;
+        for (; ; ) {
+            Object h = handlers;
+            if (h == Notified || h instanceof Link) return false;
+            if (link == null) link = new Link(root);
+            if (CompletableResultAccess.casHandlers(this, h, link)) {
+                //当前结果的handler按添加顺序转到root上。 当前结果并发完成时，notifyHandlers会取到Link，把结果转给root
+                for (HandlerNode node : toArray((HandlerNode) h)) {
+                    if (root.isCompleted() || !root.push(node.handler, node.ctx)) invoke(node.handler, node.ctx, root);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 以{@link CancellationException}结束，并向上游传播取消。
+     * <p>
+     * 沿着派生关系(map, flatMap, thenCompose, thenCombine等)往上取消pandora创建的中间结果({@link Stage})，
+     * 一个中间结果只在派生自它的最后一个下游被取消时才取消，同一个上游的其他下游不受影响。
+     * {@link Async#async(java.util.concurrent.Callable)}的结果被取消时中断body所在的线程。
+     * <p>
+     * 传播到用户自己的{@link Promise}，或者外部的{@link CompletionStage}、{@link java.util.concurrent.Future}时停止，
+     * 这些对象可能还被别处持有，只能由持有者自己取消
+     */
+    @Override
+    public boolean cancel() {
+        if (result == null && handlers instanceof Link) return root().cancel();
+        CancellationException e = Failures.cancellation();
+        if (!cancel0(e)) return false;
+        cancelUpstream(CompletableResultAccess.getAndClearUpstream(this), e);
+        return true;
+    }
+
+    private boolean cancel0(CancellationException e) {
+        if (!CompletableResultAccess.casResult(this, null, e)) return false;
+        notifyHandlers();
+        onCancelled();
+        return true;
+    }
+
+    /**
+     * 取消成功之后的回调，释放持有的资源
+     */
+    void onCancelled() {
+    }
+
+    /**
+     * 记下派生出当前结果的上游，上游是{@link Stage}时计入它的下游个数。 已被取消时，立即向该上游传播取消
+     *
+     * @param upstream {@link Future}, {@link CompletionStage}, or Object[]
+     * @return this
+     */
+    final CompletableResultImpl<T> dependOn(Object upstream) {
+        if (result == null && handlers instanceof Link) {  //取消root时才需要取消该上游，不再经过当前结果
+            root().dependOn(upstream);
+            return this;
+        }
+        retain(upstream);
+        this.upstream = upstream;
+        if (result != null) {  //与complete0的CAS构成store-load，需要volatile读，不能用acquire
+            Object u = CompletableResultAccess.getAndClearUpstream(this);
+            Object r = result;
+            if (u != null && r instanceof CancellationException) cancelUpstream(u, (CancellationException) r);
+        }
+        return this;
+    }
+
+    static void retain(Object u) {
+        if (u instanceof Stage) {
+            ((Stage<?>) u).retain();
+        } else if (u instanceof AbstractPrimitivePromise) {
+            ((AbstractPrimitivePromise) u).retain();
+        } else if (u instanceof Object[]) {
+            for (Object o : (Object[]) u) retain(o);
+        }
+    }
+
+    /**
+     * 单个上游的链循环处理，不随着链的长度递归。 只取消最后一个下游也被取消了的{@link Stage}(包括原始类型的操作符)
+     */
+    static void cancelUpstream(Object u, CancellationException e) {
+        while (u != null) {
+            if (u instanceof Stage) {
+                CompletableResultImpl<?> stage = (CompletableResultImpl<?>) u;
+                if (!((Stage<?>) u).release() || !stage.cancel0(e)) return;
+                u = CompletableResultAccess.getAndClearUpstream(stage);
+            } else if (u instanceof AbstractPrimitivePromise) {  //IntFuture等原始类型的操作符
+                AbstractPrimitivePromise stage = (AbstractPrimitivePromise) u;
+                if (!stage.release() || !stage.cancel0(e)) return;
+                u = stage.getAndClearUpstream();
+            } else if (u instanceof Object[]) {
+                for (Object o : (Object[]) u) cancelUpstream(o, e);
+                return;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 重复调用返回同一个视图。 视图被外部complete, obtrude, cancel过之后不再复用，
+     * 之后的调用创建新的视图，不会看到其他调用方对视图的修改
+     */
+    @Override
+    public CompletableFuture<T> toCompletableFuture() {
+        for (; ; ) {
+            CompletableFutureView<T> v = view;
+            if (v != null && v.attached()) return v;
+            CompletableFutureView<T> created = new CompletableFutureView<>(this);
+            if (CompletableResultAccess.casView(this, v, created)) return created.subscribe();
+        }
+    }
+
     @Override
     public boolean isCompleted() {
-        return result != null;
+        return state() != null;
     }
 }
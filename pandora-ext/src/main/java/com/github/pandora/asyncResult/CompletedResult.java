@@ -0,0 +1,40 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.listenable.executor.RunNowExecutor;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * 已完成的、不可变的{@link CompletableResult}的骨架。
+ * <p>
+ * 结果在创建时就已确定，不需要volatile的状态，也不需要保存handler：{@link #addHandler(Handler)}直接执行handler。
+ *
+ * @see SucceededResult
+ * @see FailedResult
+ */
+abstract class CompletedResult<T> implements CompletableResult<T> {
+
+    @Override
+    public boolean isCompleted() {
+        return true;
+    }
+
+    @Override
+    public Future<T> addHandler(Handler<AsyncResult<T>> handler) {
+        Objects.requireNonNull(handler);
+        handler.handle(this);
+        return this;
+    }
+
+    @Override
+    public <C> Future<T> addHandler(BiHandler<AsyncResult<T>, C> handler, C ctx) {
+        Objects.requireNonNull(handler);
+        handler.handle(this, ctx);
+        return this;
+    }
+
+    static boolean isRunNow(Executor executor) {
+        return executor instanceof RunNowExecutor;
+    }
+}
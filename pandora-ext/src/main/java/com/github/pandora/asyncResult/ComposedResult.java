@@ -0,0 +1,46 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * {@link Future#flatMap(java.util.function.Function, java.util.concurrent.Executor)}，
+ * {@link CompletableResult#thenComposeAsync(java.util.function.Function, java.util.concurrent.Executor)}创建的外层结果。
+ * <p>
+ * 只有这类结果会被{@link CompletableResultImpl#linkTo(CompletableResultImpl)}链接：由pandora创建，只由内层的结果完成。
+ * 用户自己创建、还持有着的{@link Promise}不会被链接，不会与某一个调用方的链共享状态
+ */
+final class ComposedResult<T> extends Stage<T> {
+
+    /**
+     * 由inner完成的外层结果，给上游已完成、同步执行的flatMap, thenCompose使用。
+     * <p>
+     * 不直接返回inner：inner可能是用户自己的{@link Promise}，取消返回的结果时不能取消它
+     *
+     * @param inner fn返回的内层结果
+     * @return 已完成时是不可变的结果，否则是由inner完成的{@link ComposedResult}
+     */
+    @SuppressWarnings("unchecked")
+    static <T> CompletableResult<T> of(Future<? extends T> inner) {
+        if (inner instanceof CompletedResult) return (CompletableResult<T>) inner;
+        if (inner.isCompleted()) return inner.succeeded() ? SucceededResult.of(inner.result()) : new FailedResult<>(inner.cause());
+        ComposedResult<T> outer = new ComposedResult<>();
+        outer.completeWith(inner);
+        return outer;
+    }
+
+    /**
+     * 以内层的结果完成当前结果。 内层可以链接时链接到当前结果上(见{@link #linkTo(CompletableResultImpl)})，否则添加转发的handler
+     *
+     * @param inner fn返回的内层结果，之后取消当前结果时取消的是内层的结果
+     */
+    @SuppressWarnings("unchecked")
+    void completeWith(Future<? extends T> inner) {
+        dependOn(inner);
+        if (inner instanceof CompletableResultImpl && ((CompletableResultImpl<T>) inner).linkTo(this)) return;
+        ((Future<T>) inner).addHandler((ar, then) -> {
+            if (ar.succeeded()) {
+                then.trySuccess(ar.result());
+            } else {
+                then.tryFailure(ar.cause());
+            }
+        }, this);
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.pandora.asyncResult;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 多个异步结果的失败汇总，见{@link Async#join(Collection),Async#any(Collection)}
+ * <p>
+ * {@link #getCause()}是第一个失败，{@link #causes()}按输入的顺序包含所有失败
+ */
+public class CompositeException extends RuntimeException {
+
+    private final List<Throwable> causes;
+
+    public CompositeException(List<Throwable> causes) {
+        super(causes.size() + " failure(s)", causes.isEmpty() ? null : causes.get(0), true, !Failures.STACKLESS);
+        this.causes = Collections.unmodifiableList(causes);
+    }
+
+    /**
+     * @return 所有的失败，按输入的顺序
+     */
+    public List<Throwable> causes() {
+        return causes;
+    }
+}
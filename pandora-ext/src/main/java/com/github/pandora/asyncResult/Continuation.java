@@ -0,0 +1,77 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 切换executor的操作符(map(fn, executor), flatMap, thenComposeAsync, handleAsync)添加在上游的handler。
+ * <p>
+ * 上游完成时记下结果，把自己作为task提交到executor，在executor上执行{@link #apply(AsyncResult)}。
+ * executor开启了合并提交时，同一次完成通知多个handler，{@link CompletableResultImpl}识别出这类handler，按executor合并提交，见{@link BatchDispatcher}
+ */
+abstract class Continuation<T> implements Handler<AsyncResult<T>>, Runnable {
+
+    final Executor executor;
+
+    final CompletableResultImpl<?> next;
+
+    /**
+     * 上游的结果，通过executor的提交对执行线程可见
+     */
+    private AsyncResult<T> upstream;
+
+    Continuation(Executor executor, CompletableResultImpl<?> next) {
+        this.executor = executor;
+        this.next = next;
+    }
+
+    /**
+     * 在executor上执行，异常时以该异常完成next
+     *
+     * @param upstream 上游的结果
+     */
+    abstract void apply(AsyncResult<T> upstream) throws Throwable;
+
+    /**
+     * @return true: 上游失败时也在executor上执行{@link #apply(AsyncResult)}，否则直接以上游的异常完成next
+     */
+    boolean acceptFailure() {
+        return false;
+    }
+
+    @Override
+    public final void handle(AsyncResult<T> ar) {
+        if (ar.failed() && !acceptFailure()) {
+            next.tryFailure(ar.cause());
+            return;
+        }
+        upstream = ar;
+        submit();
+    }
+
+    /**
+     * 由合并提交调用，只记下结果，稍后提交
+     */
+    final void prepare(AsyncResult<T> ar) {
+        upstream = ar;
+    }
+
+    final void submit() {
+        try {
+            executor.execute(this);
+        } catch (Throwable e) {
+            next.tryFailure(e);
+        }
+    }
+
+    @Override
+    public final void run() {
+        AsyncResult<T> ar = upstream;
+        upstream = null;
+        if (next.isCompleted()) return; //已取消
+        try {
+            apply(ar);
+        } catch (Throwable e) {
+            next.tryFailure(e);
+        }
+    }
+}
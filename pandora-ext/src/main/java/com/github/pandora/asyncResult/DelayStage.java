@@ -0,0 +1,42 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.timer.HashedWheelTimer;
+import com.github.pandora.timer.Timeout;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Async#delay(java.time.Duration)}的实现
+ * <p>
+ * 在{@link HashedWheelTimer#shared()}上占一个位置，到期时以null成功。
+ * 到期之前被取消时，立即取消timer上的timeout，释放占用的位置。
+ */
+final class DelayStage extends Stage<Void> implements Runnable {
+
+    /**
+     * 创建之后才设置，由取消它的线程读取
+     */
+    private volatile Timeout timeout;
+
+    private DelayStage() {
+    }
+
+    static Future<Void> delay(long delayNanos) {
+        DelayStage stage = new DelayStage();
+        stage.timeout = HashedWheelTimer.shared().newTimeout(stage, delayNanos, TimeUnit.NANOSECONDS);
+        return stage;
+    }
+
+    @Override
+    void onCancelled() {
+        timeout.cancel();
+    }
+
+    /**
+     * 到期
+     */
+    @Override
+    public void run() {
+        trySuccess(null);
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.pandora.asyncResult;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * 结果完成时，在哪里执行添加在结果上的handler。
+ * <p>
+ * 默认在完成结果的线程上直接执行所有handler。 完成结果的线程是I/O线程(例如netty的event loop)时，
+ * 耗时的handler会拖慢这个线程，可通过{@link Promise#promise(DispatchPolicy)}给promise指定策略，把handler转到executor上执行。
+ * <p>
+ * note: 策略只作用于完成时已添加的handler。 完成之后再添加的handler，仍然在添加的线程上直接执行
+ */
+public abstract class DispatchPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchPolicy.class);
+
+    /**
+     * 执行一次通知
+     *
+     * @param notification 按添加顺序执行完成时已添加的所有handler，handler的异常已处理
+     */
+    public abstract void dispatch(Runnable notification);
+
+    /**
+     * @return 在完成结果的线程上直接执行，与不指定策略一样
+     */
+    public static DispatchPolicy inline() {
+        return Inline.INSTANCE;
+    }
+
+    /**
+     * @param executor 执行handler的executor
+     * @return 总是提交到executor上执行
+     */
+    public static DispatchPolicy executor(Executor executor) {
+        return new OnExecutor(executor);
+    }
+
+    /**
+     * 先在完成结果的线程上直接执行，同一个线程上嵌套的通知超过maxDepth层，或者从最外层的通知开始已经执行超过budget时，
+     * 之后的通知提交到executor上执行
+     *
+     * @param maxDepth 可直接执行的最大嵌套层数，>= 1
+     * @param budget   最外层的通知开始之后，可直接执行的时间
+     * @param executor 超出预算之后执行handler的executor
+     * @return 有预算的直接执行
+     */
+    public static DispatchPolicy boundedInline(int maxDepth, Duration budget, Executor executor) {
+        return new BoundedInline(maxDepth, budget, executor);
+    }
+
+    /**
+     * 统计每次通知的耗时(指数加权平均)，平均耗时不超过threshold时直接执行，超过时提交到executor上执行。
+     * 提交到executor上的通知也会统计，handler变快之后会回到直接执行
+     *
+     * @param threshold 可直接执行的平均耗时
+     * @param executor  执行耗时的handler的executor
+     * @return 自适应的策略
+     */
+    public static DispatchPolicy adaptive(Duration threshold, Executor executor) {
+        return new Adaptive(threshold, executor);
+    }
+
+    /**
+     * 提交到executor上执行，executor拒绝时在当前线程上直接执行，不丢失handler
+     */
+    static void offload(Executor executor, Runnable notification) {
+        try {
+            executor.execute(notification);
+        } catch (Throwable e) {
+            logger.warn("dispatch handlers to executor failed, run on current thread.", e);
+            notification.run();
+        }
+    }
+
+    private static final class Inline extends DispatchPolicy {
+
+        static final Inline INSTANCE = new Inline();
+
+        @Override
+        public void dispatch(Runnable notification) {
+            notification.run();
+        }
+    }
+
+    private static final class OnExecutor extends DispatchPolicy {
+
+        private final Executor executor;
+
+        OnExecutor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+        }
+
+        @Override
+        public void dispatch(Runnable notification) {
+            offload(executor, notification);
+        }
+    }
+
+    private static final class BoundedInline extends DispatchPolicy {
+
+        private final int maxDepth;
+        private final long budgetNanos;
+        private final Executor executor;
+        private final ThreadLocal<Budget> budgets = ThreadLocal.withInitial(Budget::new);
+
+        BoundedInline(int maxDepth, Duration budget, Executor executor) {
+            if (maxDepth < 1) throw new IllegalArgumentException("maxDepth must be >= 1");
+            this.maxDepth = maxDepth;
+            this.budgetNanos = Objects.requireNonNull(budget, "budget").toNanos();
+            this.executor = Objects.requireNonNull(executor, "executor");
+        }
+
+        @Override
+        public void dispatch(Runnable notification) {
+            Budget b = budgets.get();
+            if (b.depth == 0) {
+                b.start = System.nanoTime();
+            } else if (b.depth >= maxDepth || System.nanoTime() - b.start > budgetNanos) {
+                offload(executor, notification);
+                return;
+            }
+            b.depth++;
+            try {
+                notification.run();
+            } finally {
+                b.depth--;
+            }
+        }
+
+        private static final class Budget {
+            int depth;
+            long start;
+        }
+    }
+
+    private static final class Adaptive extends DispatchPolicy {
+
+        private final long thresholdNanos;
+        private final Executor executor;
+
+        /**
+         * 通知耗时的指数加权平均，并发更新时丢掉一些样本也无所谓
+         */
+        private volatile long avgNanos;
+
+        Adaptive(Duration threshold, Executor executor) {
+            this.thresholdNanos = Objects.requireNonNull(threshold, "threshold").toNanos();
+            this.executor = Objects.requireNonNull(executor, "executor");
+        }
+
+        @Override
+        public void dispatch(Runnable notification) {
+            if (avgNanos <= thresholdNanos) {
+                measure(notification);
+            } else {
+                offload(executor, () -> measure(notification));
+            }
+        }
+
+        private void measure(Runnable notification) {
+            long start = System.nanoTime();
+            try {
+                notification.run();
+            } finally {
+                long cost = System.nanoTime() - start;
+                long avg = avgNanos;
+                avgNanos = avg + ((cost - avg) >> 3); //alpha = 1/8
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.pandora.asyncResult;
+
+import java.util.Objects;
+
+/**
+ * 按{@link DispatchPolicy}通知handler的{@link CompletableResultImpl}，见{@link Promise#promise(DispatchPolicy)}
+ */
+final class DispatchingResult<T> extends CompletableResultImpl<T> {
+
+    private final DispatchPolicy policy;
+
+    DispatchingResult(DispatchPolicy policy) {
+        this.policy = Objects.requireNonNull(policy, "policy");
+    }
+
+    @Override
+    DispatchPolicy dispatchPolicy() {
+        return policy;
+    }
+}
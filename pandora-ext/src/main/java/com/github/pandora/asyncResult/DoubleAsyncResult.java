@@ -0,0 +1,24 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * double的{@link AsyncResult}，结果直接以double保存，不装箱。
+ * <p>
+ * 使用{@link #resultAsDouble(),#cause()}之前必须调用{@link #succeeded(),#failed()}判断结果状态
+ */
+public interface DoubleAsyncResult {
+
+    /**
+     * @return 正常结果。 异常结果时返回0D
+     */
+    double resultAsDouble();
+
+    /**
+     * @return 异常结果。 正常结果时返回null
+     */
+    Throwable cause();
+
+    boolean succeeded();
+
+    boolean failed();
+
+}
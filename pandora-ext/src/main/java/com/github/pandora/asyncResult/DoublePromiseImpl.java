@@ -0,0 +1,111 @@
+package com.github.pandora.asyncResult;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * {@link DoublePromise}的标准实现，结果以double字段保存
+ */
+class DoublePromiseImpl extends AbstractPrimitivePromise implements DoublePromise {
+
+    private double result;
+
+    DoublePromiseImpl() {
+    }
+
+    /**
+     * 已正常完成
+     */
+    DoublePromiseImpl(double result) {
+        this.result = result;
+        completed();
+    }
+
+    @Override
+    public double resultAsDouble() {
+        return succeeded() ? result : 0D;
+    }
+
+    @Override
+    public boolean trySuccess(double result) {
+        if (!startCompleting()) return false;
+        this.result = result;
+        completeSucceeded();
+        return true;
+    }
+
+    @Override
+    public DoubleFuture addHandler(Handler<DoubleAsyncResult> handler) {
+        Objects.requireNonNull(handler);
+        addHandler0(handler);
+        return this;
+    }
+
+    @Override
+    public <C> DoubleFuture addHandler(BiHandler<DoubleAsyncResult, C> handler, C ctx) {
+        Objects.requireNonNull(handler);
+        addHandler0(handler, ctx);
+        return this;
+    }
+
+    /**
+     * 操作符({@link DoubleFuture#map}等)创建的结果，转换函数保存在stage上，操作符的handler不捕获变量。
+     * 依赖派生出它的上游，取消时向上游传播
+     *
+     * @param <F> 转换函数的类型
+     */
+    static final class MapStage<F> extends DoublePromiseImpl {
+
+        final F fn;
+
+        MapStage(F fn) {
+            this.fn = fn;
+        }
+
+        @Override
+        boolean isStage() {
+            return true;
+        }
+    }
+
+    /**
+     * {@link DoubleFuture#reduce(double, DoubleBinaryOperator, DoubleFuture...)}的聚合对象。
+     * 作为所有输入的handler，所有输入都正常完成时按顺序合并结果。
+     */
+    static final class Reduce extends DoublePromiseImpl implements Handler<DoubleAsyncResult> {
+
+        private static final AtomicIntegerFieldUpdater<Reduce> REMAINING_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Reduce.class, "remaining");
+
+        private final double identity;
+        private final DoubleBinaryOperator op;
+        private final DoubleFuture[] futures;
+        private volatile int remaining;
+
+        Reduce(double identity, DoubleBinaryOperator op, DoubleFuture[] futures) {
+            this.identity = identity;
+            this.op = op;
+            this.futures = futures;
+            this.remaining = futures.length;
+        }
+
+        @Override
+        public void handle(DoubleAsyncResult ar) {
+            if (ar.failed()) {
+                tryFailure(ar.cause());
+                return;
+            }
+            if (REMAINING_UPDATER.decrementAndGet(this) != 0) return;
+            try {
+                double acc = identity;
+                for (DoubleFuture future : futures) {
+                    acc = op.applyAsDouble(acc, future.resultAsDouble());
+                }
+                trySuccess(acc);
+            } catch (Throwable e) {
+                tryFailure(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.pandora.asyncResult;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 已异常完成的、不可变的{@link CompletableResult}
+ * <p>
+ * 只在正常结果时执行的操作符(map, flatMap, thenCompose...)直接返回自身，异常沿着操作符流通，
+ * 同步执行的{@link #otherwise(Function)}, {@link #handle(BiFunction)}直接在当前线程上计算。
+ */
+final class FailedResult<T> extends CompletedResult<T> {
+
+    private final Throwable cause;
+
+    FailedResult(Throwable cause) {
+        this.cause = cause == null ? new NullPointerException("cause is null") : cause;
+    }
+
+    @Override
+    public T result() {
+        return null;
+    }
+
+    @Override
+    public Throwable cause() {
+        return cause;
+    }
+
+    @Override
+    public boolean succeeded() {
+        return false;
+    }
+
+    @Override
+    public boolean failed() {
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> FailedResult<R> cast() {
+        return (FailedResult<R>) this;
+    }
+
+    @Override
+    public <R> Future<R> map(Function<? super T, ? extends R> fn, Executor executor) {
+        Objects.requireNonNull(fn);
+        Objects.requireNonNull(executor);
+        return cast();
+    }
+
+    @Override
+    public <R> CompletableResult<R> flatMap(Function<? super T, ? extends Asyncable<? extends R>> fn, Executor executor) {
+        Objects.requireNonNull(fn);
+        Objects.requireNonNull(executor);
+        return cast();
+    }
+
+    @Override
+    public <U> CompletableResult<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn, Executor executor) {
+        Objects.requireNonNull(fn);
+        Objects.requireNonNull(executor);
+        return cast();
+    }
+
+    @Override
+    public CompletableResult<T> otherwise(Function<? super Throwable, ? extends T> fn) {
+        Objects.requireNonNull(fn);
+        try {
+            return SucceededResult.of(fn.apply(cause));
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    @Override
+    public <U> CompletableResult<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        Objects.requireNonNull(fn);
+        Objects.requireNonNull(executor);
+        if (!isRunNow(executor)) return super.handleAsync(fn, executor);
+        try {
+            return SucceededResult.of(fn.apply(null, cause));
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<T> toCompletableFuture() {
+        CompletableFuture<T> fut = new CompletableFuture<>();
+        fut.completeExceptionally(cause);
+        return fut;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * pandora内部产生的失败(取消、拒绝执行、重复设置结果、超时)统一从这里创建。
+ * <p>
+ * 默认与之前一样，创建普通的、带调用栈的异常。
+ * -Denable.pandora.stacklessFailure=true 时，创建对应的Stackless异常，类型不变(仍然是{@link CancellationException}等)，
+ * 只是不再调用{@link Throwable#fillInStackTrace()}。失败风暴时，收集调用栈往往是CPU的大头。
+ * <p>
+ * 用户自己的失败不受影响，需要时可直接使用{@link StacklessException}等。
+ */
+public final class Failures {
+
+    /**
+     * 是否开启stackless
+     */
+    public static final boolean STACKLESS = Boolean.getBoolean("enable.pandora.stacklessFailure");
+
+    private Failures() {
+    }
+
+    /**
+     * @return future被取消
+     */
+    public static CancellationException cancellation() {
+        return STACKLESS ? new StacklessCancellationException() : new CancellationException();
+    }
+
+    /**
+     * @return promise的结果已经设置过
+     */
+    public static IllegalStateException alreadySet() {
+        return STACKLESS ? new StacklessIllegalStateException("result was already set") :
+                new IllegalStateException("result was already set");
+    }
+
+    /**
+     * @param message 拒绝的原因
+     * @return 任务被拒绝执行
+     */
+    public static RejectedExecutionException rejected(String message) {
+        return STACKLESS ? new StacklessRejectedExecutionException(message) : new RejectedExecutionException(message);
+    }
+
+    /**
+     * @param message 超时的描述
+     * @return 超时
+     */
+    public static TimeoutException timeout(String message) {
+        return STACKLESS ? new StacklessTimeoutException(message) : new TimeoutException(message);
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.listenable.executor.RunNowExecutor;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 同步执行(即{@link com.github.pandora.listenable.executor.RunNowExecutor})的操作符融合成的stage。
+ * <p>
+ * 例如: fut.map(a).map(b).otherwise(c).map(d)
+ * 只有链头的stage在fut上占一个handler，之后的stage不再通过{@link #addHandler(Handler)}挂在上一个stage上，
+ * 而是直接链在上一个stage的{@link #next}上。 上游完成时，在一个循环里依次计算并完成链上的每个stage，
+ * 不需要每个stage都分配注册handler的lambda和执行的lambda，也不会随着链的长度递归。
+ * <p>
+ * 每个stage仍然是一个完整的{@link CompletableResultImpl}，可以单独添加handler、查看结果。
+ * 一个stage只能有一个融合的下游，再次在该stage上添加同步操作符时，退化成普通的{@link #addHandler(Handler)}，
+ * 由handler经过{@link RunNowExecutor}执行，一长串退化的stage调用栈的深度也是有上限的。
+ * <p>
+ * 切换executor的操作符以及flatMap不参与融合，会打断融合链。
+ * <p>
+ * 上游在添加操作符时已经完成(例如命中缓存)，直接在当前线程上计算，返回不可变的已完成结果，
+ * 不再创建stage、注册handler，也没有volatile写。
+ */
+abstract class FusedStage<R> extends Stage<R> implements Runnable {
+
+    private static final AtomicReferenceFieldUpdater<FusedStage, Object> NEXT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(FusedStage.class, Object.class, "next");
+    private static final Object Terminated = new Object(); //已执行完，不能再链接下游
+
+    /**
+     * null: 还没有下游
+     * FusedStage: 融合的下游stage
+     * Terminated: 当前stage已完成(或被取消)并且已取走下游，之后的下游只能通过addHandler
+     */
+    private volatile Object next;
+
+    /**
+     * 退化成handler时上游的结果，只在执行handler的线程上写入，由{@link #run()}取走
+     */
+    private AsyncResult<?> fallback;
+
+    static <T, R> CompletableResult<R> map(Future<T> source, Function<? super T, ? extends R> fn) {
+        if (!source.isCompleted()) return link(source, new MapStage<>(fn));
+        if (source.failed()) return new FailedResult<>(source.cause());
+        try {
+            return SucceededResult.of(fn.apply(source.result()));
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    static <T> CompletableResult<T> otherwise(Future<T> source, Function<? super Throwable, ? extends T> fn) {
+        if (!source.isCompleted()) return link(source, new OtherwiseStage<>(fn));
+        if (source.succeeded()) return SucceededResult.of(source.result());
+        try {
+            return SucceededResult.of(fn.apply(source.cause()));
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    static <T, R> CompletableResult<R> handle(Future<T> source, BiFunction<? super T, Throwable, ? extends R> fn) {
+        if (!source.isCompleted()) return link(source, new HandleStage<>(fn));
+        try {
+            return SucceededResult.of(fn.apply(source.result(), source.cause()));
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> FusedStage<R> link(Future<?> source, FusedStage<R> stage) {
+        stage.dependOn(source);
+        if (source instanceof FusedStage && NEXT_UPDATER.compareAndSet((FusedStage<?>) source, null, stage)) {
+            return stage;
+        }
+        ((Future<Object>) source).addHandler((ar, self) -> self.schedule(ar), stage);
+        return stage;
+    }
+
+    /**
+     * 不能融合时由上游的handler调用，与其他同步操作符一样经过{@link RunNowExecutor}执行
+     */
+    private void schedule(AsyncResult<?> upstream) {
+        fallback = upstream;
+        RunNowExecutor.Executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+        AsyncResult<?> upstream = fallback;
+        fallback = null;
+        run(upstream);
+    }
+
+    /**
+     * 以上游的结果计算并完成当前stage
+     *
+     * @param upstream 上游的结果
+     */
+    abstract void complete(AsyncResult<?> upstream);
+
+    /**
+     * 从当前stage开始，依次完成融合链上的stage
+     */
+    private void run(AsyncResult<?> upstream) {
+        FusedStage<?> stage = this;
+        AsyncResult<?> ar = upstream;
+        do {
+            stage.complete(ar);
+            ar = stage;
+            stage = stage.claimNext();
+        } while (stage != null);
+    }
+
+    /**
+     * 取走融合的下游。 上游完成和当前stage被取消可能并发，只有一方能取到，下游只会被执行一次
+     *
+     * @return null: 没有下游或者已被取走
+     */
+    private FusedStage<?> claimNext() {
+        Object n = NEXT_UPDATER.getAndSet(this, Terminated);
+        return n instanceof FusedStage ? (FusedStage<?>) n : null;
+    }
+
+    /**
+     * 被取消时，融合的下游不会再由上游的完成驱动，以当前的取消结果完成融合链上的下游
+     */
+    @Override
+    void onCancelled() {
+        FusedStage<?> n = claimNext();
+        if (n != null) n.run(this);
+    }
+
+    private static final class MapStage<T, R> extends FusedStage<R> {
+
+        private final Function<? super T, ? extends R> fn;
+
+        MapStage(Function<? super T, ? extends R> fn) {
+            this.fn = fn;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void complete(AsyncResult<?> upstream) {
+            if (upstream.succeeded()) {
+                try {
+                    trySuccess(fn.apply((T) upstream.result()));
+                } catch (Throwable e) {
+                    tryFailure(e);
+                }
+            } else {
+                tryFailure(upstream.cause());
+            }
+        }
+    }
+
+    private static final class OtherwiseStage<T> extends FusedStage<T> {
+
+        private final Function<? super Throwable, ? extends T> fn;
+
+        OtherwiseStage(Function<? super Throwable, ? extends T> fn) {
+            this.fn = fn;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void complete(AsyncResult<?> upstream) {
+            if (upstream.succeeded()) {
+                trySuccess((T) upstream.result());
+            } else {
+                try {
+                    trySuccess(fn.apply(upstream.cause()));
+                } catch (Throwable e) {
+                    tryFailure(e);
+                }
+            }
+        }
+    }
+
+    private static final class HandleStage<T, R> extends FusedStage<R> {
+
+        private final BiFunction<? super T, Throwable, ? extends R> fn;
+
+        HandleStage(BiFunction<? super T, Throwable, ? extends R> fn) {
+            this.fn = fn;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void complete(AsyncResult<?> upstream) {
+            try {
+                trySuccess(fn.apply((T) upstream.result(), upstream.cause()));
+            } catch (Throwable e) {
+                tryFailure(e);
+            }
+        }
+    }
+}
@@ -3,10 +3,14 @@ package com.github.pandora.asyncResult;
 
 import com.github.pandora.listenable.executor.RunNowExecutor;
 
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executor;
-import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * 代表异步结果。当前future所有操作，都不会产生阻塞。
@@ -17,6 +21,8 @@ import java.util.function.Function;
  * 4. 以上所有的参考都已经用try catch包住了，操作符处理，操作符与操作符之间可以不处理异常，通过在{@link #addHandler(Handler)}统一
  *    处理异常。
  * 5. {@link #addHandler(Handler)}对异步结果处理。相当于reactive#subscribe操作符
+ * 6. 同步执行的{@link #map(Function),#otherwise(Function)}等操作符连续使用时，融合成一条链，只在上游占一个handler。见{@link FusedStage}
+ * 7. {@link #timeout(Duration)}超时，基于共享的时间轮{@link com.github.pandora.timer.HashedWheelTimer#shared()}
  *
  * {@link java.util.concurrent.Future}是阻塞式api。
  *
@@ -35,6 +41,25 @@ public interface Future<T> extends AsyncResult<T>, Asyncable<T> {
      */
     boolean isCompleted();
 
+    /**
+     * 取消当前future，以{@link java.util.concurrent.CancellationException}结束，并向派生出当前future的上游传播取消。
+     * 见{@link CompletableResultImpl#cancel()}
+     * <p>
+     * 默认不支持取消
+     *
+     * @return true: 取消成功，false: 已完成或不支持取消
+     */
+    default boolean cancel() {
+        return false;
+    }
+
+    /**
+     * @return 是否以{@link java.util.concurrent.CancellationException}结束
+     */
+    default boolean isCancelled() {
+        return failed() && cause() instanceof CancellationException;
+    }
+
     /**
      * 添加异步回调处理器，可以添加多个。
      *
@@ -43,6 +68,21 @@ public interface Future<T> extends AsyncResult<T>, Asyncable<T> {
      */
     Future<T> addHandler(Handler<AsyncResult<T>> handler);
 
+    /**
+     * 添加带上下文的异步回调处理器，完成时以ctx回调handler。
+     * <p>
+     * handler不捕获变量时可以是共享的静态常量，注册时不需要分配lambda。 见{@link BiHandler}
+     *
+     * @param handler 异步回调处理器
+     * @param ctx     回调时传给handler的上下文
+     * @param <C>     上下文的类型
+     * @return this
+     */
+    default <C> Future<T> addHandler(BiHandler<AsyncResult<T>, C> handler, C ctx) {
+        Objects.requireNonNull(handler);
+        return addHandler(ar -> handler.handle(ar, ctx));
+    }
+
     /**
      * 将类型T转换成类型R.
      * <p>
@@ -74,26 +114,15 @@ public interface Future<T> extends AsyncResult<T>, Asyncable<T> {
     default <R> Future<R> map(Function<? super T, ? extends R> fn, Executor executor) {
         Objects.requireNonNull(fn);
         Objects.requireNonNull(executor);
-        Promise<R> promise = Promise.promise();
-        addHandler(ar -> {
-            if (ar.succeeded()) {
-                try {
-                    executor.execute(() -> {
-                        try {
-                            R apply = fn.apply(ar.result());
-                            promise.setSuccess(apply);
-                        } catch (Throwable e) {
-                            promise.setFailure(e);
-                        }
-                    });
-                } catch (Throwable e) {
-                    promise.setFailure(e);
-                }
-            } else {
-                promise.setFailure(ar.cause());
+        if (executor instanceof RunNowExecutor) return FusedStage.map(this, fn); //同步执行，与上下游的同步操作符融合
+        CompletableResultImpl<R> promise = new Stage<R>().dependOn(this);
+        addHandler(new Continuation<T>(executor, promise) {
+            @Override
+            void apply(AsyncResult<T> ar) {
+                promise.trySuccess(fn.apply(ar.result()));
             }
         });
-        return promise.toFuture();
+        return promise;
     }
 
     /**
@@ -128,60 +157,116 @@ public interface Future<T> extends AsyncResult<T>, Asyncable<T> {
         Objects.requireNonNull(fn);
         Objects.requireNonNull(executor);
 
-        Promise<R> promise = Promise.promise();
-        Consumer<AsyncResult<T>> consumer = ar -> {
-            Asyncable<? extends R> apply = fn.apply(ar.result());
-            apply.toFuture().addHandler(ar1 -> {
-                if (ar1.succeeded()) {
-                    promise.setSuccess(ar1.result());
-                } else {
-                    promise.setFailure(ar1.cause());
-                }
-            });
-        };
-        addHandler(ar -> {
+        ComposedResult<R> promise = new ComposedResult<>();
+        promise.dependOn(this);
+        addHandler(new Continuation<T>(executor, promise) {
+            @Override
+            void apply(AsyncResult<T> ar) {
+                //内层的结果链接到promise上，递归的flatMap不会一层一层地转发
+                promise.completeWith(fn.apply(ar.result()).toFuture());
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * 将类型T转换成int，结果不装箱，见{@link IntFuture}
+     *
+     * @param fn 转换函数
+     * @return 新的、可链式的IntFuture
+     */
+    default IntFuture mapToInt(ToIntFunction<? super T> fn) {
+        Objects.requireNonNull(fn);
+        IntPromiseImpl.MapStage<ToIntFunction<? super T>> stage = new IntPromiseImpl.MapStage<>(fn);
+        stage.dependOn(this);
+        addHandler((ar, s) -> {
             if (ar.succeeded()) {
                 try {
-                    executor.execute(() -> {
-                        try {
-                            consumer.accept(ar);
-                        } catch (Throwable e) {
-                            promise.setFailure(e);
-                        }
-                    });
+                    s.trySuccess(s.fn.applyAsInt(ar.result()));
                 } catch (Throwable e) {
-                    promise.setFailure(e);
+                    s.tryFailure(e);
                 }
             } else {
-                promise.setFailure(ar.cause());
+                s.tryFailure(ar.cause());
             }
-        });
-        return promise.toFuture();
+        }, stage);
+        return stage;
     }
 
     /**
-     * 当前future是异常结果时，将异常结果转换成正常结果
+     * 将类型T转换成long，结果不装箱，见{@link LongFuture}
      *
      * @param fn 转换函数
-     * @return 新的、可链式的Future
+     * @return 新的、可链式的LongFuture
      */
-    @Override
-    default Future<T> otherwise(Function<? super Throwable, ? extends T> fn) {
+    default LongFuture mapToLong(ToLongFunction<? super T> fn) {
         Objects.requireNonNull(fn);
-        Promise<T> promise = Promise.promise();
-        addHandler(ar -> {
+        LongPromiseImpl.MapStage<ToLongFunction<? super T>> stage = new LongPromiseImpl.MapStage<>(fn);
+        stage.dependOn(this);
+        addHandler((ar, s) -> {
             if (ar.succeeded()) {
-                promise.setSuccess(ar.result());
+                try {
+                    s.trySuccess(s.fn.applyAsLong(ar.result()));
+                } catch (Throwable e) {
+                    s.tryFailure(e);
+                }
             } else {
+                s.tryFailure(ar.cause());
+            }
+        }, stage);
+        return stage;
+    }
+
+    /**
+     * 将类型T转换成double，结果不装箱，见{@link DoubleFuture}
+     *
+     * @param fn 转换函数
+     * @return 新的、可链式的DoubleFuture
+     */
+    default DoubleFuture mapToDouble(ToDoubleFunction<? super T> fn) {
+        Objects.requireNonNull(fn);
+        DoublePromiseImpl.MapStage<ToDoubleFunction<? super T>> stage = new DoublePromiseImpl.MapStage<>(fn);
+        stage.dependOn(this);
+        addHandler((ar, s) -> {
+            if (ar.succeeded()) {
                 try {
-                    T apply = fn.apply(ar.cause());
-                    promise.setSuccess(apply);
+                    s.trySuccess(s.fn.applyAsDouble(ar.result()));
                 } catch (Throwable e) {
-                    promise.setFailure(e);
+                    s.tryFailure(e);
                 }
+            } else {
+                s.tryFailure(ar.cause());
             }
-        });
-        return promise.toFuture();
+        }, stage);
+        return stage;
+    }
+
+    /**
+     * 当前future是异常结果时，将异常结果转换成正常结果
+     *
+     * @param fn 转换函数
+     * @return 新的、可链式的Future
+     */
+    @Override
+    default Future<T> otherwise(Function<? super Throwable, ? extends T> fn) {
+        Objects.requireNonNull(fn);
+        return FusedStage.otherwise(this, fn);
+    }
+
+    /**
+     * 在timeout之内没有完成时，返回的future以{@link java.util.concurrent.TimeoutException}结束。
+     * 在此之前完成时，以当前future的结果结束，并立即释放时间轮上的位置。
+     * <p>
+     * 基于共享的时间轮{@link com.github.pandora.timer.HashedWheelTimer#shared()}，精度是一格(默认10ms)。
+     * note: 超时失败通知在timer的线程上，不要在后续同步的操作符、handler里做耗时的操作
+     *
+     * @param timeout 超时时间
+     * @return 新的、可链式的Future
+     */
+    default Future<T> timeout(Duration timeout) {
+        Objects.requireNonNull(timeout);
+        if (isCompleted()) return this;
+        return TimeoutStage.timeout(this, timeout.toNanos());
     }
 
 }
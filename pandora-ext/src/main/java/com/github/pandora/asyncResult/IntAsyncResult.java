@@ -0,0 +1,24 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * int的{@link AsyncResult}，结果直接以int保存，不装箱。
+ * <p>
+ * 使用{@link #resultAsInt(),#cause()}之前必须调用{@link #succeeded(),#failed()}判断结果状态
+ */
+public interface IntAsyncResult {
+
+    /**
+     * @return 正常结果。 异常结果时返回0
+     */
+    int resultAsInt();
+
+    /**
+     * @return 异常结果。 正常结果时返回null
+     */
+    Throwable cause();
+
+    boolean succeeded();
+
+    boolean failed();
+
+}
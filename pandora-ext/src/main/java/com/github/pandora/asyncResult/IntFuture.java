@@ -0,0 +1,254 @@
+package com.github.pandora.asyncResult;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.*;
+
+/**
+ * int特化的{@link Future}，结果以及操作符都不装箱。
+ * <p>
+ * 1. {@link #map(IntUnaryOperator),#mapToLong(IntToLongFunction),#mapToDouble(IntToDoubleFunction)}在原始类型之间转换
+ * 2. {@link #mapToObj(IntFunction)}, {@link #boxed()}转到通用的{@link Future}; 反过来用{@link Future#mapToInt(ToIntFunction)}
+ * 3. {@link #sum(IntFuture...)}, {@link #reduce(int, IntBinaryOperator, IntFuture...)}合并多个{@link IntFuture}
+ * <p>
+ * 跟{@link Future}一样，操作符的异常统一抓起来，在最后时统一使用{@link #addHandler(Handler)}处理。
+ * 操作符都是同步执行的，需要切换线程时可{@link #mapToObj(IntFunction)}之后使用{@link Future#map(Function, java.util.concurrent.Executor)}
+ */
+public interface IntFuture extends IntAsyncResult {
+
+    /**
+     * 创建已完成正常结果的{@link IntFuture}
+     *
+     * @param result 正常结果
+     * @return {@link IntFuture}
+     */
+    static IntFuture succeededFuture(int result) {
+        return new IntPromiseImpl(result);
+    }
+
+    /**
+     * 创建已完成异常结果的{@link IntFuture}
+     *
+     * @param cause 异常结果
+     * @return {@link IntFuture}
+     */
+    static IntFuture failedFuture(Throwable cause) {
+        IntPromiseImpl promise = new IntPromiseImpl();
+        promise.tryFailure(cause);
+        return promise;
+    }
+
+    /**
+     * 所有future都正常完成时，结果为所有结果的和。任意一个异常完成时，结果为该异常
+     *
+     * @param futures futures
+     * @return 和
+     */
+    static IntFuture sum(IntFuture... futures) {
+        return reduce(0, Integer::sum, futures);
+    }
+
+    /**
+     * @see #sum(IntFuture...)
+     */
+    static IntFuture sum(Collection<? extends IntFuture> futures) {
+        return reduce(0, Integer::sum, futures.toArray(new IntFuture[0]));
+    }
+
+    /**
+     * 所有future都正常完成时，按参数的顺序以op合并所有结果。任意一个异常完成时，结果为该异常
+     *
+     * @param identity 初始值
+     * @param op       合并函数
+     * @param futures  futures
+     * @return 合并的结果
+     */
+    static IntFuture reduce(int identity, IntBinaryOperator op, IntFuture... futures) {
+        Objects.requireNonNull(op);
+        Objects.requireNonNull(futures);
+        if (futures.length == 0) return succeededFuture(identity);
+        IntPromiseImpl.Reduce reduce = new IntPromiseImpl.Reduce(identity, op, futures.clone());
+        for (IntFuture future : futures) {
+            future.addHandler(reduce);
+        }
+        return reduce;
+    }
+
+    /**
+     * 代表当前future是否已完成
+     *
+     * @return true: 当前future已完成，false: 未完成
+     */
+    boolean isCompleted();
+
+    /**
+     * 添加异步回调处理器，可以添加多个。 已完成时立即执行
+     *
+     * @param handler 异步回调处理器
+     * @return this
+     */
+    IntFuture addHandler(Handler<IntAsyncResult> handler);
+
+    /**
+     * 添加带上下文的异步回调处理器，完成时以ctx回调handler。 见{@link Future#addHandler(BiHandler, Object)}
+     *
+     * @param handler 异步回调处理器
+     * @param ctx     回调时传给handler的上下文
+     * @param <C>     上下文的类型
+     * @return this
+     */
+    default <C> IntFuture addHandler(BiHandler<IntAsyncResult, C> handler, C ctx) {
+        Objects.requireNonNull(handler);
+        return addHandler(ar -> handler.handle(ar, ctx));
+    }
+
+    /**
+     * 取消当前future，以{@link CancellationException}结束，并向派生出当前future的上游传播取消。 见{@link Future#cancel()}
+     * <p>
+     * 默认不支持取消
+     *
+     * @return true: 取消成功，false: 已完成或不支持取消
+     */
+    default boolean cancel() {
+        return false;
+    }
+
+    /**
+     * @return 是否以{@link CancellationException}结束
+     */
+    default boolean isCancelled() {
+        return failed() && cause() instanceof CancellationException;
+    }
+
+    /**
+     * 将结果转换成另一个int
+     *
+     * @param fn 转换函数
+     * @return 新的、可链式的IntFuture
+     */
+    default IntFuture map(IntUnaryOperator fn) {
+        Objects.requireNonNull(fn);
+        IntPromiseImpl.MapStage<IntUnaryOperator> stage = new IntPromiseImpl.MapStage<>(fn);
+        stage.dependOn(this);
+        addHandler((ar, s) -> {
+            if (ar.succeeded()) {
+                try {
+                    s.trySuccess(s.fn.applyAsInt(ar.resultAsInt()));
+                } catch (Throwable e) {
+                    s.tryFailure(e);
+                }
+            } else {
+                s.tryFailure(ar.cause());
+            }
+        }, stage);
+        return stage;
+    }
+
+    /**
+     * 将int转换成long，结果不装箱，见{@link LongFuture}
+     *
+     * @param fn 转换函数
+     * @return 新的、可链式的LongFuture
+     */
+    default LongFuture mapToLong(IntToLongFunction fn) {
+        Objects.requireNonNull(fn);
+        LongPromiseImpl.MapStage<IntToLongFunction> stage = new LongPromiseImpl.MapStage<>(fn);
+        stage.dependOn(this);
+        addHandler((ar, s) -> {
+            if (ar.succeeded()) {
+                try {
+                    s.trySuccess(s.fn.applyAsLong(ar.resultAsInt()));
+                } catch (Throwable e) {
+                    s.tryFailure(e);
+                }
+            } else {
+                s.tryFailure(ar.cause());
+            }
+        }, stage);
+        return stage;
+    }
+
+    /**
+     * 将int转换成double，结果不装箱，见{@link DoubleFuture}
+     *
+     * @param fn 转换函数
+     * @return 新的、可链式的DoubleFuture
+     */
+    default DoubleFuture mapToDouble(IntToDoubleFunction fn) {
+        Objects.requireNonNull(fn);
+        DoublePromiseImpl.MapStage<IntToDoubleFunction> stage = new DoublePromiseImpl.MapStage<>(fn);
+        stage.dependOn(this);
+        addHandler((ar, s) -> {
+            if (ar.succeeded()) {
+                try {
+                    s.trySuccess(s.fn.applyAsDouble(ar.resultAsInt()));
+                } catch (Throwable e) {
+                    s.tryFailure(e);
+                }
+            } else {
+                s.tryFailure(ar.cause());
+            }
+        }, stage);
+        return stage;
+    }
+
+    /**
+     * 将int转换成类型R，转到通用的{@link Future}
+     *
+     * @param fn  转换函数
+     * @param <R> 类型R
+     * @return 新的、可链式的Future
+     */
+    default <R> Future<R> mapToObj(IntFunction<? extends R> fn) {
+        Objects.requireNonNull(fn);
+        AbstractPrimitivePromise.ToObj<IntFunction<? extends R>, R> stage = new AbstractPrimitivePromise.ToObj<>(fn);
+        stage.dependOn(this);
+        addHandler((ar, s) -> {
+            if (ar.succeeded()) {
+                try {
+                    s.trySuccess(s.fn.apply(ar.resultAsInt()));
+                } catch (Throwable e) {
+                    s.tryFailure(e);
+                }
+            } else {
+                s.tryFailure(ar.cause());
+            }
+        }, stage);
+        return stage;
+    }
+
+    /**
+     * 当前future是异常结果时，将异常结果转换成正常结果
+     *
+     * @param fn 转换函数
+     * @return 新的、可链式的Future
+     */
+    default IntFuture otherwise(ToIntFunction<? super Throwable> fn) {
+        Objects.requireNonNull(fn);
+        IntPromiseImpl.MapStage<ToIntFunction<? super Throwable>> stage = new IntPromiseImpl.MapStage<>(fn);
+        stage.dependOn(this);
+        addHandler((ar, s) -> {
+            if (ar.succeeded()) {
+                s.trySuccess(ar.resultAsInt());
+            } else {
+                try {
+                    s.trySuccess(s.fn.applyAsInt(ar.cause()));
+                } catch (Throwable e) {
+                    s.tryFailure(e);
+                }
+            }
+        }, stage);
+        return stage;
+    }
+
+    /**
+     * 装箱，转换成通用的{@link Future}
+     *
+     * @return Future
+     */
+    default Future<Integer> boxed() {
+        return mapToObj(Integer::valueOf);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * 代表{@link IntFuture}的可写一端。
+ */
+public interface IntPromise extends IntFuture {
+
+    /**
+     * 创建一个未完成的{@link IntPromise}
+     *
+     * @return IntPromise
+     */
+    static IntPromise promise() {
+        return new IntPromiseImpl();
+    }
+
+    /**
+     * Marks this future as a success and notifies all listeners.
+     * <p>
+     * If it is success or failed already it will throw an {@link IllegalStateException}.
+     */
+    default IntPromise setSuccess(int result) {
+        if (trySuccess(result)) return this;
+        throw Failures.alreadySet();
+    }
+
+    /**
+     * @return {@code true} if and only if successfully marked this future as a success.
+     * @see Promise#trySuccess(Object)
+     */
+    boolean trySuccess(int result);
+
+    /**
+     * Marks this future as a failure and notifies all listeners.
+     * <p>
+     * If it is success or failed already it will throw an {@link IllegalStateException}.
+     */
+    default IntPromise setFailure(Throwable cause) {
+        if (tryFailure(cause)) return this;
+        throw Failures.alreadySet();
+    }
+
+    /**
+     * @return {@code true} if and only if successfully marked this future as a failure.
+     * @see Promise#tryFailure(Throwable)
+     */
+    boolean tryFailure(Throwable cause);
+
+    /**
+     * @return 与之关联的只读的future
+     */
+    default IntFuture toFuture() {
+        return this;
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.pandora.asyncResult;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * {@link IntPromise}的标准实现，结果以int字段保存
+ */
+class IntPromiseImpl extends AbstractPrimitivePromise implements IntPromise {
+
+    private int result;
+
+    IntPromiseImpl() {
+    }
+
+    /**
+     * 已正常完成
+     */
+    IntPromiseImpl(int result) {
+        this.result = result;
+        completed();
+    }
+
+    @Override
+    public int resultAsInt() {
+        return succeeded() ? result : 0;
+    }
+
+    @Override
+    public boolean trySuccess(int result) {
+        if (!startCompleting()) return false;
+        this.result = result;
+        completeSucceeded();
+        return true;
+    }
+
+    @Override
+    public IntFuture addHandler(Handler<IntAsyncResult> handler) {
+        Objects.requireNonNull(handler);
+        addHandler0(handler);
+        return this;
+    }
+
+    @Override
+    public <C> IntFuture addHandler(BiHandler<IntAsyncResult, C> handler, C ctx) {
+        Objects.requireNonNull(handler);
+        addHandler0(handler, ctx);
+        return this;
+    }
+
+    /**
+     * 操作符({@link IntFuture#map}等)创建的结果，转换函数保存在stage上，操作符的handler不捕获变量。
+     * 依赖派生出它的上游，取消时向上游传播
+     *
+     * @param <F> 转换函数的类型
+     */
+    static final class MapStage<F> extends IntPromiseImpl {
+
+        final F fn;
+
+        MapStage(F fn) {
+            this.fn = fn;
+        }
+
+        @Override
+        boolean isStage() {
+            return true;
+        }
+    }
+
+    /**
+     * {@link IntFuture#reduce(int, IntBinaryOperator, IntFuture...)}的聚合对象。
+     * 作为所有输入的handler，所有输入都正常完成时按顺序合并结果。
+     */
+    static final class Reduce extends IntPromiseImpl implements Handler<IntAsyncResult> {
+
+        private static final AtomicIntegerFieldUpdater<Reduce> REMAINING_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Reduce.class, "remaining");
+
+        private final int identity;
+        private final IntBinaryOperator op;
+        private final IntFuture[] futures;
+        private volatile int remaining;
+
+        Reduce(int identity, IntBinaryOperator op, IntFuture[] futures) {
+            this.identity = identity;
+            this.op = op;
+            this.futures = futures;
+            this.remaining = futures.length;
+        }
+
+        @Override
+        public void handle(IntAsyncResult ar) {
+            if (ar.failed()) {
+                tryFailure(ar.cause());
+                return;
+            }
+            if (REMAINING_UPDATER.decrementAndGet(this) != 0) return;
+            try {
+                int acc = identity;
+                for (IntFuture future : futures) {
+                    acc = op.applyAsInt(acc, future.resultAsInt());
+                }
+                trySuccess(acc);
+            } catch (Throwable e) {
+                tryFailure(e);
+            }
+        }
+    }
+}
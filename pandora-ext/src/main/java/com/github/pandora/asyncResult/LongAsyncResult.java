@@ -0,0 +1,24 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * long的{@link AsyncResult}，结果直接以long保存，不装箱。
+ * <p>
+ * 使用{@link #resultAsLong(),#cause()}之前必须调用{@link #succeeded(),#failed()}判断结果状态
+ */
+public interface LongAsyncResult {
+
+    /**
+     * @return 正常结果。 异常结果时返回0L
+     */
+    long resultAsLong();
+
+    /**
+     * @return 异常结果。 正常结果时返回null
+     */
+    Throwable cause();
+
+    boolean succeeded();
+
+    boolean failed();
+
+}
@@ -0,0 +1,55 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * 代表{@link LongFuture}的可写一端。
+ */
+public interface LongPromise extends LongFuture {
+
+    /**
+     * 创建一个未完成的{@link LongPromise}
+     *
+     * @return LongPromise
+     */
+    static LongPromise promise() {
+        return new LongPromiseImpl();
+    }
+
+    /**
+     * Marks this future as a success and notifies all listeners.
+     * <p>
+     * If it is success or failed already it will throw an {@link IllegalStateException}.
+     */
+    default LongPromise setSuccess(long result) {
+        if (trySuccess(result)) return this;
+        throw Failures.alreadySet();
+    }
+
+    /**
+     * @return {@code true} if and only if successfully marked this future as a success.
+     * @see Promise#trySuccess(Object)
+     */
+    boolean trySuccess(long result);
+
+    /**
+     * Marks this future as a failure and notifies all listeners.
+     * <p>
+     * If it is success or failed already it will throw an {@link IllegalStateException}.
+     */
+    default LongPromise setFailure(Throwable cause) {
+        if (tryFailure(cause)) return this;
+        throw Failures.alreadySet();
+    }
+
+    /**
+     * @return {@code true} if and only if successfully marked this future as a failure.
+     * @see Promise#tryFailure(Throwable)
+     */
+    boolean tryFailure(Throwable cause);
+
+    /**
+     * @return 与之关联的只读的future
+     */
+    default LongFuture toFuture() {
+        return this;
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.pandora.asyncResult;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * {@link LongPromise}的标准实现，结果以long字段保存
+ */
+class LongPromiseImpl extends AbstractPrimitivePromise implements LongPromise {
+
+    private long result;
+
+    LongPromiseImpl() {
+    }
+
+    /**
+     * 已正常完成
+     */
+    LongPromiseImpl(long result) {
+        this.result = result;
+        completed();
+    }
+
+    @Override
+    public long resultAsLong() {
+        return succeeded() ? result : 0L;
+    }
+
+    @Override
+    public boolean trySuccess(long result) {
+        if (!startCompleting()) return false;
+        this.result = result;
+        completeSucceeded();
+        return true;
+    }
+
+    @Override
+    public LongFuture addHandler(Handler<LongAsyncResult> handler) {
+        Objects.requireNonNull(handler);
+        addHandler0(handler);
+        return this;
+    }
+
+    @Override
+    public <C> LongFuture addHandler(BiHandler<LongAsyncResult, C> handler, C ctx) {
+        Objects.requireNonNull(handler);
+        addHandler0(handler, ctx);
+        return this;
+    }
+
+    /**
+     * 操作符({@link LongFuture#map}等)创建的结果，转换函数保存在stage上，操作符的handler不捕获变量。
+     * 依赖派生出它的上游，取消时向上游传播
+     *
+     * @param <F> 转换函数的类型
+     */
+    static final class MapStage<F> extends LongPromiseImpl {
+
+        final F fn;
+
+        MapStage(F fn) {
+            this.fn = fn;
+        }
+
+        @Override
+        boolean isStage() {
+            return true;
+        }
+    }
+
+    /**
+     * {@link LongFuture#reduce(long, LongBinaryOperator, LongFuture...)}的聚合对象。
+     * 作为所有输入的handler，所有输入都正常完成时按顺序合并结果。
+     */
+    static final class Reduce extends LongPromiseImpl implements Handler<LongAsyncResult> {
+
+        private static final AtomicIntegerFieldUpdater<Reduce> REMAINING_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Reduce.class, "remaining");
+
+        private final long identity;
+        private final LongBinaryOperator op;
+        private final LongFuture[] futures;
+        private volatile int remaining;
+
+        Reduce(long identity, LongBinaryOperator op, LongFuture[] futures) {
+            this.identity = identity;
+            this.op = op;
+            this.futures = futures;
+            this.remaining = futures.length;
+        }
+
+        @Override
+        public void handle(LongAsyncResult ar) {
+            if (ar.failed()) {
+                tryFailure(ar.cause());
+                return;
+            }
+            if (REMAINING_UPDATER.decrementAndGet(this) != 0) return;
+            try {
+                long acc = identity;
+                for (LongFuture future : futures) {
+                    acc = op.applyAsLong(acc, future.resultAsLong());
+                }
+                trySuccess(acc);
+            } catch (Throwable e) {
+                tryFailure(e);
+            }
+        }
+    }
+}
@@ -1,5 +1,12 @@
 package com.github.pandora.asyncResult;
 
+import com.github.pandora.timer.HashedWheelTimer;
+import com.github.pandora.timer.Timeout;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
 /**
  *
  * 代表{@link Future}的可写一端。
@@ -20,6 +27,18 @@ public interface Promise<T> extends Handler<AsyncResult<T>>, Asyncable<T> {
         return new CompletableResultImpl<>();
     }
 
+    /**
+     * 创建一个未完成的Promise，完成时按policy通知添加在它上面的handler(例如切到业务线程池，不占用完成它的I/O线程)。
+     * 完成之后再添加的handler在添加的线程上直接执行
+     *
+     * @param policy 通知handler的策略，见{@link DispatchPolicy}
+     * @param <R>    类型R
+     * @return 未完成的Promise
+     */
+    static <R> Promise<R> promise(DispatchPolicy policy) {
+        return new DispatchingResult<>(policy);
+    }
+
     /**
      * Marks this future as a success and notifies all
      * listeners.
@@ -30,7 +49,7 @@ public interface Promise<T> extends Handler<AsyncResult<T>>, Asyncable<T> {
      */
     default Promise<T> setSuccess(T result) {
         if(trySuccess(result)) return this;
-        throw new IllegalStateException("result was already set");
+        throw Failures.alreadySet();
     }
 
     /**
@@ -55,7 +74,7 @@ public interface Promise<T> extends Handler<AsyncResult<T>>, Asyncable<T> {
      */
     default Promise<T> setFailure(Throwable cause) {
         if(tryFailure(cause)) return this;
-        throw new IllegalStateException("result was already set");
+        throw Failures.alreadySet();
     }
 
     /**
@@ -88,6 +107,23 @@ public interface Promise<T> extends Handler<AsyncResult<T>>, Asyncable<T> {
         }
     }
 
-
+    /**
+     * 在timeout之内没有设置结果时，以value成功结束。在此之前设置了结果时，立即释放时间轮上的位置。
+     * 参考{@link java.util.concurrent.CompletableFuture#completeOnTimeout}
+     * <p>
+     * 基于共享的时间轮{@link HashedWheelTimer#shared()}，精度是一格(默认10ms)
+     *
+     * @param value   超时时的结果
+     * @param timeout 超时时间
+     * @return this
+     */
+    default Promise<T> completeOnTimeout(T value, Duration timeout) {
+        Objects.requireNonNull(timeout);
+        Future<T> future = toFuture();
+        if (future.isCompleted()) return this;
+        Timeout t = HashedWheelTimer.shared().newTimeout(() -> trySuccess(value), timeout.toNanos(), TimeUnit.NANOSECONDS);
+        future.addHandler((ar, timer) -> timer.cancel(), t);
+        return this;
+    }
 
 }
@@ -0,0 +1,105 @@
+package com.github.pandora.asyncResult;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * {@link Async#retry}的重试策略，不可变对象
+ * <p>
+ * 1. 最大尝试次数(包括第一次)
+ * 2. 指数退避 + full jitter: 第n次重试前等待[0, min(maxDelay, baseDelay * 2^(n-1)))之间的随机时长
+ * 3. 只对满足retryOn的失败重试
+ * 4. 总的deadline: 从第一次尝试开始，等待之后会超过deadline的重试不再进行。 进行中的尝试不受影响，
+ *    需要时对单次尝试使用{@link Future#timeout(Duration)}
+ * <p>
+ * eg: RetryPolicy.maxAttempts(5).withBackoff(Duration.ofMillis(10), Duration.ofSeconds(1)).withDeadline(Duration.ofSeconds(3))
+ */
+public final class RetryPolicy {
+
+    private static final Predicate<Throwable> ANY = e -> true;
+
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final Predicate<? super Throwable> retryOn;
+    private final long deadlineNanos;  //0: 没有deadline
+
+    private RetryPolicy(int maxAttempts, long baseDelayNanos, long maxDelayNanos,
+                        Predicate<? super Throwable> retryOn, long deadlineNanos) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = baseDelayNanos;
+        this.maxDelayNanos = maxDelayNanos;
+        this.retryOn = retryOn;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 所有的失败都立即重试，直到maxAttempts
+     *
+     * @param maxAttempts 最大尝试次数，包括第一次
+     * @return RetryPolicy
+     */
+    public static RetryPolicy maxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be >= 1");
+        return new RetryPolicy(maxAttempts, 0, 0, ANY, 0);
+    }
+
+    /**
+     * @param baseDelay 第一次重试前的退避上限
+     * @param maxDelay  之后每次翻倍，最多到maxDelay
+     * @return 新的RetryPolicy
+     */
+    public RetryPolicy withBackoff(Duration baseDelay, Duration maxDelay) {
+        Objects.requireNonNull(baseDelay, "baseDelay");
+        Objects.requireNonNull(maxDelay, "maxDelay");
+        if (baseDelay.isNegative() || maxDelay.compareTo(baseDelay) < 0) {
+            throw new IllegalArgumentException("require 0 <= baseDelay <= maxDelay");
+        }
+        return new RetryPolicy(maxAttempts, baseDelay.toNanos(), maxDelay.toNanos(), retryOn, deadlineNanos);
+    }
+
+    /**
+     * @param retryOn 返回true的失败才重试
+     * @return 新的RetryPolicy
+     */
+    public RetryPolicy retryOn(Predicate<? super Throwable> retryOn) {
+        Objects.requireNonNull(retryOn, "retryOn");
+        return new RetryPolicy(maxAttempts, baseDelayNanos, maxDelayNanos, retryOn, deadlineNanos);
+    }
+
+    /**
+     * @param deadline 从第一次尝试开始的总时长
+     * @return 新的RetryPolicy
+     */
+    public RetryPolicy withDeadline(Duration deadline) {
+        Objects.requireNonNull(deadline, "deadline");
+        if (deadline.isNegative() || deadline.isZero()) throw new IllegalArgumentException("deadline must be > 0");
+        return new RetryPolicy(maxAttempts, baseDelayNanos, maxDelayNanos, retryOn, deadline.toNanos());
+    }
+
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    boolean retryOn(Throwable cause) {
+        return retryOn.test(cause);
+    }
+
+    /**
+     * @param retry 第几次重试，从1开始
+     * @return 重试前等待的纳秒数，full jitter
+     */
+    long delayNanos(int retry) {
+        if (maxDelayNanos == 0) return 0;
+        int shift = Math.min(retry - 1, 62);
+        long cap = baseDelayNanos > (maxDelayNanos >> shift) ? maxDelayNanos : baseDelayNanos << shift;
+        if (cap <= 0) return 0;
+        return ThreadLocalRandom.current().nextLong(cap);
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.listenable.executor.RunNowExecutor;
+import com.github.pandora.timer.HashedWheelTimer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link Async#retry}的实现
+ * <p>
+ * 整个重试只有一个stage，每次尝试只在该次尝试的future上挂一个handler，失败时在时间轮上等待退避时间后再发起下一次尝试。
+ * 不像递归的flatMap那样每次尝试都多一层promise，之前尝试的future完成之后不再被引用。
+ * <p>
+ * 不需要等待的重试经过{@link RunNowExecutor}执行，连续同步失败时调用栈的深度也是有上限的。
+ */
+final class RetryStage<T> extends Stage<T> implements Runnable {
+
+    private final Supplier<? extends Asyncable<T>> supplier;
+    private final RetryPolicy policy;
+    private final long startTime;
+
+    /**
+     * 已发起的尝试次数。同一时刻只有一个尝试，通过handler与timer的happens-before传递
+     */
+    private int attempts;
+
+    private RetryStage(Supplier<? extends Asyncable<T>> supplier, RetryPolicy policy) {
+        this.supplier = supplier;
+        this.policy = policy;
+        this.startTime = System.nanoTime();
+    }
+
+    static <T> CompletableResult<T> retry(Supplier<? extends Asyncable<T>> supplier, RetryPolicy policy) {
+        RetryStage<T> stage = new RetryStage<>(supplier, policy);
+        stage.run();
+        return stage;
+    }
+
+    /**
+     * 发起一次尝试
+     */
+    @Override
+    public void run() {
+        if (isCompleted()) return; //已取消，不再发起新的尝试
+        attempts++;
+        Future<T> attempt;
+        try {
+            attempt = supplier.get().toFuture();
+        } catch (Throwable e) {
+            onFailed(e);
+            return;
+        }
+        dependOn(attempt); //取消时，进行中的尝试是pandora创建的中间结果时同时取消
+        attempt.addHandler((ar, stage) -> stage.onCompleted(ar), this);
+    }
+
+    private void onCompleted(AsyncResult<T> ar) {
+        if (ar.succeeded()) trySuccess(ar.result());
+        else onFailed(ar.cause());
+    }
+
+    private void onFailed(Throwable cause) {
+        boolean retry;
+        long delay;
+        try {
+            retry = attempts < policy.maxAttempts() && policy.retryOn(cause);
+            delay = retry ? policy.delayNanos(attempts) : 0L;
+        } catch (Throwable e) {  //用户的retryOn抛出异常时以该异常结束，原来的失败作为suppressed
+            if (e != cause) e.addSuppressed(cause);
+            tryFailure(e);
+            return;
+        }
+        if (!retry) {
+            tryFailure(cause);
+            return;
+        }
+        long deadline = policy.deadlineNanos();
+        if (deadline > 0 && System.nanoTime() - startTime + delay >= deadline) {
+            tryFailure(cause);
+            return;
+        }
+        try {
+            if (delay == 0) RunNowExecutor.Executor.execute(this);
+            else HashedWheelTimer.shared().newTimeout(this, delay, TimeUnit.NANOSECONDS);
+        } catch (Throwable e) {
+            tryFailure(e);
+        }
+    }
+}
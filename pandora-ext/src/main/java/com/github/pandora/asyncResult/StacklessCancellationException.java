@@ -0,0 +1,23 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * 不收集调用栈的{@link CancellationException}
+ * <p>
+ * 见{@link StacklessException}
+ */
+public class StacklessCancellationException extends CancellationException {
+
+    public StacklessCancellationException() {
+    }
+
+    public StacklessCancellationException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
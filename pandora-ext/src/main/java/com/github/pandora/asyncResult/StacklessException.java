@@ -0,0 +1,21 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * 不收集调用栈的异常。
+ * <p>
+ * 超时、拒绝、"not found"这类预期内的失败，在异步场景下调用栈基本没有意义(只是回调线程的栈)，
+ * 而{@link Throwable#fillInStackTrace()}的开销远大于异常本身。高频失败时可继承这个类定义业务异常。
+ * <p>
+ * 当前类不记录suppressed，但仍然只是省掉了调用栈，每次失败应该创建新的实例。 {@link Failures}创建的Stackless异常是JDK异常的子类，
+ * 与普通异常一样记录suppressed，被下游addSuppressed之后就不再是同一个失败，不能作为常量共享。
+ */
+public class StacklessException extends RuntimeException {
+
+    public StacklessException(String message) {
+        super(message, null, false, false);
+    }
+
+    public StacklessException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.pandora.asyncResult;
+
+/**
+ * 不收集调用栈的{@link IllegalStateException}
+ * <p>
+ * 见{@link StacklessException}
+ */
+public class StacklessIllegalStateException extends IllegalStateException {
+
+    public StacklessIllegalStateException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 不收集调用栈的{@link RejectedExecutionException}
+ * <p>
+ * 见{@link StacklessException}
+ */
+public class StacklessRejectedExecutionException extends RejectedExecutionException {
+
+    public StacklessRejectedExecutionException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
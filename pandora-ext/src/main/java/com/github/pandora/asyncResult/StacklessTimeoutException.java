@@ -0,0 +1,20 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 不收集调用栈的{@link TimeoutException}
+ * <p>
+ * 见{@link StacklessException}
+ */
+public class StacklessTimeoutException extends TimeoutException {
+
+    public StacklessTimeoutException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.pandora.asyncResult;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * pandora在操作符、工厂方法内部创建的结果(map, flatMap, thenCombine, timeout, retry, async等)。
+ * <p>
+ * 取消只会向上游传播到这类结果：{@link #dependents}记录由当前结果派生出的下游个数，
+ * 最后一个下游被取消时才取消当前结果，并继续向上游传播。 同一个上游派生出多个下游时，取消其中一个不影响其他下游。
+ * 用户自己的{@link Promise}，外部的{@link java.util.concurrent.CompletionStage}、{@link java.util.concurrent.Future}
+ * 不会被下游取消，见{@link CompletableResultImpl#cancel()}
+ * <p>
+ * note: 直接在当前结果上添加的handler不计入下游，所有派生的下游都被取消之后，这些handler收到的是取消的结果
+ */
+class Stage<T> extends CompletableResultImpl<T> {
+
+    private static final AtomicIntegerFieldUpdater<Stage> DEPENDENTS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Stage.class, "dependents");
+
+    /**
+     * 通过{@link #dependOn(Object)}依赖当前结果的下游个数，只增加，取消的下游减少
+     */
+    private volatile int dependents;
+
+    /**
+     * 多了一个依赖当前结果的下游
+     */
+    final void retain() {
+        DEPENDENTS_UPDATER.incrementAndGet(this);
+    }
+
+    /**
+     * 一个下游被取消
+     *
+     * @return true: 最后一个下游也被取消了，当前结果可以取消
+     */
+    final boolean release() {
+        return DEPENDENTS_UPDATER.decrementAndGet(this) == 0;
+    }
+}
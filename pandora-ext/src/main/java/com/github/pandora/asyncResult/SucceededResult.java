@@ -0,0 +1,124 @@
+package com.github.pandora.asyncResult;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 已正常完成的、不可变的{@link CompletableResult}
+ * <p>
+ * 同步执行的操作符直接在当前线程上计算，返回的也是已完成的结果，不再创建{@link Promise}。
+ * null, {@link Boolean#TRUE}, {@link Boolean#FALSE}以及常见的空结果使用共享的实例。
+ */
+final class SucceededResult<T> extends CompletedResult<T> {
+
+    private static final SucceededResult<?> NULL = new SucceededResult<>(null);
+    private static final SucceededResult<?> TRUE = new SucceededResult<>(Boolean.TRUE);
+    private static final SucceededResult<?> FALSE = new SucceededResult<>(Boolean.FALSE);
+    private static final SucceededResult<?> EMPTY_OPTIONAL = new SucceededResult<>(Optional.empty());
+    private static final SucceededResult<?> EMPTY_LIST = new SucceededResult<>(Collections.emptyList());
+    private static final SucceededResult<?> EMPTY_SET = new SucceededResult<>(Collections.emptySet());
+    private static final SucceededResult<?> EMPTY_MAP = new SucceededResult<>(Collections.emptyMap());
+
+    private final T result;
+
+    private SucceededResult(T result) {
+        this.result = result;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> SucceededResult<T> of(T result) {
+        if (result == null) return (SucceededResult<T>) NULL;
+        if (result == Boolean.TRUE) return (SucceededResult<T>) TRUE;
+        if (result == Boolean.FALSE) return (SucceededResult<T>) FALSE;
+        if (result == EMPTY_OPTIONAL.result) return (SucceededResult<T>) EMPTY_OPTIONAL;
+        if (result == EMPTY_LIST.result) return (SucceededResult<T>) EMPTY_LIST;
+        if (result == EMPTY_SET.result) return (SucceededResult<T>) EMPTY_SET;
+        if (result == EMPTY_MAP.result) return (SucceededResult<T>) EMPTY_MAP;
+        return new SucceededResult<>(result);
+    }
+
+    @Override
+    public T result() {
+        return result;
+    }
+
+    @Override
+    public Throwable cause() {
+        return null;
+    }
+
+    @Override
+    public boolean succeeded() {
+        return true;
+    }
+
+    @Override
+    public boolean failed() {
+        return false;
+    }
+
+    @Override
+    public <R> Future<R> map(Function<? super T, ? extends R> fn, Executor executor) {
+        Objects.requireNonNull(fn);
+        Objects.requireNonNull(executor);
+        if (!isRunNow(executor)) return super.map(fn, executor);
+        try {
+            return of(fn.apply(result));
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    @Override
+    public <R> CompletableResult<R> flatMap(Function<? super T, ? extends Asyncable<? extends R>> fn, Executor executor) {
+        Objects.requireNonNull(fn);
+        Objects.requireNonNull(executor);
+        if (!isRunNow(executor)) return super.flatMap(fn, executor);
+        try {
+            return ComposedResult.of(fn.apply(result).toFuture());
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    @Override
+    public CompletableResult<T> otherwise(Function<? super Throwable, ? extends T> fn) {
+        Objects.requireNonNull(fn);
+        return this;
+    }
+
+    @Override
+    public <U> CompletableResult<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn, Executor executor) {
+        Objects.requireNonNull(fn);
+        Objects.requireNonNull(executor);
+        if (!isRunNow(executor)) return super.thenComposeAsync(fn, executor);
+        try {
+            return ComposedResult.of(Async.wrap(fn.apply(result)).toFuture());
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    @Override
+    public <U> CompletableResult<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        Objects.requireNonNull(fn);
+        Objects.requireNonNull(executor);
+        if (!isRunNow(executor)) return super.handleAsync(fn, executor);
+        try {
+            return of(fn.apply(result, null));
+        } catch (Throwable e) {
+            return new FailedResult<>(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<T> toCompletableFuture() {
+        return CompletableFuture.completedFuture(result);
+    }
+}
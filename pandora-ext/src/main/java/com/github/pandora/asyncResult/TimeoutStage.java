@@ -0,0 +1,55 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.listenable.executor.RunNowExecutor;
+import com.github.pandora.timer.HashedWheelTimer;
+import com.github.pandora.timer.Timeout;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Future#timeout(java.time.Duration)}的实现
+ * <p>
+ * 在{@link HashedWheelTimer#shared()}上占一个位置，到期时以{@link java.util.concurrent.TimeoutException}结束。
+ * 上游先完成或者被取消时，立即取消timer上的timeout，释放占用的位置。
+ */
+final class TimeoutStage<T> extends Stage<T> implements Runnable {
+
+    private final long timeoutNanos;
+
+    /**
+     * 创建之后才设置，由其他线程上的上游完成、取消读取
+     */
+    private volatile Timeout timeout;
+
+    private TimeoutStage(long timeoutNanos) {
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    static <T> Future<T> timeout(Future<T> source, long timeoutNanos) {
+        TimeoutStage<T> stage = new TimeoutStage<>(timeoutNanos);
+        //先占位置再注册，上游已完成时handler立即执行，能取消掉刚添加的timeout
+        stage.timeout = HashedWheelTimer.shared().newTimeout(stage, timeoutNanos, TimeUnit.NANOSECONDS);
+        stage.dependOn(source);
+        //上游的完成经过RunNowExecutor，一长串timeout调用栈的深度也是有上限的
+        source.addHandler((ar, self) -> RunNowExecutor.Executor.execute(() -> self.onCompleted(ar)), stage);
+        return stage;
+    }
+
+    @Override
+    void onCancelled() {
+        timeout.cancel();
+    }
+
+    private void onCompleted(AsyncResult<T> ar) {
+        boolean completed = ar.succeeded() ? trySuccess(ar.result()) : tryFailure(ar.cause());
+        if (completed) timeout.cancel();
+    }
+
+    /**
+     * 到期
+     */
+    @Override
+    public void run() {
+        tryFailure(Failures.timeout("timeout after " + timeoutNanos + "ns"));
+    }
+}
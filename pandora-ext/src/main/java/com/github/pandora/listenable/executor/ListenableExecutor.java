@@ -1,6 +1,7 @@
 package com.github.pandora.listenable.executor;
 
 import com.github.pandora.listenable.future.ListenableFuture;
+import com.github.pandora.utils.VirtualThreads;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -22,6 +23,17 @@ public interface ListenableExecutor extends Executor {
         return new ListenableExecutorServiceWrapper(delegate);
     }
 
+    /**
+     * 每个task一个虚拟线程的executor，task中阻塞(包括{@link com.github.pandora.asyncResult.Asyncable#await()})
+     * 只会挂起虚拟线程，不占用carrier线程。 见{@link VirtualThreads}
+     *
+     * @return ListenableExecutorService
+     * @throws UnsupportedOperationException 当前运行时不支持虚拟线程(java21以下)
+     */
+    static ListenableExecutorService virtual() {
+        return create(VirtualThreads.newVirtualThreadPerTaskExecutor());
+    }
+
     /**
      * 提交任务，返回可监听结果的future
      * @param task 任务
@@ -1,18 +1,38 @@
 package com.github.pandora.listenable.executor;
 
 import com.github.pandora.listenable.future.ListenableFuture;
-import com.github.pandora.listenable.future.ListenableFutureTask;
+import com.github.pandora.listenable.future.ListenableRunTask;
 import com.github.pandora.listenable.future.ListenableRunFuture;
 
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * created by wang007 on 2019/11/29
  */
 public class ListenableExecutorWrapper implements ListenableExecutor {
 
+    /**
+     * {@link #intern(Executor)}缓存的wrapper，强引用，按executor的identityHashCode开放寻址，最多探测{@link #INTERN_PROBES}个槽。
+     * 查找只读数组、比较{@link #delegate}，不分配对象；只有未命中时才创建wrapper。
+     * <p>
+     * wrapper强引用着executor，缓存中的executor不会被回收。 表的大小固定，探测的槽都被占用时覆盖第一个槽，
+     * 最多只会留住{@link #INTERN_SIZE}个executor，被覆盖的wrapper和executor之后可以正常回收
+     */
+    private static final AtomicReferenceArray<ListenableExecutorWrapper> INTERNED = new AtomicReferenceArray<>(64);
+
+    private static final int INTERN_SIZE = INTERNED.length();
+
+    private static final int INTERN_PROBES = 4;
+
+    /**
+     * 当前线程正在执行哪个executor提交的task，用来判断continuation是否可以直接在当前线程上执行
+     */
+    private static final ThreadLocal<Executor> CURRENT = new ThreadLocal<>();
+
     public final Executor delegate;
 
     public ListenableExecutorWrapper(Executor delegate) {
@@ -21,11 +41,11 @@ public class ListenableExecutorWrapper implements ListenableExecutor {
     }
 
     protected ListenableRunFuture<Void> newTaskFor(Runnable task) {
-        return new ListenableFutureTask<>(task, null, this);
+        return new ListenableRunTask<>(task, null, this);
     }
 
     protected <V> ListenableRunFuture<V> newTaskFor(Callable<V> task) {
-        return new ListenableFutureTask<>(task, this);
+        return new ListenableRunTask<>(task, this);
     }
 
     @Override
@@ -43,4 +63,75 @@ public class ListenableExecutorWrapper implements ListenableExecutor {
     protected Executor delegate() {
         return delegate;
     }
+
+    /**
+     * 同一个executor复用同一个wrapper，不需要每次都{@link ListenableExecutor#create(Executor)}
+     * <p>
+     * 同时使用的executor超过缓存的大小时，被覆盖的executor之后会得到新的wrapper。 wrapper只持有delegate，
+     * 同一个executor的不同wrapper可以混用
+     *
+     * @param executor executor，本身是{@link ListenableExecutor}时直接返回
+     * @return ListenableExecutor
+     */
+    public static ListenableExecutor intern(Executor executor) {
+        Objects.requireNonNull(executor, "executor");
+        if (executor instanceof ListenableExecutor) return (ListenableExecutor) executor;
+        int h = System.identityHashCode(executor);
+        for (int i = 0; i < INTERN_PROBES; i++) {
+            ListenableExecutorWrapper w = INTERNED.get((h + i) & (INTERN_SIZE - 1));
+            if (w != null && w.delegate == executor) return w;
+        }
+
+        ListenableExecutorWrapper created = new ListenableExecutorWrapper(executor);
+        for (int i = 0; i < INTERN_PROBES; i++) {
+            int slot = (h + i) & (INTERN_SIZE - 1);
+            for (; ; ) {
+                ListenableExecutorWrapper w = INTERNED.get(slot);
+                if (w != null) {
+                    if (w.delegate == executor) return w;  //并发创建时使用先放入的
+                    break;
+                }
+                if (INTERNED.compareAndSet(slot, null, created)) return created;
+            }
+        }
+        INTERNED.set(h & (INTERN_SIZE - 1), created);  //探测的槽都被其他executor占用
+        return created;
+    }
+
+    /**
+     * @return true: 当前线程正在执行delegate上的task，提交到这个executor的continuation可以直接在当前线程上执行
+     */
+    public boolean inCurrentThread() {
+        return CURRENT.get() == delegate();
+    }
+
+    /**
+     * 标记当前线程开始执行delegate上的task，与{@link #exit(Executor)}成对使用
+     *
+     * @return 之前的标记，传给{@link #exit(Executor)}
+     */
+    public Executor enter() {
+        Executor prev = CURRENT.get();
+        Executor d = delegate();
+        if (prev != d) CURRENT.set(d);
+        return prev;
+    }
+
+    /**
+     * @param prev {@link #enter()}的返回值
+     */
+    public void exit(Executor prev) {
+        if (prev != delegate()) CURRENT.set(prev);
+    }
+
+    /**
+     * 从delegate的队列中移除还未执行的task。 只有delegate是{@link ThreadPoolExecutor}时才能移除
+     *
+     * @param task 已取消的task
+     * @return true: 已从队列中移除
+     */
+    public boolean remove(Runnable task) {
+        Executor executor = delegate();
+        return executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).remove(task);
+    }
 }
@@ -1,20 +1,84 @@
 package com.github.pandora.listenable.executor;
 
+import java.util.ArrayDeque;
 import java.util.concurrent.Executor;
 
 /**
  * 立即执行{@link Runnable}
- *
+ * <p>
+ * 同一线程上嵌套调用{@link #execute(Runnable)}时(例如一长串map操作符，完成链头时会一层一层地往下执行)，
+ * 嵌套深度超过{@link #MAX_STACK_DEPTH}之后的command不再直接递归执行，而是放进当前线程的run loop中，
+ * 由最外层的{@link #execute(Runnable)}在返回之前依次执行完。
+ * 这样调用栈的深度是有上限的，不会因为链太长而StackOverflowError，
+ * 并且最外层的{@link #execute(Runnable)}返回时，所有command都已执行完毕。
+ * <p>
+ * command抛出的异常总是从{@link #execute(Runnable)}抛出，与直接调用{@link Runnable#run()}一样：
+ * 直接执行的command从执行它的execute抛出；放进run loop的command由最外层的execute执行，
+ * 异常从最外层的execute抛出，run loop中剩余的command仍然会执行完，之后的异常作为第一个异常的suppressed。
+ * <p>
+ * -Dpandora.runNow.maxStackDepth=N 设置可直接嵌套执行的深度，默认16。 0: 嵌套的command都放进run loop
+ * <p>
  * created by wang007 on 2019/12/3
  */
 public class RunNowExecutor implements Executor {
 
     public final static RunNowExecutor Executor = new RunNowExecutor();
 
+    /**
+     * 同一线程上可直接嵌套执行的最大深度
+     */
+    static final int MAX_STACK_DEPTH = Math.max(0, Integer.getInteger("pandora.runNow.maxStackDepth", 16));
+
+    private static final ThreadLocal<RunLoop> LOOP = ThreadLocal.withInitial(RunLoop::new);
+
     RunNowExecutor(){}
 
     @Override
     public void execute(Runnable command) {
-        command.run();
+        RunLoop loop = LOOP.get();
+        if (loop.depth > MAX_STACK_DEPTH) {
+            loop.tasks.add(command);
+            return;
+        }
+        loop.depth++;
+        Throwable failure = null;
+        try {
+            command.run();
+        } catch (Throwable e) {
+            failure = e;
+        }
+        if (--loop.depth == 0) failure = loop.drain(failure);
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new IllegalStateException(failure);  //只有sneaky throw的受检异常
+    }
+
+    private static final class RunLoop {
+
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        private int depth;
+
+        /**
+         * 依次执行run loop中的command，直到run loop为空
+         *
+         * @param failure 最外层command抛出的异常，null: 没有
+         * @return 第一个异常，之后的异常作为它的suppressed。 null: 都执行成功
+         */
+        Throwable drain(Throwable failure) {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                depth = 1;
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    if (failure == null) failure = e;
+                    else if (failure != e) failure.addSuppressed(e);
+                } finally {
+                    depth = 0;
+                }
+            }
+            return failure;
+        }
     }
 }
@@ -6,7 +6,7 @@ import com.github.pandora.asyncResult.Handler;
 import com.github.pandora.asyncResult.Promise;
 import com.github.pandora.listenable.executor.ListenableExecutor;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -19,11 +19,18 @@ import java.util.concurrent.ExecutionException;
  */
 public abstract class AbstractListenableFuture<V> implements ListenableFuture<V> {
 
+    private static final Object Notified = new Object(); //handler已通知过，之后添加的handler立即执行
+
     /**
-     * 异步回调处理器
-     * 绝大多数情况下，handler只有一个，所以这里就不用list来保存，当有多个的时候
+     * 异步回调处理器，通过CAS压入，不加锁(synchronized会让等待的虚拟线程占住carrier线程)
+     * null: 没有handler
+     * Handler: 只有一个handler，绝大多数情况下handler只有一个，不需要额外的节点
+     * Node: 多个handler，后添加的在栈顶
+     * Notified: 已通知过并且已取走所有handler
+     * <p>
+     * 原子操作由{@link FutureAccess}完成
      */
-    private Object handlers;
+    volatile Object handlers;
 
     private final ListenableExecutor carrierExecutor;
 
@@ -59,47 +66,59 @@ public abstract class AbstractListenableFuture<V> implements ListenableFuture<V>
     @Override
     public ListenableFuture<V> addHandler(Handler<AsyncResult<V>> handler) {
         Objects.requireNonNull(handler);
-        if (isDone()) {
-            handler.handle(getAsAsyncResult());
-            return this;
-        }
-        synchronized (this) {
-            if (handlers == null) handlers = handler;
-            else if (handlers instanceof List) {
-                List<Handler<?>> lfs = (List<Handler<?>>) handlers;
-                lfs.add(handler);
-            } else {
-                List<Handler<?>> lfs = new ArrayList<>();
-                lfs.add((Handler<?>) handlers);
-                lfs.add(handler);
-                this.handlers = lfs;
+        if (!isDone()) {
+            for (; ; ) {
+                Object h = handlers;
+                if (h == Notified) break;
+                if (FutureAccess.casHandlers(this, h, h == null ? handler : new Node(handler, h))) return this;
             }
         }
+        handler.handle(getAsAsyncResult());
         return this;
     }
 
     @Override
-    public synchronized List<Handler<AsyncResult<V>>> handlers() {
-        Object handlers = this.handlers;
-        if (handlers == null) return Collections.emptyList();
-        else if (handlers instanceof List) {
-            List<Handler<AsyncResult<V>>> lfs = (List<Handler<AsyncResult<V>>>) handlers;
-            return Collections.unmodifiableList(lfs);
-        }
-        return Collections.singletonList((Handler<AsyncResult<V>>) handlers);
+    public List<Handler<AsyncResult<V>>> handlers() {
+        Object h = this.handlers;
+        if (h == null || h == Notified) return Collections.emptyList();
+        return Collections.unmodifiableList(Arrays.asList(toArray(h)));
     }
 
     /**
      * 执行通知handler
+     * <p>
+     * 一次性取走所有handler并置为{@link #Notified}，之后添加的handler立即执行，完成与添加并发时handler不会丢失。
+     * 结果只包装一次，所有handler共用同一个AsyncResult
      */
     protected void notifyHandlers() {
-        handlers().forEach(ls -> {
+        Object h = FutureAccess.getAndSetHandlers(this, Notified);
+        if (h == null || h == Notified) return;
+        AsyncResult<V> ar = getAsAsyncResult();
+        for (Handler<AsyncResult<V>> handler : toArray(h)) {
             try {
-                ls.handle(getAsAsyncResult());
+                handler.handle(ar);
             } catch (Throwable e) {
                 _logger.warn("execute handler#handle failed.", e);
             }
-        });
+        }
+    }
+
+    /**
+     * @param h handler或者Node
+     * @return 按添加顺序排列的handler
+     */
+    private Handler<AsyncResult<V>>[] toArray(Object h) {
+        int n = 1;
+        for (Object x = h; x instanceof Node; x = ((Node) x).next) n++;
+        Handler<AsyncResult<V>>[] array = new Handler[n];
+        for (Object x = h; ; x = ((Node) x).next) {
+            if (x instanceof Node) {
+                array[--n] = (Handler<AsyncResult<V>>) ((Node) x).handler;
+            } else {
+                array[--n] = (Handler<AsyncResult<V>>) x;
+                return array;
+            }
+        }
     }
 
     protected void ifWarningForGet() {
@@ -114,4 +133,17 @@ public abstract class AbstractListenableFuture<V> implements ListenableFuture<V>
         addHandler(promise);
         return promise.toCompletableResult();
     }
+
+    /**
+     * 多个handler时的栈节点。 next是下一个Node或者最早添加的handler
+     */
+    private static final class Node {
+        final Handler<?> handler;
+        final Object next;
+
+        Node(Handler<?> handler, Object next) {
+            this.handler = handler;
+            this.next = next;
+        }
+    }
 }
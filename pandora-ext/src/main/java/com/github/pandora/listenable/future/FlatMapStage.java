@@ -0,0 +1,88 @@
+package com.github.pandora.listenable.future;
+
+import com.github.pandora.asyncResult.AsyncResult;
+import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.listenable.executor.ListenableExecutorWrapper;
+import com.github.pandora.listenable.executor.RunNowExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * {@link ListenableFuture#flatMap(Function, Executor)}的continuation。
+ * <p>
+ * 一个对象同时是返回的future和提交到executor的task，
+ * 不再额外创建{@link ListenableRunTask}以及转发失败的handler。
+ * 当前线程已经在执行同一个executor上的task时，不再提交到executor，直接通过{@link RunNowExecutor}执行。
+ * <p>
+ * -Ddisable.pandora.inlineDispatch=true 关闭直接执行，总是提交到executor
+ */
+final class FlatMapStage<V, R> extends ListenableStage<R> implements Runnable {
+
+    static final boolean INLINE_DISPATCH = !Boolean.getBoolean("disable.pandora.inlineDispatch");
+
+    private Function<? super V, ? extends R> fn;
+
+    private V value;
+
+    /**
+     * @param fn       fn
+     * @param executor fn执行所在的executor，也是当前future的carrierExecutor
+     */
+    FlatMapStage(Function<? super V, ? extends R> fn, ListenableExecutor executor) {
+        super(executor);
+        this.fn = fn;
+    }
+
+    /**
+     * 上游完成时的处理。 {@link ListenablePromise}本身已是{@code Handler<AsyncResult<R>>}，
+     * 所以以stage作为上下文，通过{@link ListenableFuture#addHandler(com.github.pandora.asyncResult.BiHandler, Object)}添加到上游
+     */
+    void onCompleted(AsyncResult<V> ar) {
+        if (ar.failed()) {
+            tryFailure(ar.cause());
+            return;
+        }
+        value = ar.result();
+        ListenableExecutor executor = carrierExecutor();
+        if (INLINE_DISPATCH && executor instanceof ListenableExecutorWrapper
+                && ((ListenableExecutorWrapper) executor).inCurrentThread()) {
+            RunNowExecutor.Executor.execute(this);
+            return;
+        }
+        try {
+            executor.execute(this);
+        } catch (Throwable e) { //may be reject?
+            tryFailure(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (isDone()) return; //已取消
+        Function<? super V, ? extends R> fn = this.fn;
+        V value = this.value;
+        this.fn = null;
+        this.value = null;
+        ListenableExecutor executor = carrierExecutor();
+        ListenableExecutorWrapper wrapper = executor instanceof ListenableExecutorWrapper ?
+                (ListenableExecutorWrapper) executor : null;
+        Executor prev = wrapper == null ? null : wrapper.enter();
+        try {
+            trySuccess(fn.apply(value));
+        } catch (Throwable e) {
+            tryFailure(e);
+        } finally {
+            if (wrapper != null) wrapper.exit(prev);
+        }
+    }
+
+    /**
+     * 还未执行时从executor的队列中移除
+     */
+    @Override
+    void onCancelled() {
+        ListenableExecutor executor = carrierExecutor();
+        if (executor instanceof ListenableExecutorWrapper) ((ListenableExecutorWrapper) executor).remove(this);
+    }
+}
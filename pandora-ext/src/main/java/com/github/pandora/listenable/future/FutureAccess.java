@@ -0,0 +1,98 @@
+package com.github.pandora.listenable.future;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * {@link SimpleListenableFuture}，{@link ListenableRunTask}，{@link AbstractListenableFuture}状态字段的原子操作。
+ * <p>
+ * java8的实现，基于{@link AtomicReferenceFieldUpdater}。 jar是multi-release的，
+ * java9+上加载src/main/java9下的同名类，基于VarHandle，读结果使用acquire，只需要发布的写使用release，自旋使用Thread#onSpinWait
+ */
+final class FutureAccess {
+
+    private static final AtomicReferenceFieldUpdater<SimpleListenableFuture, Object> RESULT =
+            AtomicReferenceFieldUpdater.newUpdater(SimpleListenableFuture.class, Object.class, "result");
+    private static final AtomicReferenceFieldUpdater<SimpleListenableFuture, Future> UPSTREAM =
+            AtomicReferenceFieldUpdater.newUpdater(SimpleListenableFuture.class, Future.class, "upstream");
+    private static final AtomicReferenceFieldUpdater<SimpleListenableFuture, SimpleListenableFuture.WaitNode> WAITERS =
+            AtomicReferenceFieldUpdater.newUpdater(SimpleListenableFuture.class, SimpleListenableFuture.WaitNode.class, "waiters");
+    private static final AtomicReferenceFieldUpdater<ListenableRunTask, Object> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(ListenableRunTask.class, Object.class, "state");
+    private static final AtomicReferenceFieldUpdater<ListenableRunTask, Object> RUNNER =
+            AtomicReferenceFieldUpdater.newUpdater(ListenableRunTask.class, Object.class, "runner");
+    private static final AtomicReferenceFieldUpdater<AbstractListenableFuture, Object> HANDLERS =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractListenableFuture.class, Object.class, "handlers");
+
+    private FutureAccess() {
+    }
+
+    //================================ SimpleListenableFuture ==================================
+
+    /**
+     * 读取结果，只需要看到完成时发布的结果(acquire)
+     */
+    static Object result(SimpleListenableFuture<?> f) {
+        return f.result;
+    }
+
+    static boolean casResult(SimpleListenableFuture<?> f, Object expect, Object update) {
+        return RESULT.compareAndSet(f, expect, update);
+    }
+
+    static Future<?> getAndClearUpstream(SimpleListenableFuture<?> f) {
+        return UPSTREAM.getAndSet(f, null);
+    }
+
+    /**
+     * 完成之后释放上游，只是为了让gc回收，不需要与其他读写排序(release)
+     */
+    static void releaseUpstream(SimpleListenableFuture<?> f) {
+        f.upstream = null;
+    }
+
+    static boolean casWaiters(SimpleListenableFuture<?> f, SimpleListenableFuture.WaitNode expect, SimpleListenableFuture.WaitNode update) {
+        return WAITERS.compareAndSet(f, expect, update);
+    }
+
+    //================================ ListenableRunTask ==================================
+
+    /**
+     * 读取状态，只需要看到完成时发布的结果(acquire)
+     */
+    static Object state(ListenableRunTask<?> t) {
+        return t.state;
+    }
+
+    static boolean casState(ListenableRunTask<?> t, Object expect, Object update) {
+        return STATE.compareAndSet(t, expect, update);
+    }
+
+    static boolean casRunner(ListenableRunTask<?> t, Object expect, Object update) {
+        return RUNNER.compareAndSet(t, expect, update);
+    }
+
+    /**
+     * 只有自旋等待的runner读取(release)
+     */
+    static void releaseRunner(ListenableRunTask<?> t, Object value) {
+        t.runner = value;
+    }
+
+    //================================ AbstractListenableFuture ==================================
+
+    static boolean casHandlers(AbstractListenableFuture<?> f, Object expect, Object update) {
+        return HANDLERS.compareAndSet(f, expect, update);
+    }
+
+    static Object getAndSetHandlers(AbstractListenableFuture<?> f, Object value) {
+        return HANDLERS.getAndSet(f, value);
+    }
+
+    /**
+     * 自旋等待中的一次等待
+     */
+    static void onSpinWait() {
+        Thread.yield();
+    }
+}
@@ -2,12 +2,14 @@ package com.github.pandora.listenable.future;
 
 import com.github.pandora.asyncResult.*;
 import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.listenable.executor.ListenableExecutorWrapper;
 import com.github.pandora.listenable.executor.RunNowExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -73,6 +75,20 @@ public interface ListenableFuture<V> extends Future<V>, Asyncable<V> {
      */
     ListenableFuture<V> addHandler(Handler<AsyncResult<V>> handler);
 
+    /**
+     * add handler with context
+     * note: 与{@link #addHandler(Handler)}相同，handler不捕获变量时可以是共享的静态常量，见{@link BiHandler}
+     *
+     * @param handler handler
+     * @param ctx     回调时传给handler的上下文
+     * @param <C>     上下文的类型
+     * @return this
+     */
+    default <C> ListenableFuture<V> addHandler(BiHandler<AsyncResult<V>, C> handler, C ctx) {
+        Objects.requireNonNull(handler);
+        return addHandler(ar -> handler.handle(ar, ctx));
+    }
+
     /**
      * add handler
      * note: 如果添加handler时异步结果已完成，那么立即执行。否则执行在{@link #carrierExecutor()}
@@ -142,42 +158,11 @@ public interface ListenableFuture<V> extends Future<V>, Asyncable<V> {
      * @return result of next continuation
      */
     default <R> ListenableFuture<R> flatMap(Function<? super V, ? extends R> fn, Executor executor) {
-        ListenablePromise<R> then;
-
-        boolean ifExecOnLocal = executor instanceof RunNowExecutor;
-
-        ListenableExecutor carrierOnRunNext = ifExecOnLocal ?
-                carrierExecutor() : ListenableExecutor.create(executor); //execute next continuation on carrier
-        if (ifExecOnLocal) {
-            then = ofPromise(carrierExecutor());
-        } else {
-            then = new SimpleListenableFuture<R>(carrierExecutor()) {
-                @Override
-                public ListenableExecutor carrierExecutor() {
-                    return carrierOnRunNext;
-                }
-            };
-        }
-        addHandler(ar -> {
-            if (ar.succeeded()) {
-                try {
-                    carrierOnRunNext.submit(() -> {
-                        R apply = fn.apply(ar.result());  //执行过程有try catch了
-                        then.trySuccess(apply); //设置已经正常结果了，listener中就不必处理succeeded的情况了
-                    }).addHandler(ar1 -> {
-                        if (ar1.succeeded()) {
-                            //ignore
-                        } else {
-                            then.tryFailure(ar1.cause());
-                        }
-                    });
-                } catch (Throwable e) { //may be reject?
-                    then.tryFailure(e);
-                }
-            } else {
-                then.tryFailure(ar.cause());
-            }
-        });
+        ListenableExecutor next = executor instanceof RunNowExecutor ?
+                carrierExecutor() : ListenableExecutorWrapper.intern(executor); //execute next continuation on carrier
+        FlatMapStage<V, R> then = new FlatMapStage<>(fn, next);
+        then.dependOn(this);
+        addHandler((ar, stage) -> stage.onCompleted(ar), then);
         return then;
     }
 
@@ -188,7 +173,7 @@ public interface ListenableFuture<V> extends Future<V>, Asyncable<V> {
      * @see #flatMap(Function, Executor)
      */
     default <R> ListenableFuture<R> map(Function<? super V, ? extends R> fn) {
-        ListenablePromise<R> then = ofPromise(carrierExecutor());
+        SimpleListenableFuture<R> then = new ListenableStage<R>(carrierExecutor()).dependOn(this);
         addHandler(ar -> {
             if (ar.succeeded()) {
                 try {
@@ -211,7 +196,7 @@ public interface ListenableFuture<V> extends Future<V>, Asyncable<V> {
      * @return result of next continuation
      */
     default ListenableFuture<V> otherwise(Function<? super Throwable, ? extends V> fn) {
-        ListenablePromise<V> then = ofPromise(carrierExecutor());
+        SimpleListenableFuture<V> then = new ListenableStage<V>(carrierExecutor()).dependOn(this);
         addHandler(ar -> {
             if (ar.succeeded()) {
                 then.trySuccess(ar.result());
@@ -226,6 +211,19 @@ public interface ListenableFuture<V> extends Future<V>, Asyncable<V> {
         return then;
     }
 
+    /**
+     * 通过{@link #get()}等待，中断时由实现摘掉自己的等待节点。
+     * 默认的{@link #toFuture()}每次都会在当前future上挂一个新的handler，被中断的await会把它留下
+     *
+     * @return 结果
+     * @throws InterruptedException 等待时被中断
+     * @throws ExecutionException   失败，cause是原始异常
+     */
+    @Override
+    default V await() throws InterruptedException, ExecutionException {
+        return get();
+    }
+
     @Override
     default CompletableResult<V> toCompletableResult() {
         Promise<V> promise = Promise.promise();
@@ -12,6 +12,11 @@ import java.util.Objects;
 import java.util.concurrent.*;
 
 /**
+ * 基于{@link FutureTask}的{@link ListenableRunFuture}。
+ * <p>
+ * {@link com.github.pandora.listenable.executor.ListenableExecutor}提交的任务使用无锁的{@link ListenableRunTask}，
+ * 不再创建当前类。 保留给直接创建task或者继承{@link FutureTask}扩展的代码
+ *
  * created by pandora on 2019/11/29
  */
 public class ListenableFutureTask<V> extends FutureTask<V> implements ListenableRunFuture<V> {
@@ -40,6 +45,14 @@ public class ListenableFutureTask<V> extends FutureTask<V> implements Listenable
         return super.get();
     }
 
+    /**
+     * 与{@link #get()}相同，主动等待不打印警告
+     */
+    @Override
+    public V await() throws InterruptedException, ExecutionException {
+        return super.get();
+    }
+
     @Override
     public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
         ifWarningForGet();
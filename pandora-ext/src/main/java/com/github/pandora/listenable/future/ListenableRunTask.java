@@ -0,0 +1,407 @@
+package com.github.pandora.listenable.future;
+
+import com.github.pandora.asyncResult.AsyncResult;
+import com.github.pandora.asyncResult.AsyncResultImpl;
+import com.github.pandora.asyncResult.BiHandler;
+import com.github.pandora.asyncResult.Failures;
+import com.github.pandora.asyncResult.Handler;
+import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.listenable.executor.ListenableExecutorWrapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 专门为{@link ListenableRunFuture}实现的task，不继承{@link FutureTask}。
+ * {@link com.github.pandora.listenable.executor.ListenableExecutor}提交的任务都使用这个实现，
+ * 需要{@link FutureTask}子类的地方继续使用{@link ListenableFutureTask}
+ * <p>
+ * 所有状态都在{@link #state}上：未完成时是handler和阻塞在{@link #get()}上的线程组成的无锁栈，
+ * 完成时通过一次CAS替换成结果对应的{@link AsyncResult}，之后所有handler和{@link #get()}共用这一个结果。
+ */
+public class ListenableRunTask<V> implements ListenableRunFuture<V> {
+
+    private static final AtomicIntegerFieldUpdater<ListenableRunTask> DEPENDENTS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ListenableRunTask.class, "dependents");
+
+    private static final Object Interrupting = new Object(); //cancel(true)正在中断runner
+    private static final Object Interrupted = new Object();  //runner已被中断
+
+    /**
+     * null: 未完成，没有handler
+     * Node: 未完成，handler和等待线程组成的栈，栈顶是最后添加的
+     * AsyncResult: 已完成的结果。 {@link Cancelled}表示已取消
+     * <p>
+     * 状态字段都是包内可见的，原子操作由{@link FutureAccess}完成
+     */
+    volatile Object state;
+
+    /**
+     * null: 未执行或已执行完
+     * Thread: 正在执行的线程，{@link #cancel(boolean)}时用来中断
+     * Interrupting, Interrupted: 正在被中断，已被中断
+     */
+    volatile Object runner;
+
+    /**
+     * 执行完之后不再引用
+     */
+    private Callable<V> callable;
+
+    private final ListenableExecutor carrierExecutor;
+
+    /**
+     * 通过map, flatMap等依赖当前task的下游个数。 最后一个下游被取消时才取消当前task，
+     * 见{@link SimpleListenableFuture#cancel(boolean)}
+     */
+    private volatile int dependents;
+
+    public ListenableRunTask(Callable<V> callable, ListenableExecutor carrierExecutor) {
+        this.callable = Objects.requireNonNull(callable, "callable");
+        this.carrierExecutor = carrierExecutor;
+    }
+
+    public ListenableRunTask(Runnable runnable, V result, ListenableExecutor carrierExecutor) {
+        this(Executors.callable(Objects.requireNonNull(runnable, "runnable"), result), carrierExecutor);
+    }
+
+    @Override
+    public void run() {
+        if (state instanceof AsyncResult || !FutureAccess.casRunner(this, null, Thread.currentThread())) return;
+        try {
+            Callable<V> c = callable;
+            if (c == null || state instanceof AsyncResult) return; //已取消
+            ListenableExecutorWrapper wrapper = carrierExecutor instanceof ListenableExecutorWrapper ?
+                    (ListenableExecutorWrapper) carrierExecutor : null;
+            //执行以及通知handler期间，提交到同一个executor的continuation直接执行
+            Executor prev = wrapper == null ? null : wrapper.enter();
+            try {
+                AsyncResult<V> ar;
+                try {
+                    ar = AsyncResult.succeeded(c.call());
+                } catch (Throwable e) {
+                    ar = AsyncResult.failed(e);
+                }
+                complete(ar);
+            } finally {
+                if (wrapper != null) wrapper.exit(prev);
+            }
+        } finally {
+            if (!FutureAccess.casRunner(this, Thread.currentThread(), null)) {
+                //cancel(true)正在中断当前线程，等它中断完，避免中断泄漏到之后执行的task上
+                while (runner == Interrupting) FutureAccess.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * 通过一次CAS设置结果，然后唤醒所有等待的线程、通知所有handler
+     *
+     * @return false: 已完成
+     */
+    private boolean complete(AsyncResult<V> ar) {
+        for (; ; ) {
+            Object s = state;
+            if (s instanceof AsyncResult) return false;
+            if (FutureAccess.casState(this, s, ar)) {
+                callable = null;
+                if (s != null) fire((Node) s, ar);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 唤醒等待的线程，按添加顺序通知handler。 不修改节点的next，并发的{@link #removeWaiter(Node)}不会影响遍历
+     */
+    private void fire(Node top, AsyncResult<V> ar) {
+        int count = 0;
+        for (Node node = top; node != null; node = node.next) {
+            Thread t = node.thread;
+            if (t != null) {
+                node.thread = null;
+                LockSupport.unpark(t);
+            }
+            if (node.handler != null) count++;
+        }
+        if (count == 0) return;
+        Node[] nodes = new Node[count];
+        for (Node node = top; node != null; node = node.next) {
+            if (node.handler != null) nodes[--count] = node;
+        }
+        Runnable run = () -> {
+            for (Node node : nodes) {
+                try {
+                    node.fire(ar);
+                } catch (Throwable e) {
+                    _logger.warn("execute handler#handle failed.", e);
+                }
+            }
+        };
+        if (ar instanceof Cancelled) {  //唯一的入口来自cancel方法，
+            carrierExecutor().execute(run);
+        } else {
+            run.run();
+        }
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        ifWarningForGet();
+        try {
+            return report(await(false, 0L));
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(e); //not timeout
+        }
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        Objects.requireNonNull(unit, "unit");
+        ifWarningForGet();
+        return report(await(true, unit.toNanos(timeout)));
+    }
+
+    /**
+     * 与{@link #get()}相同，主动等待不打印警告
+     */
+    @Override
+    public V await() throws InterruptedException, ExecutionException {
+        try {
+            return report(await(false, 0L));
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(e); //not timeout
+        }
+    }
+
+    private V report(AsyncResult<V> ar) throws ExecutionException {
+        if (ar.succeeded()) return ar.result();
+        if (ar instanceof Cancelled) throw Failures.cancellation();
+        throw new ExecutionException(ar.cause());
+    }
+
+    /**
+     * 把当前线程压入{@link #state}上的栈并park，直到完成、超时或者被中断
+     */
+    private AsyncResult<V> await(boolean timed, long nanos) throws InterruptedException, TimeoutException {
+        Object s = state;
+        if (s instanceof AsyncResult) return (AsyncResult<V>) s;
+        if (Thread.interrupted()) throw new InterruptedException();
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        Node node = null;
+        boolean queued = false;
+        for (; ; ) {
+            s = state;
+            if (s instanceof AsyncResult) return (AsyncResult<V>) s;
+            if (node == null) {
+                node = new Node(null, null, Thread.currentThread());
+            } else if (!queued) {
+                node.next = (Node) s;
+                queued = FutureAccess.casState(this, s, node);
+            } else if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    removeWaiter(node);
+                    throw new TimeoutException();
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+            if (Thread.interrupted()) {
+                removeWaiter(node);
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * 超时或者中断时，把thread已清空的等待节点从栈中摘掉
+     */
+    private void removeWaiter(Node node) {
+        if (node == null) return;
+        node.thread = null;
+        retry:
+        for (; ; ) {
+            Object s = state;
+            if (!(s instanceof Node)) return;
+            for (Node pred = null, q = (Node) s, next; q != null; q = next) {
+                next = q.next;
+                if (!q.isDead()) {
+                    pred = q;
+                } else if (pred != null) {
+                    pred.next = next;
+                    if (pred.isDead()) continue retry;
+                } else if (!FutureAccess.casState(this, q, next)) {
+                    continue retry;
+                }
+            }
+            return;
+        }
+    }
+
+    @Override
+    public ListenableExecutor carrierExecutor() {
+        return carrierExecutor;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state instanceof Cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state instanceof AsyncResult;
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return isDone();
+    }
+
+    /**
+     * 取消成功时，正在执行的task按mayInterruptIfRunning中断，
+     * 还未执行的task从executor的队列中移除，不再占用队列的位置
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!complete(new Cancelled<>())) return false;
+        if (mayInterruptIfRunning) {
+            Object r = runner;
+            if (r instanceof Thread && FutureAccess.casRunner(this, r, Interrupting)) {
+                try {
+                    ((Thread) r).interrupt();
+                } finally {
+                    FutureAccess.releaseRunner(this, Interrupted);
+                }
+            }
+        }
+        if (carrierExecutor instanceof ListenableExecutorWrapper) {
+            ((ListenableExecutorWrapper) carrierExecutor).remove(this);
+        }
+        return true;
+    }
+
+    void retain() {
+        DEPENDENTS_UPDATER.incrementAndGet(this);
+    }
+
+    /**
+     * @return true: 最后一个下游也被取消了
+     */
+    boolean release() {
+        return DEPENDENTS_UPDATER.decrementAndGet(this) == 0;
+    }
+
+    /**
+     * @return 完成时设置的结果，所有handler共用。 失败时已是原始异常，不会再创建{@link ExecutionException}
+     */
+    protected AsyncResult<V> getAsAsyncResult() {
+        Object s = FutureAccess.state(this);
+        if (s instanceof AsyncResult) return (AsyncResult<V>) s;
+        throw new IllegalStateException("task is not done");
+    }
+
+    @Override
+    public ListenableFuture<V> addHandler(Handler<AsyncResult<V>> handler) {
+        Objects.requireNonNull(handler);
+        Object s = push(handler, null);
+        if (s != null) handler.handle((AsyncResult<V>) s);
+        return this;
+    }
+
+    /**
+     * 与{@link #addHandler(Handler)}相同，ctx和handler保存在同一个节点上，不需要额外分配lambda
+     */
+    @Override
+    public <C> ListenableFuture<V> addHandler(BiHandler<AsyncResult<V>, C> handler, C ctx) {
+        Objects.requireNonNull(handler);
+        Object s = push(handler, ctx);
+        if (s != null) handler.handle((AsyncResult<V>) s, ctx);
+        return this;
+    }
+
+    /**
+     * @return 已完成时的结果，调用方直接执行handler。 null: 已压入栈
+     */
+    private Object push(Object handler, Object ctx) {
+        Node node = null;
+        for (; ; ) {
+            Object s = state;
+            if (s instanceof AsyncResult) return s;
+            if (node == null) node = new Node(handler, ctx, null);
+            node.next = (Node) s;
+            if (FutureAccess.casState(this, s, node)) return null;
+        }
+    }
+
+    /**
+     * @return 当前还未执行的handler，按添加的顺序。 完成之后不再持有handler
+     */
+    @Override
+    public List<Handler<AsyncResult<V>>> handlers() {
+        Object s = state;
+        if (!(s instanceof Node)) return Collections.emptyList();
+        List<Handler<AsyncResult<V>>> lfs = new ArrayList<>();
+        for (Node node = (Node) s; node != null; node = node.next) {
+            if (node.handler != null) lfs.add(node.asHandler());
+        }
+        Collections.reverse(lfs);
+        return Collections.unmodifiableList(lfs);
+    }
+
+    protected void ifWarningForGet() {
+        if (!isDone() && !ListenableRunFuture._Disable_Warning_Get_OnBlocking) {
+            _logger.warn("don't call #get or #get(timeout) directly, and instance of addListener or thenApply or...");
+        }
+    }
+
+    /**
+     * handler(Handler or BiHandler)或者阻塞在{@link #get()}上的线程，两者只有一个不为null
+     */
+    private static final class Node {
+        final Object handler;
+        final Object ctx;
+        volatile Thread thread;
+        volatile Node next;
+
+        Node(Object handler, Object ctx, Thread thread) {
+            this.handler = handler;
+            this.ctx = ctx;
+            this.thread = thread;
+        }
+
+        @SuppressWarnings("unchecked")
+        void fire(AsyncResult<?> ar) {
+            if (handler instanceof BiHandler) ((BiHandler<AsyncResult<?>, Object>) handler).handle(ar, ctx);
+            else ((Handler<AsyncResult<?>>) handler).handle(ar);
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> Handler<AsyncResult<V>> asHandler() {
+            return handler instanceof BiHandler ? this::fire : (Handler<AsyncResult<V>>) handler;
+        }
+
+        /**
+         * @return 已超时或者被中断的等待节点
+         */
+        boolean isDead() {
+            return handler == null && thread == null;
+        }
+    }
+
+    /**
+     * 已取消的结果
+     */
+    private static final class Cancelled<V> extends AsyncResultImpl<V> {
+        Cancelled() {
+            super(false, Failures.cancellation());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.pandora.listenable.future;
+
+import com.github.pandora.listenable.executor.ListenableExecutor;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link ListenableFuture#map}, {@link ListenableFuture#otherwise}, {@link ListenableFuture#flatMap}创建的中间结果。
+ * <p>
+ * 取消只会向上游传播到这类结果以及executor创建的{@link ListenableRunTask}：最后一个下游被取消时才取消，
+ * 同一个上游派生出多个下游时，取消其中一个不影响其他下游。 用户自己的{@link ListenablePromise}不会被下游取消
+ */
+class ListenableStage<V> extends SimpleListenableFuture<V> {
+
+    private static final AtomicIntegerFieldUpdater<ListenableStage> DEPENDENTS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ListenableStage.class, "dependents");
+
+    /**
+     * 依赖当前future的下游个数，见{@link SimpleListenableFuture#dependOn(java.util.concurrent.Future)}
+     */
+    private volatile int dependents;
+
+    ListenableStage(ListenableExecutor executor) {
+        super(executor);
+    }
+
+    final void retain() {
+        DEPENDENTS_UPDATER.incrementAndGet(this);
+    }
+
+    /**
+     * @return true: 最后一个下游也被取消了
+     */
+    final boolean release() {
+        return DEPENDENTS_UPDATER.decrementAndGet(this) == 0;
+    }
+}
@@ -1,13 +1,15 @@
 package com.github.pandora.listenable.future;
 
+import com.github.pandora.asyncResult.AsyncResult;
+import com.github.pandora.asyncResult.Failures;
 import com.github.pandora.listenable.executor.ListenableExecutor;
 
 import java.util.Objects;
-import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 可设置结果的{@link ListenableFuture}
@@ -16,12 +18,35 @@ import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
  */
 public class SimpleListenableFuture<V> extends AbstractListenableFuture<V> implements ListenablePromise<V> {
 
-    private static final AtomicReferenceFieldUpdater<SimpleListenableFuture, Object> RESULT_UPDATER =
-            AtomicReferenceFieldUpdater.newUpdater(SimpleListenableFuture.class, Object.class, "result");
+    /**
+     * {@link #get()}在park之前自旋检查的次数，默认不自旋。 对延迟敏感并且结果很快就绪的场景可以设置
+     */
+    static final int AWAIT_SPINS = Math.max(0, Integer.getInteger("pandora.future.awaitSpins", 0));
+
     private static final Object Success = new Object();  //设置结果为null
     private static final Object Canceled = new Object(); //取消future
 
-    private volatile Object result;
+    /**
+     * null: 未完成
+     * Success: 成功，结果为null
+     * Canceled: 已取消
+     * Throwable: 失败
+     * ThrowableValue: 成功，结果是Throwable
+     * 其他: 成功的结果
+     * <p>
+     * 状态字段都是包内可见的，原子操作由{@link FutureAccess}完成
+     */
+    volatile Object result;
+
+    /**
+     * 派生出当前future的上游，{@link #cancel(boolean)}时向上游传播取消。 完成之后不再引用
+     */
+    volatile Future<?> upstream;
+
+    /**
+     * 阻塞在{@link #get()}上的线程，通过CAS压入的栈。 完成时一次性取走并unpark，没有等待者时完成不需要额外的开销
+     */
+    volatile WaitNode waiters;
 
     public SimpleListenableFuture(ListenableExecutor executor) {
         super(executor);
@@ -29,10 +54,10 @@ public class SimpleListenableFuture<V> extends AbstractListenableFuture<V> imple
 
     @Override
     public boolean trySuccess(V result) {
-        if(RESULT_UPDATER.compareAndSet(this, null, result)) {
-            synchronized (this) {
-                notifyAll();
-            }
+        Object r = result == null ? Success : result instanceof Throwable ? new ThrowableValue((Throwable) result) : result;
+        if(FutureAccess.casResult(this, null, r)) {
+            if (upstream != null) FutureAccess.releaseUpstream(this);
+            releaseWaiters();
             notifyHandlers();
             return true;
         }
@@ -41,10 +66,9 @@ public class SimpleListenableFuture<V> extends AbstractListenableFuture<V> imple
 
     @Override
     public boolean tryFailure(Throwable cause) {
-         if(RESULT_UPDATER.compareAndSet(this, null, new CauseHolder(cause))) {
-             synchronized (this) {
-                 notifyAll();
-             }
+         if(FutureAccess.casResult(this, null, cause == null ? new NullPointerException("cause is null") : cause)) {
+             if (upstream != null) FutureAccess.releaseUpstream(this);
+             releaseWaiters();
              notifyHandlers();
              return true;
          }
@@ -52,22 +76,72 @@ public class SimpleListenableFuture<V> extends AbstractListenableFuture<V> imple
     }
 
     /**
+     * 取消当前future，并向派生出当前future的上游(map, flatMap等)传播取消。
+     * <p>
+     * 只传播到{@link ListenableStage}和executor创建的{@link ListenableRunTask}，并且只在派生自它的最后一个下游
+     * 被取消时才取消，同一个上游的其他下游不受影响。 上游是task时，中断正在执行的task，还未执行的task从executor的队列中移除。
+     * 用户自己的{@link ListenablePromise}以及其他的{@link Future}不会被取消
      *
-     * @param mayInterruptIfRunning ignore，忽略掉参数，该future不作为Runnable
-     * @return
+     * @param mayInterruptIfRunning 当前future不作为Runnable，传给上游
+     * @return true: 取消成功
      */
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-        if(RESULT_UPDATER.compareAndSet(this, null, Canceled)) {
+        if (!cancel0()) return false;
+        cancelUpstream(FutureAccess.getAndClearUpstream(this), mayInterruptIfRunning);
+        return true;
+    }
+
+    /**
+     * 循环处理，不随着链的长度递归
+     */
+    private static void cancelUpstream(Future<?> u, boolean mayInterruptIfRunning) {
+        while (u instanceof ListenableStage) {
+            ListenableStage<?> stage = (ListenableStage<?>) u;
+            if (!stage.release() || !((SimpleListenableFuture<?>) stage).cancel0()) return;
+            u = FutureAccess.getAndClearUpstream(stage);
+        }
+        if (u instanceof ListenableRunTask && ((ListenableRunTask<?>) u).release()) u.cancel(mayInterruptIfRunning);
+    }
+
+    private static void retain(Future<?> u) {
+        if (u instanceof ListenableStage) ((ListenableStage<?>) u).retain();
+        else if (u instanceof ListenableRunTask) ((ListenableRunTask<?>) u).retain();
+    }
+
+    private boolean cancel0() {
+        if(FutureAccess.casResult(this, null, Canceled)) {
+            releaseWaiters();
             //callback在carrierExecutor上执行
-            synchronized (this) {
-                notifyAll();
-            }
             carrierExecutor().execute(this::notifyHandlers);
+            onCancelled();
+            return true;
         }
         return false;
     }
 
+    /**
+     * 取消成功之后调用，子类释放自己持有的资源
+     */
+    void onCancelled() {
+    }
+
+    /**
+     * 记下派生出当前future的上游，计入上游的下游个数。 已被取消时，立即向该上游传播取消
+     *
+     * @param upstream 上游
+     * @return this
+     */
+    SimpleListenableFuture<V> dependOn(Future<?> upstream) {
+        retain(upstream);
+        this.upstream = upstream;
+        if (isDone()) {
+            Future<?> u = FutureAccess.getAndClearUpstream(this);
+            if (u != null && isCancelled()) cancelUpstream(u, true);
+        }
+        return this;
+    }
+
     @Override
     public boolean isCancelled() {
         return result == Canceled;
@@ -76,7 +150,7 @@ public class SimpleListenableFuture<V> extends AbstractListenableFuture<V> imple
 
     @Override
     public boolean isDone() {
-        return result != null || result == Success || result == Canceled;
+        return result != null;
     }
 
     @Override
@@ -90,6 +164,19 @@ public class SimpleListenableFuture<V> extends AbstractListenableFuture<V> imple
         return result0();
     }
 
+    /**
+     * 与{@link #get()}相同，主动等待不打印警告
+     */
+    @Override
+    public V await() throws InterruptedException, ExecutionException {
+        try {
+            await(0,  false);
+        } catch (TimeoutException e) {
+            //not timeout
+        }
+        return result0();
+    }
+
     @Override
     public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
         if(timeout <= 0) throw new IllegalArgumentException("timeout be > 0");
@@ -100,44 +187,124 @@ public class SimpleListenableFuture<V> extends AbstractListenableFuture<V> imple
     }
 
     /**
+     * 先按{@link #AWAIT_SPINS}自旋，然后把当前线程压入{@link #waiters}并park，直到完成、超时或者被中断
      *
-     * @param timeoutNs 纳秒 -1: 没有超时
+     * @param timeoutNs 纳秒，ifTimeout为false时忽略
      */
     private void await(long timeoutNs, boolean ifTimeout) throws InterruptedException, TimeoutException {
         if(isDone()) return;
         if(Thread.interrupted()) throw new InterruptedException();
-        long startTime = 0;
-        if(ifTimeout) startTime = System.nanoTime();
-        synchronized (this) {
-            while (!isDone()) {
-                if(ifTimeout) {
-                    wait(timeoutNs / 1000000, (int)(timeoutNs % 1000000));
-                } else {
-                    wait();
+        for (int i = AWAIT_SPINS; i > 0; i--) {
+            if(isDone()) return;
+            FutureAccess.onSpinWait();
+        }
+        long deadline = ifTimeout ? System.nanoTime() + timeoutNs : 0L;
+        WaitNode node = null;
+        boolean queued = false;
+        for (; ; ) {
+            if(isDone()) {
+                if(node != null) node.thread = null;
+                return;
+            }
+            if(node == null) {
+                node = new WaitNode();
+            } else if(!queued) {
+                WaitNode h = waiters;
+                node.next = h;
+                queued = FutureAccess.casWaiters(this, h, node);
+            } else if(ifTimeout) {
+                long nanos = deadline - System.nanoTime();
+                if(nanos <= 0L) {
+                    removeWaiter(node);
+                    throw new TimeoutException();
+                }
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+            if(Thread.interrupted()) {
+                removeWaiter(node);
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * 完成之后调用，取走所有等待者并unpark
+     */
+    private void releaseWaiters() {
+        WaitNode node;
+        while ((node = waiters) != null) {
+            if(FutureAccess.casWaiters(this, node, null)) {
+                for (; node != null; node = node.next) {
+                    Thread t = node.thread;
+                    if(t != null) {
+                        node.thread = null;
+                        LockSupport.unpark(t);
+                    }
                 }
-                if(ifTimeout) {
-                    long now = System.nanoTime();
-                    timeoutNs = timeoutNs - (now - startTime);
-                    startTime = now;
-                    if(timeoutNs <= 0) throw new TimeoutException();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 超时或者中断时，把thread已清空的节点从栈中摘掉，避免一直超时的调用者堆积节点
+     */
+    private void removeWaiter(WaitNode node) {
+        if(node == null) return;
+        node.thread = null;
+        retry:
+        for (; ; ) {
+            for (WaitNode pred = null, q = waiters, next; q != null; q = next) {
+                next = q.next;
+                if(q.thread != null) {
+                    pred = q;
+                } else if(pred != null) {
+                    pred.next = next;
+                    if(pred.thread == null) continue retry;  //pred也被并发摘掉了，重新遍历
+                } else if(!FutureAccess.casWaiters(this, q, next)) {
+                    continue retry;
                 }
             }
+            return;
         }
     }
 
     private V result0() throws ExecutionException {
-        if(result == Success) return null;
-        else if(result == Canceled) throw new CancellationException();
-        else if(result instanceof CauseHolder) throw new ExecutionException(((CauseHolder)result).cause);
-        return (V) result;
+        Object r = FutureAccess.result(this);
+        if(r == Success) return null;
+        else if(r == Canceled) throw Failures.cancellation();
+        else if(r instanceof Throwable) throw new ExecutionException((Throwable) r);
+        else if(r instanceof ThrowableValue) return (V) ((ThrowableValue) r).value;
+        return (V) r;
     }
 
+    /**
+     * 直接由result包装，不经过{@link #get()}，失败时不会创建{@link ExecutionException}
+     */
+    @Override
+    protected AsyncResult<V> getAsAsyncResult() {
+        Object r = FutureAccess.result(this);
+        if(r == Canceled) return AsyncResult.failed(Failures.cancellation());
+        else if(r instanceof Throwable) return AsyncResult.failed((Throwable) r);
+        else if(r instanceof ThrowableValue) return AsyncResult.succeeded((V) ((ThrowableValue) r).value);
+        return AsyncResult.succeeded(r == Success ? null : (V) r);
+    }
 
+    static final class WaitNode {
+        volatile Thread thread = Thread.currentThread();
+        volatile WaitNode next;
+    }
+
+    /**
+     * 成功的结果本身是Throwable时，用这个包起来与失败区分
+     */
+    private static final class ThrowableValue {
+        final Throwable value;
 
-    private static class CauseHolder {
-        public Throwable cause;
-        public CauseHolder(Throwable cause) {
-            this.cause = cause;
+        ThrowableValue(Throwable value) {
+            this.value = value;
         }
     }
 
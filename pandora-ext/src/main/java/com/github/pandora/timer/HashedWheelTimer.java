@@ -0,0 +1,349 @@
+package com.github.pandora.timer;
+
+import com.github.pandora.asyncResult.Failures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 参考Netty的HashedWheelTimer
+ * <p>
+ * 时间轮：wheel是一个环形数组，每隔{@link #tickDuration}往前走一格，到期时间落在同一格上的timeout用一个双向链表串起来。
+ * 添加和取消都是O(1)，不像{@link java.util.concurrent.ScheduledExecutorService}那样每次要O(log n)的堆操作，
+ * 适合大量并存、绝大多数会被提前取消的超时。代价是精度只到{@link #tickDuration}。
+ * <p>
+ * 只有一个worker线程操作wheel。其他线程添加、取消的timeout先放进队列，由worker在每一格开始时转移到wheel上或从wheel上移除。
+ * <p>
+ * note: 到期的task直接执行在worker线程上，不要在task里做耗时的操作，否则会推迟之后所有的timeout。
+ * <p>
+ * {@link #shared()}是pandora共享的timer，默认每格10ms，一圈512格，不能被{@link #stop()}。
+ * -Dpandora.timer.tickDuration=N(ms), -Dpandora.timer.ticksPerWheel=N 可修改
+ */
+public class HashedWheelTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final AtomicIntegerFieldUpdater<HashedWheelTimer> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(HashedWheelTimer.class, "state");
+
+    private static final int INIT = 0;
+    private static final int STARTED = 1;
+    private static final int STOPPED = 2;
+
+    private final long tickDuration;   //纳秒
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime;      //所有timeout的deadline都相对于startTime
+    private final Thread workerThread;
+    private final boolean shared;
+
+    private final Queue<TimeoutImpl> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<TimeoutImpl> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+
+    private volatile int state = INIT;
+
+    /**
+     * worker线程已走过的格数，只有worker线程访问
+     */
+    private long tick;
+
+    private static final class Shared {
+        static final HashedWheelTimer TIMER = new HashedWheelTimer("pandora-timer",
+                Long.getLong("pandora.timer.tickDuration", 10), TimeUnit.MILLISECONDS,
+                Integer.getInteger("pandora.timer.ticksPerWheel", 512), true);
+    }
+
+    /**
+     * @return pandora共享的timer，第一次添加timeout时启动，worker是daemon线程。 整个JVM共用，不能停止
+     */
+    public static HashedWheelTimer shared() {
+        return Shared.TIMER;
+    }
+
+    /**
+     * @param threadName    worker线程的名字
+     * @param tickDuration  每一格的时长
+     * @param unit          tickDuration的单位
+     * @param ticksPerWheel 一圈的格数，向上取整到2的幂
+     */
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(threadName, tickDuration, unit, ticksPerWheel, false);
+    }
+
+    private HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel, boolean shared) {
+        Objects.requireNonNull(threadName, "threadName");
+        Objects.requireNonNull(unit, "unit");
+        if (tickDuration <= 0) throw new IllegalArgumentException("tickDuration must be > 0");
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) throw new IllegalArgumentException("ticksPerWheel: " + ticksPerWheel);
+
+        int size = 1;
+        while (size < ticksPerWheel) size <<= 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.tickDuration = Math.max(unit.toNanos(tickDuration), 1000000);  //最小1ms
+        if (this.tickDuration >= Long.MAX_VALUE / size) throw new IllegalArgumentException("tickDuration is too long");
+
+        this.startTime = System.nanoTime();
+        this.workerThread = new Thread(this::work, threadName);
+        this.workerThread.setDaemon(true);
+        this.shared = shared;
+    }
+
+    /**
+     * 添加一个在delay之后执行的task
+     *
+     * @param task  到期时执行，执行在worker线程上
+     * @param delay 延迟
+     * @param unit  delay的单位
+     * @return 可取消的{@link Timeout}
+     * @throws java.util.concurrent.RejectedExecutionException timer已停止
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Objects.requireNonNull(task, "task");
+        Objects.requireNonNull(unit, "unit");
+        start();
+        long now = System.nanoTime() - startTime;
+        long deadline = now + unit.toNanos(delay);
+        if (delay > 0 && deadline < 0) deadline = Long.MAX_VALUE; //溢出
+        TimeoutImpl timeout = new TimeoutImpl(this, task, deadline);
+        pending.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return 还未到期、未取消的timeout数
+     */
+    public long pendingTimeouts() {
+        return pending.get();
+    }
+
+    /**
+     * 停止timer，还未到期的timeout不再执行
+     *
+     * @return 还未到期的timeout
+     * @throws IllegalStateException 在timer的task中调用，或者是{@link #shared()}
+     */
+    public List<Timeout> stop() {
+        if (shared) throw new IllegalStateException("can't stop the shared timer");
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException("can't stop the timer from its TimerTask");
+        }
+        if (STATE_UPDATER.getAndSet(this, STOPPED) != STARTED) return Collections.emptyList();
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(100);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        List<Timeout> unprocessed = new ArrayList<>();
+        for (Bucket bucket : wheel) bucket.clear(unprocessed);
+        TimeoutImpl timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (!timeout.isCancelled()) unprocessed.add(timeout);
+        }
+        return unprocessed;
+    }
+
+    private void start() {
+        int s = state;
+        if (s == STARTED) return;
+        if (s == INIT && STATE_UPDATER.compareAndSet(this, INIT, STARTED)) {
+            workerThread.start();
+            return;
+        }
+        if (state == STOPPED) throw Failures.rejected("timer is stopped");
+    }
+
+    private void work() {
+        while (state == STARTED) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) continue;  //被stop中断
+            try {
+                processCancelledTimeouts();
+                transferTimeoutsToBuckets();
+                wheel[(int) (tick & mask)].expireTimeouts(deadline);
+            } catch (Throwable e) {
+                //worker退出之后所有的timeout都不会再到期，shared()还是整个JVM共用的
+                logger.error("timer worker failed, continue with next tick.", e);
+            }
+            tick++;
+        }
+    }
+
+    /**
+     * 等到下一格开始
+     *
+     * @return 当前时间(相对于startTime)，被中断时返回-1
+     */
+    private long waitForNextTick() {
+        long deadline = tickDuration * (tick + 1);
+        for (; ; ) {
+            long current = System.nanoTime() - startTime;
+            long sleepMs = (deadline - current + 999999) / 1000000;
+            if (sleepMs <= 0) return current;
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                if (state == STOPPED) return -1;
+            }
+        }
+    }
+
+    private void transferTimeoutsToBuckets() {
+        //每一格最多转移10w个，防止添加太快时worker一直转移而不执行到期的timeout
+        for (int i = 0; i < 100000; i++) {
+            TimeoutImpl timeout = pendingTimeouts.poll();
+            if (timeout == null) break;
+            if (timeout.isCancelled()) continue;  //已经取消了，还没放到wheel上
+
+            long calculated = timeout.deadline / tickDuration;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);  //已经过期的，放在当前格上
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        TimeoutImpl timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            Bucket bucket = timeout.bucket;
+            if (bucket != null) bucket.remove(timeout);
+        }
+    }
+
+    private static final class TimeoutImpl implements Timeout {
+
+        private static final AtomicIntegerFieldUpdater<TimeoutImpl> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(TimeoutImpl.class, "state");
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+
+        private volatile int state = ST_INIT;
+
+        /**
+         * 以下字段只有worker线程访问
+         */
+        long remainingRounds;
+        TimeoutImpl next;
+        TimeoutImpl prev;
+        Bucket bucket;
+
+        TimeoutImpl(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) return false;
+            timer.pending.decrementAndGet();
+            timer.cancelledTimeouts.add(this);  //由worker从wheel上移除
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) return;
+            timer.pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.warn("execute timer task failed.", e);
+            }
+        }
+    }
+
+    /**
+     * wheel上的一格，timeout的双向链表。 只有worker线程访问
+     */
+    private static final class Bucket {
+
+        private TimeoutImpl head;
+        private TimeoutImpl tail;
+
+        void add(TimeoutImpl timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts(long deadline) {
+            TimeoutImpl timeout = head;
+            while (timeout != null) {
+                TimeoutImpl next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline > deadline) {
+                        //不应该发生，提前到期好过永远不到期
+                        logger.error(String.format("timeout.deadline (%d) > deadline (%d), expire it now",
+                                timeout.deadline, deadline));
+                    }
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(TimeoutImpl timeout) {
+            if (timeout.bucket != this) return;  //已经移除过了
+            TimeoutImpl next = timeout.next;
+            if (timeout.prev != null) timeout.prev.next = next;
+            if (next != null) next.prev = timeout.prev;
+            if (timeout == head) head = next;
+            if (timeout == tail) tail = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void clear(List<Timeout> unprocessed) {
+            TimeoutImpl timeout;
+            while ((timeout = head) != null) {
+                remove(timeout);
+                if (!timeout.isCancelled() && !timeout.isExpired()) unprocessed.add(timeout);
+            }
+        }
+    }
+}
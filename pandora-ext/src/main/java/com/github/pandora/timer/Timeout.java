@@ -0,0 +1,24 @@
+package com.github.pandora.timer;
+
+/**
+ * {@link HashedWheelTimer#newTimeout}返回的句柄
+ */
+public interface Timeout {
+
+    /**
+     * 取消还未执行的task，并尽快从时间轮上移除，释放占用的位置
+     *
+     * @return true: 取消成功，false: 已执行或已取消
+     */
+    boolean cancel();
+
+    /**
+     * @return 是否已取消
+     */
+    boolean isCancelled();
+
+    /**
+     * @return 是否已到期(task已执行或正在执行)
+     */
+    boolean isExpired();
+}
@@ -0,0 +1,38 @@
+package com.github.pandora.utils;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程(JDK 21)的入口。
+ * <p>
+ * java8的实现，不支持虚拟线程。 jar是multi-release的，java21+上加载src/main/java21下的同名类，
+ * 基于{@code Executors#newVirtualThreadPerTaskExecutor()}和{@code Thread#isVirtual()}
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true: 当前运行时支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * @param thread 线程
+     * @return true: thread是虚拟线程
+     */
+    public static boolean isVirtual(Thread thread) {
+        return false;
+    }
+
+    /**
+     * @return 每个task一个虚拟线程的executor
+     * @throws UnsupportedOperationException 当前运行时不支持虚拟线程
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        throw new UnsupportedOperationException("virtual threads require java 21+");
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.pandora.asyncResult;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * {@link CompletableResultImpl}状态字段的原子操作。
+ * <p>
+ * java9+的实现，multi-release jar中位于META-INF/versions/9，基于static final的{@link VarHandle}，
+ * 访问时没有{@link java.util.concurrent.atomic.AtomicReferenceFieldUpdater}的类型检查，
+ * 读结果使用acquire，释放上游使用release
+ */
+final class CompletableResultAccess {
+
+    private static final VarHandle RESULT;
+    private static final VarHandle HANDLERS;
+    private static final VarHandle UPSTREAM;
+    private static final VarHandle VIEW;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            RESULT = lookup.findVarHandle(CompletableResultImpl.class, "result", Object.class);
+            HANDLERS = lookup.findVarHandle(CompletableResultImpl.class, "handlers", Object.class);
+            UPSTREAM = lookup.findVarHandle(CompletableResultImpl.class, "upstream", Object.class);
+            VIEW = lookup.findVarHandle(CompletableResultImpl.class, "view", CompletableFutureView.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private CompletableResultAccess() {
+    }
+
+    static Object result(CompletableResultImpl<?> r) {
+        return RESULT.getAcquire(r);
+    }
+
+    static boolean casResult(CompletableResultImpl<?> r, Object expect, Object update) {
+        return RESULT.compareAndSet(r, expect, update);
+    }
+
+    static boolean casHandlers(CompletableResultImpl<?> r, Object expect, Object update) {
+        return HANDLERS.compareAndSet(r, expect, update);
+    }
+
+    static Object getAndSetHandlers(CompletableResultImpl<?> r, Object value) {
+        return HANDLERS.getAndSet(r, value);
+    }
+
+    static Object getAndClearUpstream(CompletableResultImpl<?> r) {
+        return UPSTREAM.getAndSet(r, null);
+    }
+
+    static void releaseUpstream(CompletableResultImpl<?> r) {
+        UPSTREAM.setRelease(r, null);
+    }
+
+    static boolean casView(CompletableResultImpl<?> r, CompletableFutureView<?> expect, CompletableFutureView<?> update) {
+        return VIEW.compareAndSet(r, expect, update);
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.pandora.listenable.future;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.Future;
+
+/**
+ * {@link SimpleListenableFuture}，{@link ListenableRunTask}，{@link AbstractListenableFuture}状态字段的原子操作。
+ * <p>
+ * java9+的实现，multi-release jar中位于META-INF/versions/9，基于static final的{@link VarHandle}，
+ * 读结果使用acquire，只需要发布的写使用release，自旋使用{@link Thread#onSpinWait()}
+ */
+final class FutureAccess {
+
+    private static final VarHandle RESULT;
+    private static final VarHandle UPSTREAM;
+    private static final VarHandle WAITERS;
+    private static final VarHandle STATE;
+    private static final VarHandle RUNNER;
+    private static final VarHandle HANDLERS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            RESULT = lookup.findVarHandle(SimpleListenableFuture.class, "result", Object.class);
+            UPSTREAM = lookup.findVarHandle(SimpleListenableFuture.class, "upstream", Future.class);
+            WAITERS = lookup.findVarHandle(SimpleListenableFuture.class, "waiters", SimpleListenableFuture.WaitNode.class);
+            STATE = lookup.findVarHandle(ListenableRunTask.class, "state", Object.class);
+            RUNNER = lookup.findVarHandle(ListenableRunTask.class, "runner", Object.class);
+            HANDLERS = lookup.findVarHandle(AbstractListenableFuture.class, "handlers", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private FutureAccess() {
+    }
+
+    //================================ SimpleListenableFuture ==================================
+
+    static Object result(SimpleListenableFuture<?> f) {
+        return RESULT.getAcquire(f);
+    }
+
+    static boolean casResult(SimpleListenableFuture<?> f, Object expect, Object update) {
+        return RESULT.compareAndSet(f, expect, update);
+    }
+
+    static Future<?> getAndClearUpstream(SimpleListenableFuture<?> f) {
+        return (Future<?>) UPSTREAM.getAndSet(f, (Future<?>) null);
+    }
+
+    static void releaseUpstream(SimpleListenableFuture<?> f) {
+        UPSTREAM.setRelease(f, (Future<?>) null);
+    }
+
+    static boolean casWaiters(SimpleListenableFuture<?> f, SimpleListenableFuture.WaitNode expect, SimpleListenableFuture.WaitNode update) {
+        return WAITERS.compareAndSet(f, expect, update);
+    }
+
+    //================================ ListenableRunTask ==================================
+
+    static Object state(ListenableRunTask<?> t) {
+        return STATE.getAcquire(t);
+    }
+
+    static boolean casState(ListenableRunTask<?> t, Object expect, Object update) {
+        return STATE.compareAndSet(t, expect, update);
+    }
+
+    static boolean casRunner(ListenableRunTask<?> t, Object expect, Object update) {
+        return RUNNER.compareAndSet(t, expect, update);
+    }
+
+    static void releaseRunner(ListenableRunTask<?> t, Object value) {
+        RUNNER.setRelease(t, value);
+    }
+
+    //================================ AbstractListenableFuture ==================================
+
+    static boolean casHandlers(AbstractListenableFuture<?> f, Object expect, Object update) {
+        return HANDLERS.compareAndSet(f, expect, update);
+    }
+
+    static Object getAndSetHandlers(AbstractListenableFuture<?> f, Object value) {
+        return HANDLERS.getAndSet(f, value);
+    }
+
+    static void onSpinWait() {
+        Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AggregateResultTest {
+
+    @Test
+    public void all() {
+        Promise<String> p1 = Promise.promise();
+        Promise<String> p2 = Promise.promise();
+        CompletableResult<List<String>> all = Async.all(Arrays.asList(p1, p2, Async.succeededFuture("c")));
+        p2.setSuccess("b");
+        assertFalse(all.isCompleted());
+        p1.setSuccess("a");
+        assertTrue(all.succeeded());
+        assertEquals(Arrays.asList("a", "b", "c"), all.result());
+
+        Promise<String> p3 = Promise.promise();
+        RuntimeException err = new RuntimeException("all");
+        CompletableResult<List<String>> failed = Async.all(Arrays.asList(p3, Async.failedFuture(err)));
+        assertTrue(failed.failed());  //不等p3，立即失败
+        assertSame(err, failed.cause());
+
+        assertEquals(Collections.emptyList(), Async.<String>all(Collections.emptyList()).result());
+    }
+
+    @Test
+    public void any() {
+        Promise<String> p1 = Promise.promise();
+        Promise<String> p2 = Promise.promise();
+        CompletableResult<String> any = Async.any(Arrays.asList(p1, p2));
+        p1.setFailure(new RuntimeException("p1"));
+        assertFalse(any.isCompleted());
+        p2.setSuccess("p2");
+        assertEquals("p2", any.result());
+
+        RuntimeException e1 = new RuntimeException("e1");
+        RuntimeException e2 = new RuntimeException("e2");
+        CompletableResult<String> failed = Async.any(Arrays.asList(Async.failedFuture(e1), Async.failedFuture(e2)));
+        assertTrue(failed.cause() instanceof CompositeException);
+        assertEquals(Arrays.asList(e1, e2), ((CompositeException) failed.cause()).causes());
+        assertSame(e1, failed.cause().getCause());
+
+        assertTrue(Async.<String>any(Collections.emptyList()).failed());
+    }
+
+    @Test
+    public void join() {
+        Promise<String> p1 = Promise.promise();
+        RuntimeException e2 = new RuntimeException("e2");
+        RuntimeException e3 = new RuntimeException("e3");
+        CompletableResult<List<String>> join = Async.join(Arrays.asList(p1, Async.failedFuture(e2), Async.failedFuture(e3)));
+        assertFalse(join.isCompleted());  //等待所有的输入
+        p1.setSuccess("p1");
+        assertTrue(join.cause() instanceof CompositeException);
+        assertEquals(Arrays.asList(e2, e3), ((CompositeException) join.cause()).causes());
+
+        Throwable value = new IllegalStateException("value");
+        CompletableResult<List<Throwable>> succeeded = Async.join(Arrays.asList(Async.succeededFuture(value)));
+        assertEquals(Collections.singletonList(value), succeeded.result());
+    }
+
+    @Test
+    public void concurrent() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        int size = 10000;
+        List<Promise<Integer>> promises = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) promises.add(Promise.promise());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Async.all(promises).addHandler(ar -> {
+            assertTrue(ar.succeeded());
+            List<Integer> result = ar.result();
+            for (int i = 0; i < size; i++) assertEquals(i, (int) result.get(i));
+            latch.countDown();
+        });
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            executor.execute(() -> promises.get(index).setSuccess(index));
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void snapshot() {
+        //size()与遍历的个数不一致，比如遍历时集合正在被修改
+        List<Future<String>> inputs = Arrays.asList(Async.succeededFuture("a"), Async.succeededFuture("b"));
+        CompletableResult<List<String>> all = Async.all(new AbstractCollection<Future<String>>() {
+            @Override
+            public Iterator<Future<String>> iterator() {
+                return inputs.iterator();
+            }
+
+            @Override
+            public int size() {
+                return 3;
+            }
+        });
+        assertEquals(Arrays.asList("a", "b"), all.result());
+    }
+
+    @Test
+    public void cancel() {
+        Promise<String> p1 = Promise.promise();
+        Promise<String> p2 = Promise.promise();
+        Future<String> m1 = p1.toFuture().map(s -> s);
+        Future<String> m2 = p2.toFuture().map(s -> s);
+        CompletableResult<List<String>> all = Async.all(Arrays.asList(m1, m2));
+        assertTrue(all.cancel());
+        //取消传播到所有的输入，停在用户自己的Promise上
+        assertTrue(m1.isCancelled());
+        assertTrue(m2.isCancelled());
+        assertFalse(p1.toFuture().isCompleted());
+        assertFalse(p2.toFuture().isCompleted());
+
+        Future<String> m3 = p1.toFuture().map(s -> s);
+        Future<String> m4 = p2.toFuture().map(s -> s);
+        CompletableResult<String> any = Async.any(Arrays.asList(m3, m4));
+        assertTrue(any.cancel());
+        assertTrue(m3.isCancelled());
+        assertTrue(m4.isCancelled());
+    }
+
+    @Test
+    public void suppressed() {
+        CompositeException e = new CompositeException(Collections.singletonList(new RuntimeException()));
+        e.addSuppressed(new IllegalStateException());
+        assertEquals(1, e.getSuppressed().length);
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.utils.VirtualThreads;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncRunnerTest {
+
+    @Test
+    public void sequential() throws Exception {
+        Promise<Integer> first = Async.promise();
+        Promise<Integer> second = Async.promise();
+        CompletableResult<Integer> sum = Async.async(() -> {
+            assertEquals(VirtualThreads.isSupported(), VirtualThreads.isVirtual(Thread.currentThread()));
+            return Async.await(first) + Async.await(second) + Async.await(Async.succeededFuture(1));
+        });
+        first.trySuccess(1);
+        second.trySuccess(2);
+        assertEquals(Integer.valueOf(4), sum.toCompletableFuture().get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * await原样抛出失败的异常，body中可以直接catch
+     */
+    @Test
+    public void failureRethrown() throws Exception {
+        CompletableResult<String> result = Async.async(() -> {
+            try {
+                return Async.await(Async.<String>failedFuture(new IOException("io")));
+            } catch (IOException e) {
+                return "caught " + e.getMessage();
+            }
+        });
+        assertEquals("caught io", result.toCompletableFuture().get(5, TimeUnit.SECONDS));
+
+        CompletableResult<String> failed = Async.async(() -> {
+            throw new IllegalStateException("boom");
+        });
+        failed.toCompletableFuture().handle((r, e) -> null).get(5, TimeUnit.SECONDS);
+        assertTrue(failed.cause() instanceof IllegalStateException);
+    }
+
+    /**
+     * 取消时中断body，正在进行的await抛出InterruptedException
+     */
+    @Test
+    public void cancelInterruptsBody() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Throwable> seen = new CompletableFuture<>();
+        CompletableResult<Object> result = Async.async(() -> {
+            started.countDown();
+            try {
+                return Async.await(Async.promise());
+            } catch (Throwable e) {
+                seen.complete(e);
+                throw e;
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(result.toFuture().cancel());
+        assertTrue(seen.get(5, TimeUnit.SECONDS) instanceof InterruptedException);
+        assertTrue(result.cause() instanceof CancellationException);
+    }
+
+    /**
+     * 被中断的await摘掉自己的handler，不在长期未完成的结果上堆积
+     */
+    @Test
+    public void interruptedAwaitRemovesHandler() throws Exception {
+        Promise<String> promise = Async.promise();
+        CompletableResultImpl<String> impl = (CompletableResultImpl<String>) promise;
+        promise.toFuture().addHandler(ar -> {});
+        for (int i = 0; i < 100; i++) {
+            CountDownLatch waiting = new CountDownLatch(1);
+            CompletableFuture<Throwable> seen = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                waiting.countDown();
+                try {
+                    Async.await(promise);
+                    seen.complete(null);
+                } catch (Throwable e) {
+                    seen.complete(e);
+                }
+            });
+            thread.start();
+            assertTrue(waiting.await(5, TimeUnit.SECONDS));
+            thread.interrupt();
+            assertTrue(seen.get(5, TimeUnit.SECONDS) instanceof InterruptedException);
+        }
+        assertEquals(1, impl.handlers().size());
+        promise.trySuccess("done");
+        assertEquals("done", Async.await(promise));
+    }
+
+    /**
+     * 平台线程池有界，线程和队列都满了时拒绝
+     */
+    @Test
+    public void platformBounded() throws Exception {
+        ListenableExecutor platform = AsyncRunner.platform(1, 1);
+        Promise<Integer> gate = Async.promise();
+        CompletableResult<Integer> running = AsyncRunner.run(() -> Async.await(gate), platform);
+        CompletableResult<Integer> queued = AsyncRunner.run(() -> Async.await(gate) + 1, platform);
+        CompletableResult<Integer> rejected = AsyncRunner.run(() -> 0, platform);
+        assertTrue(rejected.cause() instanceof RejectedExecutionException);
+        gate.trySuccess(1);
+        assertEquals(Integer.valueOf(1), running.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), queued.toCompletableFuture().get(5, TimeUnit.SECONDS));
+    }
+}
@@ -3,6 +3,8 @@ package com.github.pandora.asyncResult;
 
 import org.junit.Test;
 
+import java.util.concurrent.*;
+
 import static org.junit.Assert.*;
 
 public class AsyncableTest {
@@ -31,4 +33,52 @@ public class AsyncableTest {
         assertNotNull(failed.toFuture());
         assertNotNull(pending.toFuture());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void await() throws Exception {
+        assertEquals("", succeeded.await());
+        try {
+            failed.await();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof Error);
+        }
+        Promise<String> promise = Async.promise();
+        promise.toFuture().cancel();
+        try {
+            promise.await();
+            fail();
+        } catch (CancellationException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void awaitPending() throws Exception {
+        Promise<String> promise = Async.promise();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.schedule(() -> promise.trySuccess("done"), 50, TimeUnit.MILLISECONDS);
+            assertEquals("done", promise.await());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void awaitInterrupted() throws Exception {
+        Promise<String> promise = Async.promise();
+        CompletableFuture<Throwable> error = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+            try {
+                promise.await();
+            } catch (Throwable e) {
+                error.complete(e);
+            }
+        });
+        t.start();
+        t.interrupt();
+        assertTrue(error.get(5, TimeUnit.SECONDS) instanceof InterruptedException);
+        assertTrue(promise.trySuccess("late")); //等待者已退出，完成时不受影响
+    }
+}
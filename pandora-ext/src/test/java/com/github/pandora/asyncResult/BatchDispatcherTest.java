@@ -0,0 +1,153 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchDispatcherTest {
+
+    private static final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void fanOutSubmittedInChunks() throws Exception {
+        CountingExecutor executor = new CountingExecutor(pool);
+        Executor batching = Async.batching(executor);
+        Promise<Integer> promise = Promise.promise();
+        int n = 200;
+        List<CompletableResult<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int delta = i;
+            results.add(promise.toCompletableResult().thenApplyAsync(v -> v + delta, batching));
+        }
+        promise.setSuccess(1);
+        for (int i = 0; i < n; i++) {
+            assertEquals(Integer.valueOf(1 + i), results.get(i).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        }
+        assertEquals((n + BatchDispatcher.BATCH_SIZE - 1) / BatchDispatcher.BATCH_SIZE, executor.count.get());
+    }
+
+    @Test
+    public void groupedByExecutor() throws Exception {
+        CountingExecutor a = new CountingExecutor(pool);
+        CountingExecutor b = new CountingExecutor(pool);
+        Executor batchingA = Async.batching(a);
+        Executor batchingB = Async.batching(b);
+        Promise<String> promise = Promise.promise();
+        Future<String> fut = promise.toFuture();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(fut.map(s -> s + "a", batchingA));
+            results.add(fut.flatMap(s -> Async.succeededFuture(s + "b"), batchingB));
+        }
+        promise.setSuccess("x");
+        for (Future<String> result : results) {
+            assertTrue(result.toCompletableResult().toCompletableFuture().get(5, TimeUnit.SECONDS).startsWith("x"));
+        }
+        assertEquals(1, a.count.get());
+        assertEquals(1, b.count.get());
+    }
+
+    @Test
+    public void rejectFailsWholeChunk() {
+        Executor reject = Async.batching(command -> {
+            throw new RejectedExecutionException("rejected");
+        });
+        Promise<Integer> promise = Promise.promise();
+        List<CompletableResult<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(promise.toCompletableResult().thenApplyAsync(v -> v, reject));
+        }
+        promise.setSuccess(1);
+        for (CompletableResult<Integer> result : results) {
+            assertTrue(result.failed());
+            assertTrue(result.cause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * 用户handler阻塞等待前面的continuation，合并的continuation必须先提交
+     */
+    @Test
+    public void flushedBeforeUserHandler() throws Exception {
+        CountingExecutor counting = new CountingExecutor(pool);
+        Executor executor = Async.batching(counting);
+        Promise<Integer> promise = Promise.promise();
+        CompletableResult<Integer> first = promise.toCompletableResult().thenApplyAsync(v -> v + 1, executor);
+        CompletableResult<Integer> second = promise.toCompletableResult().thenApplyAsync(v -> v + 2, executor);
+        CompletableFuture<Integer> seen = new CompletableFuture<>();
+        promise.toFuture().addHandler(ar -> {
+            try {
+                seen.complete(first.toCompletableFuture().get(5, TimeUnit.SECONDS) + second.toCompletableFuture().get(5, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                seen.completeExceptionally(e);
+            }
+        });
+        CompletableResult<Integer> third = promise.toCompletableResult().thenApplyAsync(v -> v + 3, executor);
+        promise.setSuccess(0);
+        assertEquals(Integer.valueOf(3), seen.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(3), third.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(2, counting.count.get());
+    }
+
+    @Test
+    public void failureNotBatched() throws Exception {
+        CountingExecutor counting = new CountingExecutor(pool);
+        Executor executor = Async.batching(counting);
+        Promise<Integer> promise = Promise.promise();
+        CompletableResult<Integer> map = promise.toCompletableResult().thenApplyAsync(v -> v, executor);
+        CompletableResult<String> handle = promise.toCompletableResult().handleAsync((v, e) -> e.getMessage(), executor);
+        CompletableResult<String> handle1 = promise.toCompletableResult().handleAsync((v, e) -> e.getMessage(), executor);
+        promise.setFailure(new IllegalStateException("boom"));
+        assertEquals("boom", handle.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals("boom", handle1.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertTrue(map.failed());
+        assertEquals(2, counting.count.get());
+    }
+
+    @Test
+    public void optInPerExecutor() throws Exception {
+        CountingExecutor batched = new CountingExecutor(pool);
+        CountingExecutor plain = new CountingExecutor(pool);
+        Executor batching = Async.batching(batched);
+        assertSame(batching, Async.batching(batching));
+        Promise<Integer> promise = Promise.promise();
+        List<CompletableResult<Integer>> results = new ArrayList<>();
+        //没有开启合并提交的continuation可能在当前线程上执行，之前已收集的先提交，这里分开添加
+        for (int i = 0; i < 3; i++) results.add(promise.toCompletableResult().thenApplyAsync(v -> v, batching));
+        for (int i = 0; i < 3; i++) results.add(promise.toCompletableResult().thenApplyAsync(v -> v, plain));
+        promise.setSuccess(1);
+        for (CompletableResult<Integer> result : results) {
+            assertEquals(Integer.valueOf(1), result.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, batched.count.get());
+        //没有包装的executor只在-Denable.pandora.batchDispatch=true时合并
+        assertEquals(BatchDispatcher.ENABLED ? 1 : 3, plain.count.get());
+    }
+
+    private static final class CountingExecutor implements Executor {
+
+        final AtomicInteger count = new AtomicInteger();
+        final Executor delegate;
+
+        CountingExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            count.incrementAndGet();
+            delegate.execute(command);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BiStageTest {
+
+    @Test
+    public void both() {
+        Promise<String> p1 = Promise.promise();
+        CompletableFuture<Integer> cf = new CompletableFuture<>();
+        CompletableResult<String> combined = p1.toCompletableResult().thenCombine(cf, (s, i) -> s + i);
+        p1.setSuccess("a");
+        assertFalse(combined.isCompleted());
+        cf.complete(1);
+        assertEquals("a1", combined.result());
+
+        AtomicInteger count = new AtomicInteger();
+        Promise<String> p2 = Promise.promise();
+        Promise<String> p3 = Promise.promise();
+        CompletableResult<Void> accepted = p2.toCompletableResult().thenAcceptBoth(p3.toCompletableResult(), (a, b) -> count.incrementAndGet());
+        CompletableResult<Void> ran = p2.toCompletableResult().runAfterBoth(p3.toCompletableResult(), count::incrementAndGet);
+        p3.setSuccess("c");
+        p2.setSuccess("b");
+        assertTrue(accepted.succeeded());
+        assertTrue(ran.succeeded());
+        assertEquals(2, count.get());
+    }
+
+    @Test
+    public void bothFailed() {
+        Promise<String> p1 = Promise.promise();
+        Promise<String> p2 = Promise.promise();
+        RuntimeException err = new RuntimeException("both");
+        CompletableResult<String> combined = p1.toCompletableResult().thenCombine(p2.toCompletableResult(), (a, b) -> a + b);
+        p2.setFailure(err);
+        assertSame(err, combined.cause());  //不等另一边
+        p1.setSuccess("a");
+        assertSame(err, combined.cause());
+
+        Executor rejected = command -> {
+            throw new RejectedExecutionException("rejected");
+        };
+        Promise<String> p3 = Promise.promise();
+        CompletableResult<String> fut = p3.toCompletableResult().thenCombineAsync(Async.succeededStage("b"), (a, b) -> a + b, rejected);
+        p3.setSuccess("a");
+        assertTrue(fut.cause() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void either() {
+        Promise<String> p1 = Promise.promise();
+        Promise<String> p2 = Promise.promise();
+        CompletableResult<String> either = p1.toCompletableResult().applyToEither(p2.toCompletableResult(), s -> s + "!");
+        p1.setFailure(new RuntimeException("p1"));
+        assertFalse(either.isCompleted());  //一边失败，继续等另一边
+        p2.setSuccess("p2");
+        assertEquals("p2!", either.result());
+
+        AtomicInteger count = new AtomicInteger();
+        Promise<String> p3 = Promise.promise();
+        CompletableFuture<String> cf = new CompletableFuture<>();
+        p3.toCompletableResult().acceptEither(cf, s -> count.incrementAndGet());
+        p3.toCompletableResult().runAfterEither(cf, count::incrementAndGet);
+        cf.complete("cf");
+        p3.setSuccess("p3");
+        assertEquals(2, count.get());
+
+        Promise<String> p4 = Promise.promise();
+        Promise<String> p5 = Promise.promise();
+        RuntimeException last = new RuntimeException("p5");
+        CompletableResult<Void> failed = p4.toCompletableResult().acceptEither(p5.toCompletableResult(), s -> {});
+        p4.setFailure(new RuntimeException("p4"));
+        p5.setFailure(last);
+        assertSame(last, failed.cause());
+    }
+
+    @Test
+    public void concurrent() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int times = 10000;
+        CountDownLatch latch = new CountDownLatch(times * 2);
+        AtomicInteger combined = new AtomicInteger();
+        AtomicInteger either = new AtomicInteger();
+        for (int i = 0; i < times; i++) {
+            Promise<Integer> p1 = Promise.promise();
+            Promise<Integer> p2 = Promise.promise();
+            p1.toCompletableResult().thenCombine(p2.toCompletableResult(), Integer::sum).addHandler(ar -> {
+                if (ar.succeeded() && ar.result() == 3) combined.incrementAndGet();
+                latch.countDown();
+            });
+            p1.toCompletableResult().applyToEither(p2.toCompletableResult(), v -> v).addHandler(ar -> {
+                if (ar.succeeded()) either.incrementAndGet();
+                latch.countDown();
+            });
+            executor.execute(() -> p1.setSuccess(1));
+            executor.execute(() -> p2.setSuccess(2));
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(times, combined.get());
+        assertEquals(times, either.get());
+        executor.shutdown();
+    }
+}
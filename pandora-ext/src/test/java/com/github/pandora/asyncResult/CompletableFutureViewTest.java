@@ -0,0 +1,104 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class CompletableFutureViewTest {
+
+    @Test
+    public void toCompletableFuture() {
+        Promise<String> promise = Promise.promise();
+        CompletableResult<String> result = promise.toCompletableResult();
+        CompletableFuture<String> cf = result.toCompletableFuture();
+        assertSame(cf, result.toCompletableFuture());  //同一个视图
+        assertFalse(cf.isDone());
+        promise.setSuccess("view");
+        assertEquals("view", cf.join());
+
+        Promise<String> failed = Promise.promise();
+        CompletableFuture<String> cf1 = failed.toCompletableResult().toCompletableFuture();
+        RuntimeException err = new RuntimeException("view");
+        failed.setFailure(err);
+        assertTrue(cf1.isCompletedExceptionally());
+        try {
+            cf1.join();
+            fail();
+        } catch (CompletionException e) {
+            assertSame(err, e.getCause());
+        }
+    }
+
+    @Test
+    public void wrap() {
+        Promise<String> promise = Promise.promise();
+        CompletableResult<String> result = promise.toCompletableResult();
+        assertSame(result, Async.wrap((java.util.concurrent.CompletionStage<String>) result));
+        assertSame(result, Async.wrap(result.toCompletableFuture()));  //拆出source
+
+        CompletableResult<String> completed = Async.wrap(CompletableFuture.completedFuture("done"));
+        assertTrue(completed instanceof SucceededResult);
+        assertEquals("done", completed.result());
+
+        CompletableFuture<String> cf = new CompletableFuture<>();
+        CompletableResult<String> wrapped = Async.wrap(cf);
+        assertFalse(wrapped.isCompleted());
+        cf.complete("later");
+        assertEquals("later", wrapped.result());
+    }
+
+    @Test
+    public void detached() {
+        Promise<String> promise = Promise.promise();
+        CompletableFuture<String> cf = promise.toCompletableResult().toCompletableFuture();
+        cf.complete("outside");  //外部完成后，视图与source不一致
+        assertFalse(promise.toCompletableResult().isCompleted());
+        CompletableResult<String> wrapped = Async.wrap(cf);
+        assertNotSame(promise.toCompletableResult(), wrapped);
+        assertEquals("outside", wrapped.result());
+    }
+
+    /**
+     * 被外部修改过的视图不再复用，之后的调用方看到的是source的结果
+     */
+    @Test
+    public void notSharedAfterDetached() throws Exception {
+        Promise<String> promise = Promise.promise();
+        CompletableResult<String> result = promise.toCompletableResult();
+        CompletableFuture<String> hijacked = result.toCompletableFuture();
+        hijacked.complete("hijacked");
+        CompletableFuture<String> fresh = result.toCompletableFuture();
+        assertNotSame(hijacked, fresh);
+        assertSame(fresh, result.toCompletableFuture());
+        promise.setSuccess("real");
+        assertEquals("real", fresh.get());
+        assertEquals("hijacked", hijacked.get());
+
+        CompletableFuture<String> obtruded = result.toCompletableFuture();
+        obtruded.obtrudeValue("obtruded");
+        assertEquals("real", result.toCompletableFuture().get());
+    }
+
+    @Test
+    public void cancel() {
+        //用户自己的promise不会被视图取消
+        Promise<String> promise = Promise.promise();
+        CompletableFuture<String> cf = promise.toCompletableResult().toCompletableFuture();
+        assertTrue(cf.cancel(true));
+        assertFalse(promise.toCompletableResult().isCompleted());
+        assertTrue(promise.trySuccess("still pending"));
+
+        //中间结果只在最后一个下游被取消时取消
+        Promise<String> source = Promise.promise();
+        CompletableResult<Integer> len = source.toCompletableResult().thenApply(String::length);
+        CompletableResult<Integer> other = len.thenApply(i -> i + 1);
+        assertTrue(len.toCompletableFuture().cancel(true));
+        assertFalse(len.isCompleted());
+        assertTrue(other.cancel());
+        assertTrue(len.toFuture().isCancelled());
+        assertFalse(source.toCompletableResult().isCompleted());
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+public class CompletableResultAccessTest {
+
+    /**
+     * 从multi-release jar加载并且运行在java9+上时，使用的是META-INF/versions/9下基于VarHandle的实现
+     */
+    @Test
+    public void multiReleaseVariant() {
+        URL location = CompletableResultAccess.class.getProtectionDomain().getCodeSource().getLocation();
+        boolean fromJar = location.getPath().endsWith(".jar");
+        boolean java9 = !System.getProperty("java.specification.version").startsWith("1.");
+        boolean varHandle = false;
+        for (Field field : CompletableResultAccess.class.getDeclaredFields()) {
+            if (field.getType().getName().equals("java.lang.invoke.VarHandle")) varHandle = true;
+        }
+        assertEquals(fromJar && java9, varHandle);
+    }
+}
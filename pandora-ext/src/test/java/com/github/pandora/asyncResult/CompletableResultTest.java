@@ -1,12 +1,18 @@
 package com.github.pandora.asyncResult;
 
 import org.junit.Test;
-import org.omg.PortableServer.THREAD_POLICY_ID;
 
 import javax.swing.plaf.synth.SynthRadioButtonMenuItemUI;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -155,6 +161,78 @@ public class CompletableResultTest {
         promise.setSuccess("future");
     }
 
+    @Test
+    public void addHandler() throws InterruptedException {
+        Promise<String> promise = Async.promise();
+        int threads = 8, perThread = 1000;
+        AtomicInteger called = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < perThread; j++) {
+                    promise.toFuture().addHandler(ar -> called.incrementAndGet());
+                }
+                done.countDown();
+            }).start();
+        }
+        start.countDown();
+        promise.setSuccess("handler");
+        done.await();
+        //并发添加与完成，每个handler有且仅执行一次
+        assertEquals(threads * perThread, called.get());
+        assertTrue(((CompletableResultImpl<String>) promise).handlers().isEmpty());
+    }
+
+    @Test
+    public void handlers() {
+        CompletableResultImpl<String> promise = (CompletableResultImpl<String>) Async.<String>promise();
+        Handler<AsyncResult<String>> h1 = ar -> {};
+        Handler<AsyncResult<String>> h2 = ar -> {};
+        promise.addHandler(h1).addHandler(h2);
+        assertEquals(Arrays.asList(h1, h2), promise.handlers());
+        promise.setSuccess("handlers");
+        assertTrue(promise.handlers().isEmpty());
+    }
+
+    /**
+     * 与完成并发的handlers()要么返回完整的handler，要么返回空
+     */
+    @Test
+    public void handlersRacingComplete() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                CompletableResultImpl<String> promise = (CompletableResultImpl<String>) Async.<String>promise();
+                List<Handler<AsyncResult<String>>> own = new ArrayList<>();
+                for (int k = 0; k < 4; k++) {
+                    Handler<AsyncResult<String>> h = ar -> {};
+                    own.add(h);
+                    promise.addHandler(h);
+                }
+                CountDownLatch start = new CountDownLatch(1);
+                java.util.concurrent.Future<List<Handler<AsyncResult<String>>>> read = pool.submit(() -> {
+                    start.await();
+                    return promise.handlers();
+                });
+                pool.submit(() -> {
+                    start.await();
+                    return promise.trySuccess("done");
+                });
+                start.countDown();
+                List<Handler<AsyncResult<String>>> seen = read.get(5, java.util.concurrent.TimeUnit.SECONDS);
+                assertTrue(seen.isEmpty() || seen.equals(own));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Test
     public void toCompletionStage() {
         Promise<String> promise = Async.promise();
@@ -363,7 +441,7 @@ public class CompletableResultTest {
         Thread.sleep(1000);
     }
 
-    //thenAcceptBoth使用thenCombineAsync实现的，所以只需要测一个即可覆盖完成
+    //thenAcceptBoth与thenCombineAsync共用BiStage的实现，所以只需要测一个即可覆盖完成
     @Test
     public void thenAcceptBoth() throws InterruptedException {
         String mainName = Thread.currentThread().getName();
@@ -393,7 +471,7 @@ public class CompletableResultTest {
         //NOOP
     }
 
-    //runAfterBoth使用thenCombineAsync实现的，所以只需要测一个即可覆盖完成
+    //runAfterBoth与thenCombineAsync共用BiStage的实现，所以只需要测一个即可覆盖完成
     @Test
     public void runAfterBoth() throws InterruptedException {
         String mainName = Thread.currentThread().getName();
@@ -744,4 +822,316 @@ public class CompletableResultTest {
             assertEquals(ar.result(), "yes");
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void throwableAsResult() {
+        Promise<Throwable> promise = Promise.promise();
+        IllegalStateException value = new IllegalStateException("value");
+        promise.setSuccess(value);
+        CompletableResult<Throwable> result = promise.toCompletableResult();
+        assertTrue(result.succeeded());
+        assertFalse(result.failed());
+        assertSame(value, result.result());
+        assertNull(result.cause());
+
+        Promise<String> failed = Promise.promise();
+        failed.setFailure(value);
+        assertTrue(failed.toFuture().failed());
+        assertSame(value, failed.toFuture().cause());
+        assertNull(failed.toFuture().result());
+        try {
+            failed.setSuccess("again");
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("result was already set", e.getMessage());
+        }
+    }
+
+    @Test
+    public void cancel() {
+        Promise<String> source = Promise.promise();
+        Future<Integer> length = source.toFuture().map(String::length);
+        Future<Integer> mapped = length.map(i -> i + 1);
+        assertTrue(mapped.cancel());
+        assertTrue(mapped.isCancelled());
+        assertTrue(length.isCancelled());  //向上游的中间结果传播
+        assertFalse(source.toFuture().isCompleted());  //用户的promise不会被取消
+        assertFalse(mapped.cancel());
+        assertTrue(source.trySuccess("late"));
+
+        //flatMap: 取消内层的中间结果，不取消用户的promise
+        Promise<String> outer = Promise.promise();
+        Promise<Integer> innerSource = Promise.promise();
+        Future<Integer> inner = innerSource.toFuture().map(i -> i);
+        Future<Integer> flat = outer.toFuture().flatMap(s -> inner);
+        outer.setSuccess("outer");
+        assertFalse(flat.isCompleted());
+        flat.cancel();
+        assertTrue(inner.isCancelled());
+        assertFalse(innerSource.toFuture().isCompleted());
+        assertFalse(outer.toFuture().isCancelled());  //已完成的上游不受影响
+
+        //thenCombine: 两边都不是pandora创建的中间结果，都不取消
+        Promise<String> p1 = Promise.promise();
+        CompletableFuture<String> cf = new CompletableFuture<>();
+        CompletableResult<String> combined = p1.toCompletableResult().thenCombine(cf, (a, b) -> a + b);
+        combined.cancel();
+        assertTrue(combined.isCancelled());
+        assertFalse(p1.toFuture().isCompleted());
+        assertFalse(cf.isDone());
+
+        //thenCompose: 外部的CompletableFuture不取消
+        Promise<String> p2 = Promise.promise();
+        CompletableFuture<String> composed = new CompletableFuture<>();
+        CompletableResult<String> compose = p2.toCompletableResult().thenCompose(s -> composed);
+        p2.setSuccess("p2");
+        compose.cancel();
+        assertTrue(compose.isCancelled());
+        assertFalse(composed.isDone());
+
+        assertFalse(Async.succeededFuture("done").cancel());
+    }
+
+    /**
+     * 同一个中间结果派生出多个下游时，最后一个下游被取消才取消该中间结果
+     */
+    @Test
+    public void cancelSiblings() {
+        Promise<String> source = Promise.promise();
+        Future<Integer> length = source.toFuture().map(String::length);
+        Future<Integer> a = length.map(i -> i + 1);
+        CompletableResult<Integer> b = length.toCompletableResult().thenCombine(Async.succeededStage(10), Integer::sum);
+        assertTrue(a.cancel());
+        assertFalse(length.isCompleted());
+        assertFalse(b.isCompleted());
+        assertTrue(b.cancel());
+        assertTrue(length.isCancelled());
+        assertFalse(source.toFuture().isCompleted());
+
+        Future<Integer> c = source.toFuture().map(String::length);
+        Future<Integer> d = c.map(i -> i * 2);
+        Future<Integer> e = c.map(i -> i * 3);
+        assertTrue(d.cancel());
+        assertTrue(source.trySuccess("abc"));
+        assertEquals(Integer.valueOf(3), c.result());
+        assertEquals(Integer.valueOf(9), e.result());
+    }
+
+    /**
+     * 用户的Promise被多个下游共享，取消其中一个下游不影响promise和其他下游
+     */
+    @Test
+    public void cancelKeepsSharedPromise() {
+        Promise<Integer> shared = Promise.promise();
+        Future<Integer> cancelled = shared.toFuture().map(x -> x);
+        Future<Integer> sibling = shared.toFuture().map(x -> x + 1);
+        List<AsyncResult<Integer>> seen = new ArrayList<>();
+        shared.toFuture().addHandler(seen::add);
+        assertTrue(cancelled.cancel());
+        assertFalse(shared.toFuture().isCompleted());
+        assertTrue(shared.trySuccess(1));
+        assertEquals(Integer.valueOf(1), seen.get(0).result());
+        assertEquals(Integer.valueOf(2), sibling.result());
+        assertTrue(cancelled.isCancelled());
+    }
+
+    @Test
+    public void cancelLongChain() {
+        Promise<Integer> source = Promise.promise();
+        Future<Integer> first = source.toFuture().map(v -> v + 1);
+        Future<Integer> fut = first;
+        for (int i = 0; i < 100000; i++) fut = fut.map(v -> v + 1);
+        assertTrue(fut.cancel());  //不会栈溢出
+        assertTrue(first.isCancelled());
+        assertFalse(source.toFuture().isCompleted());
+    }
+
+    @Test
+    public void cancelBeforeExecute() throws InterruptedException {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        CountDownLatch block = new CountDownLatch(1);
+        single.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                //ignore
+            }
+        });
+        AtomicInteger count = new AtomicInteger();
+        Future<Integer> fut = Async.succeededFuture(1).map(count::addAndGet, single);
+        fut.cancel();
+        block.countDown();
+        single.shutdown();
+        single.awaitTermination(1, java.util.concurrent.TimeUnit.SECONDS);
+        assertEquals(0, count.get());  //已取消，fn不再执行
+    }
+
+    private static final int LOOPS = 1000000;
+
+    /**
+     * 模拟轮询: fetch完成之后再决定是否继续
+     */
+    private static Future<Integer> loop(int i, List<Future<Integer>> inners) {
+        Promise<Integer> fetch = Promise.promise();
+        Future<Integer> fut = fetch.toFuture().flatMap(x -> {
+            if (x >= LOOPS) return Async.succeededFuture(x);
+            Future<Integer> next = loop(x + 1, inners);
+            if (x % (LOOPS / 4) == 0) inners.add(next);
+            return next;
+        });
+        fetch.setSuccess(i);
+        return fut;
+    }
+
+    @Test
+    public void recursiveFlatMap() {
+        List<Future<Integer>> inners = new ArrayList<>();
+        Future<Integer> fut = loop(0, inners);
+        assertTrue(fut.succeeded());
+        assertEquals(Integer.valueOf(LOOPS), fut.result());
+        assertEquals(4, inners.size());
+        for (Future<Integer> inner : inners) {  //已链接的内层结果读取的是root的结果
+            assertTrue(inner.isCompleted());
+            assertEquals(Integer.valueOf(LOOPS), inner.result());
+        }
+    }
+
+    @Test
+    public void linkTransfersHandlers() {
+        Promise<String> source = Promise.promise();
+        Future<String> inner = source.toFuture().flatMap(Async::succeededFuture);  //flatMap创建的外层结果才会被链接
+        List<String> order = new ArrayList<>();
+        inner.addHandler(ar -> order.add("inner:" + ar.result()));
+        Promise<String> trigger = Promise.promise();  //已完成的源直接返回内层结果，用未完成的源才会走链接
+        Future<String> outer = trigger.toFuture().flatMap(x -> inner);
+        trigger.setSuccess("x");
+        assertEquals(1, ((CompletableResultImpl<String>) outer).handlers().size()); //已转到outer上
+        inner.addHandler(ar -> order.add("late:" + ar.result()));
+        outer.addHandler(ar -> order.add("outer:" + ar.result()));
+        assertTrue(source.trySuccess("v"));
+        assertEquals(Arrays.asList("inner:v", "late:v", "outer:v"), order);
+        assertEquals("v", outer.result());
+        assertEquals("v", inner.result());
+
+        //已完成的内层结果不链接
+        Future<String> done = Async.succeededFuture("x").flatMap(x -> Async.succeededFuture("y").map(y -> y));
+        assertEquals("y", done.result());
+    }
+
+    /**
+     * 用户自己的Promise被多个调用方flatMap时不链接，handler留在自己身上，各调用方互不影响
+     */
+    @Test
+    public void sharedInnerNotLinked() {
+        Promise<String> shared = Promise.promise();
+        List<String> order = new ArrayList<>();
+        shared.toFuture().addHandler(ar -> order.add("own:" + ar.result()));
+        Promise<String> trigger = Promise.promise();
+        Future<String> a = trigger.toFuture().flatMap(x -> shared);
+        Future<String> b = trigger.toCompletableResult().thenCompose(x -> shared.toCompletableResult()).toFuture();
+        trigger.setSuccess("go");
+        assertEquals(3, ((CompletableResultImpl<String>) shared).handlers().size());  //自己的handler + 两个转发
+        assertTrue(((CompletableResultImpl<String>) a).handlers().isEmpty());
+        a.addHandler(ar -> order.add("a:" + ar.result()));
+        assertTrue(shared.trySuccess("v"));
+        assertEquals(Arrays.asList("own:v", "a:v"), order);
+        assertEquals("v", a.result());
+        assertEquals("v", b.result());
+    }
+
+    @Test
+    public void cancelThroughLink() {
+        Promise<String> source = Promise.promise();
+        Promise<String> innerSource = Promise.promise();
+        Future<String> inner = innerSource.toFuture().flatMap(Async::succeededFuture);
+        Future<String> outer = source.toFuture().flatMap(x -> inner);
+        source.setSuccess("go");
+        assertTrue(inner.cancel());  //已链接，取消的是root
+        assertTrue(outer.isCancelled());
+        assertTrue(inner.isCancelled());
+        assertFalse(innerSource.toFuture().isCompleted());  //用户的promise不会被取消
+    }
+
+    /**
+     * 移除中间的handler，其余handler的顺序不变
+     */
+    @Test
+    public void removeHandler() {
+        CompletableResultImpl<String> promise = (CompletableResultImpl<String>) Async.<String>promise();
+        List<String> order = new ArrayList<>();
+        Handler<AsyncResult<String>> first = ar -> order.add("first");
+        Handler<AsyncResult<String>> last = ar -> order.add("last");
+        List<String> removed = new ArrayList<>();
+        promise.addHandler(first);
+        promise.addHandler(RECORD, removed);
+        promise.addHandler(last);
+        assertFalse(promise.removeHandler(RECORD, order));  //ctx不同
+        assertTrue(promise.removeHandler(RECORD, removed));
+        assertFalse(promise.removeHandler(RECORD, removed));
+        assertEquals(Arrays.asList(first, last), promise.handlers());
+        promise.trySuccess("v");
+        assertEquals(Arrays.asList("first", "last"), order);
+        assertTrue(removed.isEmpty());
+        assertFalse(promise.removeHandler(first, null));  //已通知过
+    }
+
+    private static final BiHandler<AsyncResult<String>, List<String>> RECORD = (ar, order) -> order.add("bi:" + ar.result());
+
+    @Test
+    public void biHandler() {
+        Promise<String> promise = Promise.promise();
+        List<String> order = new ArrayList<>();
+        Future<String> fut = promise.toFuture();
+        fut.addHandler(ar -> order.add("h:" + ar.result()));
+        fut.addHandler(RECORD, order);
+        assertEquals(2, ((CompletableResultImpl<String>) fut).handlers().size());
+        promise.setSuccess("v");
+        fut.addHandler(RECORD, order); //已完成，立即执行
+        assertEquals(Arrays.asList("h:v", "bi:v", "bi:v"), order);
+
+        List<String> done = new ArrayList<>();
+        Async.succeededFuture("s").addHandler(RECORD, done);
+        assertEquals(Collections.singletonList("bi:s"), done);
+
+        //链接时，带上下文的handler同样转到root上
+        Promise<String> inner = Promise.promise();
+        List<String> linked = new ArrayList<>();
+        inner.toFuture().addHandler(RECORD, linked);
+        Future<String> outer = Async.succeededFuture("x").flatMap(x -> inner);
+        inner.setSuccess("in");
+        assertEquals("in", outer.result());
+        assertEquals(Collections.singletonList("bi:in"), linked);
+    }
+
+    /**
+     * 默认不合并提交，线程池上的fan-out并行执行。 合并提交见{@link BatchDispatcherTest}
+     */
+    @Test
+    public void fanOutParallelByDefault() throws Exception {
+        assertFalse(BatchDispatcher.ENABLED);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            int n = 4;
+            CountDownLatch all = new CountDownLatch(n);
+            Promise<Integer> promise = Promise.promise();
+            List<CompletableResult<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                results.add(promise.toCompletableResult().thenApplyAsync(v -> {
+                    all.countDown();
+                    try {
+                        //串行执行时等不到其他continuation
+                        return all.await(5, TimeUnit.SECONDS) ? v : -1;
+                    } catch (InterruptedException e) {
+                        return -1;
+                    }
+                }, pool));
+            }
+            promise.setSuccess(1);
+            for (CompletableResult<Integer> result : results) {
+                assertEquals(Integer.valueOf(1), result.toCompletableFuture().get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
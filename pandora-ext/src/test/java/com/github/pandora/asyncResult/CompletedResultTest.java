@@ -0,0 +1,100 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CompletedResultTest {
+
+    @Test
+    public void shared() {
+        assertSame(Async.succeededResult(null), Async.succeededResult(null));
+        assertSame(Async.succeededResult(true), Async.succeededResult(Boolean.TRUE));
+        assertSame(Async.succeededResult(false), Async.succeededResult(false));
+        assertSame(Async.succeededResult(Collections.emptyList()), Async.succeededResult(Collections.emptyList()));
+        assertNotSame(Async.succeededResult("a"), Async.succeededResult("a"));
+    }
+
+    @Test
+    public void succeeded() {
+        CompletableResult<String> succeeded = Async.succeededResult("succeeded");
+        assertTrue(succeeded.isCompleted());
+        assertTrue(succeeded.succeeded());
+        assertNull(succeeded.cause());
+
+        Future<Integer> map = succeeded.map(String::length);
+        assertTrue(map instanceof SucceededResult);
+        assertEquals(Integer.valueOf(9), map.result());
+        assertSame(succeeded, succeeded.otherwise(err -> "otherwise"));
+
+        Future<Integer> failed = succeeded.map(str -> {
+            throw new RuntimeException("rt");
+        });
+        assertTrue(failed.failed());
+        assertEquals("rt", failed.cause().getMessage());
+
+        assertEquals(Integer.valueOf(9), succeeded.flatMap(str -> Async.succeededResult(str.length())).result());
+        assertEquals(Integer.valueOf(10), succeeded.handle((str, err) -> str.length() + 1).result());
+    }
+
+    @Test
+    public void failed() throws InterruptedException {
+        CompletableResult<String> failed = Async.failedResult(new Error("error"));
+        assertTrue(failed.isCompleted());
+        assertTrue(failed.failed());
+        assertNull(failed.result());
+
+        assertSame(failed, failed.map(String::length));
+        assertSame(failed, failed.flatMap(str -> Async.succeededResult(str.length())));
+        assertSame(failed, failed.thenApply(String::length));
+        assertEquals("error", failed.otherwise(Throwable::getMessage).result());
+        assertEquals("error", failed.exceptionally(Throwable::getMessage).result());
+
+        try {
+            failed.toCompletableFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("error", e.getCause().getMessage());
+        }
+
+        assertTrue(Async.failedResult(null).cause() instanceof NullPointerException);
+    }
+
+    @Test
+    public void executor() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor(r -> new Thread(r, "single"));
+        CompletableResult<String> succeeded = Async.succeededResult("succeeded");
+        String name = succeeded.thenApplyAsync(str -> Thread.currentThread().getName(), single)
+                .toCompletableFuture().get(1, TimeUnit.SECONDS);
+        assertEquals("single", name);
+        single.shutdown();
+    }
+
+    /**
+     * 已完成的结果上同步flatMap, thenCompose，内层未完成时不直接返回内层：取消返回的结果不影响用户的promise
+     */
+    @Test
+    public void composeKeepsInnerPromise() {
+        Promise<String> inner = Promise.promise();
+        Future<String> derived = Async.succeededFuture("x").flatMap(x -> inner);
+        assertNotSame(inner, derived);
+        assertTrue(derived.cancel());
+        assertFalse(inner.toCompletableResult().isCompleted());
+        assertTrue(inner.trySuccess("inner"));
+
+        Promise<String> inner1 = Promise.promise();
+        CompletableResult<String> composed = Async.succeededResult("x").thenCompose(x -> inner1.toCompletableResult());
+        assertNotSame(inner1, composed);
+        inner1.setSuccess("composed");
+        assertEquals("composed", composed.toFuture().result());
+
+        //内层已完成时直接是已完成的结果
+        assertEquals("done", Async.succeededFuture("x").flatMap(x -> Async.succeededFuture("done")).result());
+    }
+}
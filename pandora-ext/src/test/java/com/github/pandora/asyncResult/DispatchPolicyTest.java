@@ -0,0 +1,163 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class DispatchPolicyTest {
+
+    private static final ExecutorService single = Executors.newSingleThreadExecutor(r -> new Thread(r, "dispatch"));
+
+    @Test
+    public void inline() {
+        Promise<String> promise = Promise.promise(DispatchPolicy.inline());
+        AtomicReference<String> thread = new AtomicReference<>();
+        promise.toFuture().addHandler(ar -> thread.set(Thread.currentThread().getName()));
+        promise.setSuccess("inline");
+        assertEquals(Thread.currentThread().getName(), thread.get());
+    }
+
+    @Test
+    public void executor() throws InterruptedException {
+        Promise<String> promise = Async.promise(DispatchPolicy.executor(single));
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        promise.toFuture().addHandler(ar -> {
+            order.add("first:" + Thread.currentThread().getName());
+            latch.countDown();
+        });
+        promise.toFuture().map(s -> s + "!").addHandler(ar -> {
+            order.add("map:" + ar.result() + ":" + Thread.currentThread().getName());
+            latch.countDown();
+        });
+        promise.setSuccess("v");
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first:dispatch", "map:v!:dispatch"), order);
+
+        //完成之后添加的handler在添加的线程上执行
+        AtomicReference<String> thread = new AtomicReference<>();
+        promise.toFuture().addHandler(ar -> thread.set(Thread.currentThread().getName()));
+        assertEquals(Thread.currentThread().getName(), thread.get());
+    }
+
+    /**
+     * flatMap返回的带policy的promise不会链接到外层，它自己的handler仍按policy通知
+     */
+    @Test
+    public void keptThroughFlatMap() throws InterruptedException {
+        Promise<String> inner = Promise.promise(DispatchPolicy.executor(single));
+        CountDownLatch latch = new CountDownLatch(2);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        Promise<String> outer = Promise.promise();
+        Future<String> mapped = outer.toFuture().flatMap(s -> inner);
+        inner.toFuture().addHandler(ar -> {
+            threads.add("inner:" + Thread.currentThread().getName());
+            latch.countDown();
+        });
+        mapped.addHandler(ar -> {
+            threads.add("mapped:" + ar.result());
+            latch.countDown();
+        });
+        outer.setSuccess("outer");
+        inner.setSuccess("inner");
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(threads.contains("inner:dispatch"));
+        assertTrue(threads.contains("mapped:inner"));
+    }
+
+    @Test
+    public void rejectedRunsInline() {
+        Promise<String> promise = Promise.promise(DispatchPolicy.executor(r -> {
+            throw new RejectedExecutionException("rejected");
+        }));
+        AtomicReference<String> result = new AtomicReference<>();
+        promise.toFuture().addHandler(ar -> result.set(ar.result()));
+        promise.setSuccess("v");
+        assertEquals("v", result.get());
+    }
+
+    @Test
+    public void boundedInline() throws InterruptedException {
+        DispatchPolicy policy = DispatchPolicy.boundedInline(2, Duration.ofSeconds(10), single);
+        String main = Thread.currentThread().getName();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        Promise<String> p1 = Promise.promise(policy);
+        Promise<String> p2 = Promise.promise(policy);
+        Promise<String> p3 = Promise.promise(policy);
+        p1.toFuture().addHandler(ar -> {
+            threads.add(Thread.currentThread().getName());
+            latch.countDown();
+            p2.setSuccess("2");
+        });
+        p2.toFuture().addHandler(ar -> {
+            threads.add(Thread.currentThread().getName());
+            latch.countDown();
+            p3.setSuccess("3");
+        });
+        p3.toFuture().addHandler(ar -> {
+            threads.add(Thread.currentThread().getName());
+            latch.countDown();
+        });
+        p1.setSuccess("1");
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(main, main, "dispatch"), threads); //第3层超出深度
+
+        //超出时间预算
+        DispatchPolicy timed = DispatchPolicy.boundedInline(100, Duration.ZERO, single);
+        List<String> threads1 = new CopyOnWriteArrayList<>();
+        CountDownLatch latch1 = new CountDownLatch(2);
+        Promise<String> q1 = Promise.promise(timed);
+        Promise<String> q2 = Promise.promise(timed);
+        q1.toFuture().addHandler(ar -> {
+            threads1.add(Thread.currentThread().getName());
+            latch1.countDown();
+            sleep(2);
+            q2.setSuccess("2");
+        });
+        q2.toFuture().addHandler(ar -> {
+            threads1.add(Thread.currentThread().getName());
+            latch1.countDown();
+        });
+        q1.setSuccess("1");
+        assertTrue(latch1.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(main, "dispatch"), threads1);
+    }
+
+    @Test
+    public void adaptive() throws InterruptedException {
+        DispatchPolicy policy = DispatchPolicy.adaptive(Duration.ofMillis(1), single);
+        String main = Thread.currentThread().getName();
+        List<String> threads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Promise<String> promise = Promise.promise(policy);
+            CountDownLatch latch = new CountDownLatch(1);
+            promise.toFuture().addHandler(ar -> {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread().getName());
+                }
+                sleep(5);  //慢handler
+                latch.countDown();
+            });
+            promise.setSuccess("v");
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+        }
+        assertEquals(main, threads.get(0));  //开始时直接执行
+        assertEquals("dispatch", threads.get(threads.size() - 1)); //统计到耗时之后转到executor上
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DoubleFutureTest {
+
+    @Test
+    public void promise() {
+        DoublePromise promise = DoublePromise.promise();
+        assertFalse(promise.isCompleted());
+        assertEquals(0D, promise.resultAsDouble(), 0D);
+
+        double[] seen = new double[1];
+        promise.addHandler(ar -> seen[0] = ar.resultAsDouble());
+        promise.setSuccess(4.2D);
+        assertTrue(promise.succeeded());
+        assertEquals(4.2D, promise.resultAsDouble(), 0D);
+        assertEquals(4.2D, seen[0], 0D);
+        assertFalse(promise.trySuccess(1D));
+        assertFalse(promise.tryFailure(new Error()));
+    }
+
+    @Test
+    public void map() {
+        DoublePromise promise = DoublePromise.promise();
+        DoubleFuture half = promise.map(d -> d / 2);
+        IntFuture toInt = half.mapToInt(d -> (int) Math.round(d));
+        LongFuture toLong = half.mapToLong(d -> (long) (d * 10));
+        Future<String> toObj = half.mapToObj(d -> "" + d);
+        promise.setSuccess(3D);
+
+        assertEquals(1.5D, half.resultAsDouble(), 0D);
+        assertEquals(2, toInt.resultAsInt());
+        assertEquals(15L, toLong.resultAsLong());
+        assertEquals("1.5", toObj.result());
+        assertEquals(Double.valueOf(1.5D), half.boxed().result());
+    }
+
+    @Test
+    public void failed() {
+        DoublePromise promise = DoublePromise.promise();
+        DoubleFuture failed = promise.map(d -> {
+            throw new RuntimeException("rt");
+        }).map(d -> d + 1);
+        DoubleFuture recovered = failed.otherwise(err -> Double.NaN);
+        promise.setSuccess(1D);
+
+        assertTrue(failed.failed());
+        assertEquals("rt", failed.cause().getMessage());
+        assertEquals(0D, failed.resultAsDouble(), 0D);
+        assertTrue(Double.isNaN(recovered.resultAsDouble()));
+        assertTrue(failed.boxed().failed());
+
+        DoublePromise failure = DoublePromise.promise();
+        failure.setFailure(new IllegalStateException("state"));
+        assertEquals("state", failure.mapToInt(d -> 1).cause().getMessage());
+
+        assertTrue(DoubleFuture.failedFuture(null).cause() instanceof NullPointerException);
+    }
+
+    @Test
+    public void sum() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        DoublePromise[] promises = new DoublePromise[1000];
+        for (int i = 0; i < promises.length; i++) {
+            promises[i] = DoublePromise.promise();
+        }
+        DoubleFuture sum = DoubleFuture.sum(promises);
+        for (int i = 0; i < promises.length; i++) {
+            double value = i;
+            DoublePromise promise = promises[i];
+            pool.execute(() -> promise.setSuccess(value));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(999D * 1000 / 2, sum.resultAsDouble(), 0D);
+
+        assertEquals(0D, DoubleFuture.sum().resultAsDouble(), 0D);
+        assertEquals(6D, DoubleFuture.reduce(1D, (a, b) -> a * b,
+                DoubleFuture.succeededFuture(2D), DoubleFuture.succeededFuture(3D)).resultAsDouble(), 0D);
+
+        DoubleFuture failed = DoubleFuture.sum(Arrays.asList(DoubleFuture.succeededFuture(1D), DoubleFuture.failedFuture(new Error("error"))));
+        assertEquals("error", failed.cause().getMessage());
+    }
+}
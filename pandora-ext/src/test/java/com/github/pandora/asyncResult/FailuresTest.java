@@ -0,0 +1,44 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class FailuresTest {
+
+    @Test
+    public void stackless() {
+        assertEquals(0, new StacklessException("not found").getStackTrace().length);
+        assertEquals(0, new StacklessCancellationException().getStackTrace().length);
+        assertEquals(0, new StacklessIllegalStateException("state").getStackTrace().length);
+        assertEquals(0, new StacklessRejectedExecutionException("rejected").getStackTrace().length);
+
+        StacklessException stackless = new StacklessException("not found");
+        stackless.addSuppressed(new RuntimeException());
+        assertEquals(0, stackless.getSuppressed().length);
+
+        //Failures每次创建新的实例，suppressed只记录在这一次失败上
+        CancellationException e = new StacklessCancellationException();
+        e.addSuppressed(new RuntimeException());
+        assertEquals(1, e.getSuppressed().length);
+    }
+
+    @Test
+    public void failures() {
+        //默认没有开启stackless
+        assertFalse(Failures.STACKLESS);
+        CancellationException cancellation = Failures.cancellation();
+        assertFalse(cancellation instanceof StacklessCancellationException);
+        assertTrue(cancellation.getStackTrace().length > 0);
+        assertNotSame(cancellation, Failures.cancellation());
+
+        IllegalStateException alreadySet = Failures.alreadySet();
+        assertEquals("result was already set", alreadySet.getMessage());
+
+        RejectedExecutionException rejected = Failures.rejected("shutdown");
+        assertEquals("shutdown", rejected.getMessage());
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FusedStageTest {
+
+    @Test
+    public void fused() {
+        Promise<String> promise = Async.promise();
+        Future<Integer> len = promise.toFuture().map(String::length);
+        Future<Integer> twice = len.map(i -> i * 2);
+        Future<Integer> result = twice.<Integer>map(i -> {
+            throw new RuntimeException("rt");
+        }).otherwise(err -> -1).map(i -> i - 1);
+
+        //只有链头在promise上占一个handler
+        assertEquals(1, ((CompletableResultImpl<String>) promise).handlers().size());
+        //中间的stage也可以单独添加handler
+        List<Integer> seen = new ArrayList<>();
+        len.addHandler(ar -> seen.add(ar.result()));
+
+        promise.setSuccess("fused");
+        assertEquals(Integer.valueOf(5), len.result());
+        assertEquals(Integer.valueOf(10), twice.result());
+        assertEquals(Integer.valueOf(-2), result.result());
+        assertEquals(Arrays.asList(5), seen);
+    }
+
+    @Test
+    public void branch() {
+        Promise<String> promise = Async.promise();
+        Future<Integer> len = promise.toFuture().map(String::length);
+        Future<Integer> left = len.map(i -> i + 1);
+        Future<Integer> right = len.map(i -> i - 1);  //len的融合下游已被left占用，退化成addHandler
+        promise.setSuccess("branch");
+        assertEquals(Integer.valueOf(7), left.result());
+        assertEquals(Integer.valueOf(5), right.result());
+
+        //已完成的stage上继续添加操作符，立即执行
+        assertEquals(Integer.valueOf(12), left.map(i -> i + 5).result());
+    }
+
+    @Test
+    public void cancelMiddle() {
+        Promise<String> promise = Async.promise();
+        Future<Integer> len = promise.toFuture().map(String::length);
+        Future<Integer> twice = len.map(i -> i * 2);
+        Future<Integer> recovered = twice.map(i -> i + 1).otherwise(err -> -1);
+
+        //取消融合链中间的stage，融合在它后面的下游以取消的结果完成
+        assertTrue(twice.cancel());
+        assertTrue(twice.isCancelled());
+        assertEquals(Integer.valueOf(-1), recovered.result());
+
+        //len只有twice一个下游，一起被取消；用户的promise不受影响
+        assertTrue(len.isCancelled());
+        assertFalse(promise.isCompleted());
+        promise.setSuccess("fused");
+        assertTrue(twice.isCancelled());
+        assertEquals(Integer.valueOf(-1), recovered.result());
+    }
+
+    /**
+     * 每个stage的融合下游都已被占用，链上的stage都退化成handler，也不会栈溢出
+     */
+    @Test
+    public void deepUnfusedChain() {
+        Promise<Integer> promise = Async.promise();
+        Future<Integer> fut = promise.toFuture();
+        for (int i = 0; i < 10000; i++) {
+            fut.map(v -> v);  //占用融合的下游
+            fut = fut.map(v -> v + 1);
+        }
+        Future<Integer> timeout = promise.toFuture();
+        for (int i = 0; i < 5000; i++) timeout = timeout.timeout(java.time.Duration.ofMinutes(1));
+        promise.setSuccess(0);
+        assertEquals(Integer.valueOf(10000), fut.result());
+        assertEquals(Integer.valueOf(0), timeout.result());
+    }
+
+    @Test
+    public void handle() {
+        Promise<String> promise = Async.promise();
+        CompletableResult<Integer> handled = promise.toCompletableResult()
+                .thenApply(String::length)
+                .handle((len, err) -> err != null ? -1 : len)
+                .whenComplete((len, err) -> assertNull(err));
+        promise.setFailure(new Error("error"));
+        assertEquals(Integer.valueOf(-1), handled.result());
+    }
+
+    @Test
+    public void deepChain() {
+        Promise<Integer> head = Async.promise();
+        Future<Integer> fut = head.toFuture();
+        for (int i = 0; i < 100000; i++) {
+            fut = fut.otherwise(err -> 0).map(n -> n + 1);
+        }
+        head.setSuccess(0);
+        assertEquals(Integer.valueOf(100000), fut.result());
+    }
+
+    @Test
+    public void eagerOnCompletedSource() {
+        Promise<String> promise = Async.promise();
+        promise.setSuccess("cached");
+        Future<Integer> len = promise.toFuture().map(String::length);
+        assertTrue(len instanceof SucceededResult);  //不再创建stage
+        assertEquals(Integer.valueOf(6), len.result());
+        assertTrue(((CompletableResultImpl<String>) promise).handlers().isEmpty());
+
+        Future<Integer> failed = promise.toFuture().map(s -> {
+            throw new IllegalStateException("map");
+        });
+        assertTrue(failed instanceof FailedResult);
+        assertTrue(failed.cause() instanceof IllegalStateException);
+
+        CompletableResult<String> handled = promise.toCompletableResult().handle((s, err) -> s + "!");
+        assertTrue(handled instanceof SucceededResult);
+        assertEquals("cached!", handled.result());
+        assertEquals("cached", promise.toCompletableResult().otherwise(err -> "x").result());
+
+        Promise<String> failedPromise = Async.promise();
+        failedPromise.setFailure(new IllegalArgumentException("failed"));
+        Future<Integer> skipped = failedPromise.toFuture().map(String::length);
+        assertTrue(skipped instanceof FailedResult);
+        assertTrue(skipped.cause() instanceof IllegalArgumentException);
+        Future<String> recovered = failedPromise.toFuture().otherwise(err -> err.getMessage());
+        assertTrue(recovered instanceof SucceededResult);
+        assertEquals("failed", recovered.result());
+        assertEquals("failed", failedPromise.toCompletableResult().thenApply(s -> s).exceptionally(Throwable::getMessage).result());
+    }
+}
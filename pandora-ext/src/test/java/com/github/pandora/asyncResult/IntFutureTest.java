@@ -0,0 +1,136 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IntFutureTest {
+
+    @Test
+    public void promise() {
+        IntPromise promise = IntPromise.promise();
+        assertFalse(promise.isCompleted());
+        assertEquals(0, promise.resultAsInt());
+
+        int[] seen = new int[1];
+        promise.addHandler(ar -> seen[0] = ar.resultAsInt());
+        promise.setSuccess(42);
+        assertTrue(promise.succeeded());
+        assertEquals(42, promise.resultAsInt());
+        assertEquals(42, seen[0]);
+        assertFalse(promise.trySuccess(1));
+        assertFalse(promise.tryFailure(new Error()));
+    }
+
+    @Test
+    public void map() {
+        IntPromise promise = IntPromise.promise();
+        IntFuture plus = promise.map(i -> i + 1);
+        LongFuture toLong = plus.mapToLong(i -> i * 10L);
+        DoubleFuture toDouble = plus.mapToDouble(i -> i / 4D);
+        Future<String> toObj = plus.mapToObj(i -> "" + i);
+        promise.setSuccess(1);
+
+        assertEquals(2, plus.resultAsInt());
+        assertEquals(20L, toLong.resultAsLong());
+        assertEquals(0.5D, toDouble.resultAsDouble(), 0D);
+        assertEquals("2", toObj.result());
+        assertEquals(Integer.valueOf(2), plus.boxed().result());
+    }
+
+    @Test
+    public void failed() {
+        IntPromise promise = IntPromise.promise();
+        IntFuture failed = promise.map(i -> {
+            throw new RuntimeException("rt");
+        }).map(i -> i + 1);
+        IntFuture recovered = failed.otherwise(err -> -1);
+        promise.setSuccess(1);
+
+        assertTrue(failed.failed());
+        assertEquals("rt", failed.cause().getMessage());
+        assertEquals(0, failed.resultAsInt());
+        assertEquals(-1, recovered.resultAsInt());
+        assertTrue(failed.boxed().failed());
+
+        IntPromise failure = IntPromise.promise();
+        int[] seen = {1};
+        failure.addHandler(ar -> seen[0] = ar.failed() ? -1 : ar.resultAsInt());
+        failure.setFailure(new IllegalStateException());
+        assertEquals(-1, seen[0]);
+
+        assertTrue(IntFuture.failedFuture(null).cause() instanceof NullPointerException);
+    }
+
+    @Test
+    public void sum() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        IntPromise[] promises = new IntPromise[1000];
+        for (int i = 0; i < promises.length; i++) {
+            promises[i] = IntPromise.promise();
+        }
+        IntFuture sum = IntFuture.sum(promises);
+        for (int i = 0; i < promises.length; i++) {
+            int value = i;
+            IntPromise promise = promises[i];
+            pool.execute(() -> promise.setSuccess(value));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(999 * 1000 / 2, sum.resultAsInt());
+
+        assertEquals(0, IntFuture.sum().resultAsInt());
+        assertEquals(24, IntFuture.reduce(1, (a, b) -> a * b,
+                IntFuture.succeededFuture(2), IntFuture.succeededFuture(3), IntFuture.succeededFuture(4)).resultAsInt());
+
+        IntFuture failed = IntFuture.sum(Arrays.asList(IntFuture.succeededFuture(1), IntFuture.failedFuture(new Error("error"))));
+        assertEquals("error", failed.cause().getMessage());
+        IntFuture reduceFailed = IntFuture.reduce(0, (a, b) -> {
+            throw new IllegalStateException("op");
+        }, IntFuture.succeededFuture(1));
+        assertEquals("op", reduceFailed.cause().getMessage());
+    }
+
+    @Test
+    public void cancel() {
+        Promise<String> promise = Promise.promise();
+        Future<String> trimmed = promise.toFuture().map(String::trim);
+        IntFuture len = trimmed.mapToInt(String::length);
+        IntFuture twice = len.map(i -> i * 2);
+        LongFuture toLong = len.mapToLong(i -> i);
+        assertTrue(twice.cancel());
+        assertTrue(twice.isCancelled());
+        //len还有另一个下游，不取消
+        assertFalse(len.isCompleted());
+
+        Future<String> toObj = toLong.mapToObj(String::valueOf);
+        assertTrue(toObj.cancel());
+        //取消沿着原始类型与通用的future传播，停在用户自己的Promise上
+        assertTrue(toLong.isCancelled());
+        assertTrue(len.isCancelled());
+        assertTrue(trimmed.isCancelled());
+        assertFalse(promise.toFuture().isCompleted());
+        assertFalse(len.cancel());
+
+        IntPromise user = IntPromise.promise();
+        assertTrue(user.map(i -> i).otherwise(e -> 0).cancel());
+        assertFalse(user.isCompleted());
+    }
+
+    @Test
+    public void biHandler() {
+        IntPromise promise = IntPromise.promise();
+        int[] seen = new int[1];
+        BiHandler<IntAsyncResult, int[]> handler = (ar, ctx) -> ctx[0] = ar.resultAsInt();
+        promise.addHandler(handler, seen);
+        promise.setSuccess(7);
+        assertEquals(7, seen[0]);
+        promise.addHandler((ar, ctx) -> ctx[0] = -ar.resultAsInt(), seen);
+        assertEquals(-7, seen[0]);
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.pandora.asyncResult;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 状态机在AbstractPrimitivePromise中共用，IntFuture, DoubleFuture各自的操作符见IntFutureTest, DoubleFutureTest
+ */
+public class LongFutureTest {
+
+    @Test
+    public void promise() {
+        LongPromise promise = LongPromise.promise();
+        assertFalse(promise.isCompleted());
+        assertEquals(0L, promise.resultAsLong());
+
+        long[] seen = new long[1];
+        promise.addHandler(ar -> seen[0] = ar.resultAsLong());
+        promise.setSuccess(42L);
+        assertTrue(promise.isCompleted());
+        assertTrue(promise.succeeded());
+        assertEquals(42L, promise.resultAsLong());
+        assertEquals(42L, seen[0]);
+        assertFalse(promise.trySuccess(1L));
+        assertFalse(promise.tryFailure(new Error()));
+    }
+
+    @Test
+    public void map() {
+        LongPromise promise = LongPromise.promise();
+        LongFuture plus = promise.map(l -> l + 1);
+        IntFuture toInt = plus.mapToInt(l -> (int) l * 2);
+        DoubleFuture toDouble = toInt.mapToDouble(i -> i / 4D);
+        Future<String> toObj = toDouble.mapToObj(d -> "" + d);
+        promise.setSuccess(1L);
+
+        assertEquals(2L, plus.resultAsLong());
+        assertEquals(4, toInt.resultAsInt());
+        assertEquals(1D, toDouble.resultAsDouble(), 0D);
+        assertEquals("1.0", toObj.result());
+        assertEquals(Long.valueOf(2L), plus.boxed().result());
+    }
+
+    @Test
+    public void failed() {
+        LongPromise promise = LongPromise.promise();
+        LongFuture failed = promise.map(l -> {
+            throw new RuntimeException("rt");
+        }).map(l -> l + 1);
+        LongFuture recovered = failed.otherwise(err -> -1L);
+        promise.setSuccess(1L);
+
+        assertTrue(failed.failed());
+        assertEquals("rt", failed.cause().getMessage());
+        assertEquals(0L, failed.resultAsLong());
+        assertEquals(-1L, recovered.resultAsLong());
+
+        assertTrue(LongFuture.failedFuture(null).cause() instanceof NullPointerException);
+    }
+
+    @Test
+    public void mapToLong() {
+        Promise<String> promise = Async.promise();
+        LongFuture len = promise.toFuture().mapToLong(String::length);
+        promise.setSuccess("mapToLong");
+        assertEquals(9L, len.resultAsLong());
+        assertEquals(9, Async.succeededFuture("mapToLong").mapToInt(String::length).resultAsInt());
+    }
+
+    @Test
+    public void sum() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        LongPromise[] promises = new LongPromise[1000];
+        for (int i = 0; i < promises.length; i++) {
+            promises[i] = LongPromise.promise();
+        }
+        LongFuture sum = LongFuture.sum(promises);
+        for (int i = 0; i < promises.length; i++) {
+            long value = i;
+            LongPromise promise = promises[i];
+            pool.execute(() -> promise.setSuccess(value));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(999L * 1000 / 2, sum.resultAsLong());
+
+        assertEquals(0L, LongFuture.sum().resultAsLong());
+        assertEquals(6, IntFuture.sum(Arrays.asList(IntFuture.succeededFuture(1), IntFuture.succeededFuture(5))).resultAsInt());
+        assertEquals(24L, LongFuture.reduce(1L, (a, b) -> a * b,
+                LongFuture.succeededFuture(2L), LongFuture.succeededFuture(3L), LongFuture.succeededFuture(4L)).resultAsLong());
+
+        DoubleFuture failed = DoubleFuture.sum(DoubleFuture.succeededFuture(1D), DoubleFuture.failedFuture(new Error("error")));
+        assertEquals("error", failed.cause().getMessage());
+    }
+}
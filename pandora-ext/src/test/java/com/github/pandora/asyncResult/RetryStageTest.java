@@ -0,0 +1,131 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.listenable.executor.ListenableExecutorService;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RetryStageTest {
+
+    @Test
+    public void retry() {
+        AtomicInteger count = new AtomicInteger();
+        CompletableResult<Integer> result = Async.retry(() -> {
+            int n = count.incrementAndGet();
+            return n < 3 ? Async.failedFuture(new RuntimeException("n: " + n)) : Async.succeededFuture(n);
+        }, RetryPolicy.maxAttempts(5));
+        assertEquals(3, (int) result.result());
+        assertEquals(3, count.get());
+    }
+
+    @Test
+    public void exhausted() {
+        AtomicInteger count = new AtomicInteger();
+        CompletableResult<Integer> result = Async.retry(() -> {
+            throw new IllegalStateException("attempt " + count.incrementAndGet());
+        }, RetryPolicy.maxAttempts(3));
+        assertTrue(result.failed());
+        assertEquals("attempt 3", result.cause().getMessage());  //最后一次的失败
+        assertEquals(3, count.get());
+    }
+
+    @Test
+    public void retryOn() {
+        AtomicInteger count = new AtomicInteger();
+        CompletableResult<Integer> result = Async.retry(() -> {
+            count.incrementAndGet();
+            return Async.failedFuture(new IllegalArgumentException());
+        }, RetryPolicy.maxAttempts(5).retryOn(e -> !(e instanceof IllegalArgumentException)));
+        assertTrue(result.cause() instanceof IllegalArgumentException);
+        assertEquals(1, count.get());
+    }
+
+    /**
+     * retryOn抛出异常时以该异常结束，同步失败时不会从retry抛出，异步失败时不会一直不完成
+     */
+    @Test
+    public void retryOnThrows() throws InterruptedException {
+        RetryPolicy policy = RetryPolicy.maxAttempts(5).retryOn(e -> {
+            throw new IllegalStateException("predicate");
+        });
+        IllegalArgumentException cause = new IllegalArgumentException("attempt");
+        CompletableResult<Integer> sync = Async.retry(() -> Async.failedFuture(cause), policy);
+        assertTrue(sync.cause() instanceof IllegalStateException);
+        assertSame(cause, sync.cause().getSuppressed()[0]);
+
+        Promise<Integer> attempt = Async.promise();
+        CompletableResult<Integer> async = Async.retry(() -> attempt, policy);
+        attempt.setFailure(cause);
+        assertTrue(async.isCompleted());
+        assertTrue(async.cause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void backoff() throws InterruptedException {
+        AtomicInteger count = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<AsyncResult<Integer>> ref = new AtomicReference<>();
+        RetryPolicy policy = RetryPolicy.maxAttempts(4).withBackoff(Duration.ofMillis(10), Duration.ofMillis(40));
+        Async.retry(() -> {
+            int n = count.incrementAndGet();
+            return n < 4 ? Async.failedFuture(new RuntimeException()) : Async.succeededFuture(n);
+        }, policy).addHandler(ar -> {
+            ref.set(ar);
+            latch.countDown();
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(4, (int) ref.get().result());
+    }
+
+    @Test
+    public void deadline() throws InterruptedException {
+        AtomicInteger count = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        RetryPolicy policy = RetryPolicy.maxAttempts(Integer.MAX_VALUE)
+                .withBackoff(Duration.ofMillis(20), Duration.ofMillis(20))
+                .withDeadline(Duration.ofMillis(200));
+        Async.retry(() -> {
+            count.incrementAndGet();
+            return Async.failedFuture(new RuntimeException());
+        }, policy).addHandler(ar -> {
+            assertTrue(ar.failed());
+            latch.countDown();
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(count.get() > 1);
+    }
+
+    @Test
+    public void deepSynchronous() {
+        //同步失败的重试不会栈溢出
+        AtomicInteger count = new AtomicInteger();
+        CompletableResult<Integer> result = Async.retry(() -> {
+            int n = count.incrementAndGet();
+            return n < 100000 ? Async.failedFuture(new RuntimeException()) : Async.succeededFuture(n);
+        }, RetryPolicy.maxAttempts(100000));
+        assertEquals(100000, (int) result.result());
+    }
+
+    @Test
+    public void listenableFuture() throws InterruptedException {
+        ListenableExecutorService executor = ListenableExecutor.create(Executors.newSingleThreadExecutor());
+        AtomicInteger count = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        Async.retry(() -> executor.submit(() -> {
+            if (count.incrementAndGet() < 3) throw new RuntimeException();
+            return "ok";
+        }), RetryPolicy.maxAttempts(3)).addHandler(ar -> {
+            if ("ok".equals(ar.result())) latch.countDown();
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.pandora.asyncResult;
+
+import com.github.pandora.timer.HashedWheelTimer;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TimeoutStageTest {
+
+    @Test
+    public void timeout() throws InterruptedException {
+        Promise<String> promise = Promise.promise();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Throwable> cause = new AtomicReference<>();
+        promise.toFuture().timeout(Duration.ofMillis(50)).addHandler(ar -> {
+            cause.set(ar.cause());
+            latch.countDown();
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(cause.get() instanceof TimeoutException);
+        assertTrue(promise.trySuccess("late"));  //不影响上游
+    }
+
+    @Test
+    public void completeBeforeTimeout() {
+        Promise<String> promise = Promise.promise();
+        Future<String> future = promise.toFuture().timeout(Duration.ofSeconds(10));
+        assertFalse(future.isCompleted());
+        promise.setSuccess("fast");
+        assertEquals("fast", future.result());
+
+        Future<String> completed = Async.succeededFuture("completed");
+        assertSame(completed, completed.timeout(Duration.ofMillis(1)));
+    }
+
+    @Test
+    public void delay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Async.delay(Duration.ofMillis(50)).addHandler(ar -> {
+            assertTrue(ar.succeeded());
+            latch.countDown();
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+    }
+
+    @Test
+    public void cancelDelay() {
+        HashedWheelTimer timer = HashedWheelTimer.shared();
+        List<Future<Void>> delays = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) delays.add(Async.delay(Duration.ofHours(1)));
+        long pending = timer.pendingTimeouts();
+        assertTrue(pending >= 1000);
+
+        //取消时释放timer上的位置
+        for (Future<Void> delay : delays) assertTrue(delay.cancel());
+        assertTrue(timer.pendingTimeouts() <= pending - 1000);
+        for (Future<Void> delay : delays) assertTrue(delay.isCancelled());
+    }
+
+    @Test
+    public void completeOnTimeout() throws InterruptedException {
+        Promise<String> promise = Promise.promise();
+        CountDownLatch latch = new CountDownLatch(1);
+        promise.completeOnTimeout("default", Duration.ofMillis(50)).toFuture().addHandler(ar -> latch.countDown());
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals("default", promise.toFuture().result());
+
+        Promise<String> fast = Promise.promise();
+        fast.completeOnTimeout("default", Duration.ofMillis(50));
+        fast.setSuccess("fast");
+        Thread.sleep(100);
+        assertEquals("fast", fast.toFuture().result());
+    }
+}
@@ -1,10 +1,18 @@
 package com.github.pandora.listenable.executor;
 
+import com.github.pandora.asyncResult.Async;
+import com.github.pandora.asyncResult.Promise;
+import com.github.pandora.listenable.future.ListenableFuture;
+import com.github.pandora.utils.VirtualThreads;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -26,4 +34,35 @@ public class ListenableExecutorTest {
     public void create1() {
         create();
     }
-}
\ No newline at end of file
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void virtualUnsupported() {
+        Assume.assumeFalse(VirtualThreads.isSupported());
+        ListenableExecutor.virtual();
+    }
+
+    /**
+     * 远多于carrier线程数的task同时await，只挂起虚拟线程
+     */
+    @Test
+    public void virtual() throws Exception {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+        ListenableExecutorService executor = ListenableExecutor.virtual();
+        try {
+            Promise<Integer> gate = Async.promise();
+            List<ListenableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                futures.add(executor.submit(() -> {
+                    assertTrue(VirtualThreads.isVirtual(Thread.currentThread()));
+                    return gate.await() + 1;
+                }));
+            }
+            gate.trySuccess(1);
+            for (ListenableFuture<Integer> future : futures) {
+                assertEquals(Integer.valueOf(2), future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.github.pandora.listenable.future.ListenableFuture;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -69,4 +72,83 @@ public class ListenableExecutorWrapperTest {
     public void delegate() {
         //ignore
     }
-}
\ No newline at end of file
+
+    @Test
+    public void intern() {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        ListenableExecutor wrapper = ListenableExecutorWrapper.intern(single);
+        assertSame(wrapper, ListenableExecutorWrapper.intern(single));
+        assertSame(wrapper, ListenableExecutorWrapper.intern(wrapper));
+        assertNotSame(wrapper, ListenableExecutorWrapper.intern(Executors.newSingleThreadExecutor()));
+        single.shutdown();
+    }
+
+    /**
+     * 缓存强引用wrapper，gc之后仍然得到同一个wrapper；缓存满时覆盖旧的，不会无限增长
+     */
+    @Test
+    public void internStrongly() {
+        Executor executor = Runnable::run;
+        ListenableExecutor wrapper = ListenableExecutorWrapper.intern(executor);
+        System.gc();
+        assertSame(wrapper, ListenableExecutorWrapper.intern(executor));
+
+        for (int i = 0; i < 1000; i++) {
+            Executor other = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            };
+            ListenableExecutor w = ListenableExecutorWrapper.intern(other);
+            assertSame(other, ((ListenableExecutorWrapper) w).delegate);
+            assertSame(w, ListenableExecutorWrapper.intern(other));
+        }
+    }
+
+    /**
+     * 按identity缓存，并发intern同一个executor得到同一个wrapper
+     */
+    @Test
+    public void internConcurrently() throws Exception {
+        Executor same = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return obj instanceof Executor;  //不能按equals缓存
+            }
+
+            @Override
+            public int hashCode() {
+                return 0;
+            }
+        };
+        Executor other = Runnable::run;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<java.util.concurrent.Future<ListenableExecutor>> wrappers = new ArrayList<>();
+            for (int i = 0; i < 100; i++) wrappers.add(pool.submit(() -> ListenableExecutorWrapper.intern(same)));
+            ListenableExecutor wrapper = ListenableExecutorWrapper.intern(same);
+            for (java.util.concurrent.Future<ListenableExecutor> f : wrappers) assertSame(wrapper, f.get());
+            assertNotSame(wrapper, ListenableExecutorWrapper.intern(other));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void inCurrentThread() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        ListenableExecutorWrapper executor = new ListenableExecutorWrapper(single);
+        ListenableExecutorWrapper other = new ListenableExecutorWrapper(single);  //同一个delegate
+        assertFalse(executor.inCurrentThread());
+        ListenableFuture<Boolean> future = executor.submit(() -> {}).flatMap(v -> other.inCurrentThread(), single);
+        assertTrue(future.get());
+        assertFalse(executor.inCurrentThread());
+        single.shutdown();
+    }
+}
@@ -1,8 +1,15 @@
 package com.github.pandora.listenable.executor;
 
-import org.junit.Assert;
+import com.github.pandora.asyncResult.Async;
+import com.github.pandora.asyncResult.CompletableResult;
+import com.github.pandora.asyncResult.Future;
+import com.github.pandora.asyncResult.Promise;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class RunNowExecutorTest {
@@ -14,4 +21,93 @@ public class RunNowExecutorTest {
             assertEquals(mainName, Thread.currentThread().getName());
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void executeNested() {
+        List<Integer> order = new ArrayList<>();
+        RunNowExecutor.Executor.execute(() -> {
+            order.add(1);
+            RunNowExecutor.Executor.execute(() -> order.add(2));
+            order.add(3);
+        });
+        //未超过最大深度，嵌套的command立即执行
+        assertEquals(Arrays.asList(1, 2, 3), order);
+    }
+
+    @Test
+    public void executeDeepNested() {
+        int depth = RunNowExecutor.MAX_STACK_DEPTH * 4;
+        int[] executed = new int[1];
+        Runnable[] nested = new Runnable[1];
+        nested[0] = () -> {
+            if (++executed[0] < depth) RunNowExecutor.Executor.execute(nested[0]);
+        };
+        RunNowExecutor.Executor.execute(nested[0]);
+        //最外层execute返回时，run loop中的command都已执行完
+        assertEquals(depth, executed[0]);
+    }
+
+    /**
+     * 放进run loop的command抛出的异常从最外层的execute抛出，剩余的command仍然执行完
+     */
+    @Test
+    public void deferredFailure() {
+        boolean[] ran = new boolean[1];
+        int[] level = new int[1];
+        Runnable[] nested = new Runnable[1];
+        nested[0] = () -> {
+            if (++level[0] <= RunNowExecutor.MAX_STACK_DEPTH) {
+                RunNowExecutor.Executor.execute(nested[0]);
+                return;
+            }
+            //已超过最大深度，之后的command都放进run loop
+            RunNowExecutor.Executor.execute(() -> {
+                throw new IllegalStateException("first");
+            });
+            RunNowExecutor.Executor.execute(() -> {
+                throw new IllegalStateException("second");
+            });
+            RunNowExecutor.Executor.execute(() -> ran[0] = true);
+        };
+        try {
+            RunNowExecutor.Executor.execute(nested[0]);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("first", e.getMessage());
+            assertEquals("second", e.getSuppressed()[0].getMessage());
+        }
+        assertTrue(ran[0]);
+
+        //直接执行的command抛出的异常从execute抛出
+        try {
+            RunNowExecutor.Executor.execute(() -> {
+                throw new IllegalStateException("direct");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("direct", e.getMessage());
+        }
+    }
+
+    /**
+     * 经过RunNowExecutor执行的链：融合的下游已被占用的thenApply、map，以及thenCompose。 调用栈的深度有上限
+     */
+    @Test
+    public void deepChain() {
+        Promise<Integer> head = Async.promise();
+        CompletableResult<Integer> applied = head.toCompletableResult();
+        Future<Integer> mapped = head.toFuture();
+        CompletableResult<Integer> composed = head.toCompletableResult();
+        for (int i = 0; i < 100000; i++) {
+            applied.thenApply(n -> n);  //占用融合的下游，之后的thenApply退化成handler
+            applied = applied.thenApply(n -> n + 1);
+            mapped.map(n -> n);
+            mapped = mapped.map(n -> n + 1);
+            composed = composed.thenCompose(n -> Async.succeededStage(n + 1));
+        }
+        head.setSuccess(0);
+        assertEquals(Integer.valueOf(100000), applied.toFuture().result());
+        assertEquals(Integer.valueOf(100000), mapped.result());
+        assertEquals(Integer.valueOf(100000), composed.toFuture().result());
+    }
+}
@@ -120,4 +120,16 @@ public class ListenableFutureTaskTest {
 
         Thread.sleep(1000);
     }
+
+    @Test
+    public void futureTask() throws Exception {
+        //直接创建的task仍然是FutureTask
+        ListenableFutureTask<String> task = new ListenableFutureTask<>(() -> "run", executor);
+        FutureTask<String> futureTask = task;
+        String[] result = new String[1];
+        task.addHandler(ar -> result[0] = ar.result());
+        futureTask.run();
+        assertEquals("run", task.get());
+        assertEquals("run", result[0]);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.github.pandora.listenable.future;
+
+import com.github.pandora.asyncResult.AsyncResult;
+import com.github.pandora.asyncResult.BiHandler;
+import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.listenable.executor.ListenableExecutorService;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ListenableRunTaskTest {
+
+    private static final ExecutorService single = Executors.newSingleThreadExecutor(r -> new Thread(r, "single"));
+
+    private static final ListenableExecutorService executor = ListenableExecutor.create(single);
+
+    @Test
+    public void newTaskFor() {
+        //executor提交的任务都是ListenableRunTask
+        assertTrue(executor.submit(() -> "submit") instanceof ListenableRunTask);
+    }
+
+    @Test
+    public void sharedAsyncResult() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        ListenableFuture<String> future = executor.submit(() -> {
+            latch.await();
+            throw new IllegalArgumentException("failed");
+        });
+        AsyncResult<?>[] results = new AsyncResult<?>[2];
+        CountDownLatch done = new CountDownLatch(2);
+        future.addHandler(ar -> {
+            results[0] = ar;
+            done.countDown();
+        });
+        future.addHandler(ar -> {
+            results[1] = ar;
+            done.countDown();
+        });
+        latch.countDown();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertSame(results[0], results[1]); //只包装一次
+        assertTrue(results[0].cause() instanceof IllegalArgumentException); //已拆出ExecutionException
+
+        future.addHandler(ar -> assertSame(results[0], ar));
+    }
+
+    @Test
+    public void runOnce() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        ListenableRunTask<Integer> task = new ListenableRunTask<>(count::incrementAndGet, executor);
+        AsyncResult<?>[] results = new AsyncResult<?>[2];
+        task.addHandler(ar -> results[0] = ar).addHandler(ar -> results[1] = ar);
+        assertEquals(2, task.handlers().size());
+        task.run();
+        task.run();
+        assertEquals(1, count.get());
+        assertEquals(Integer.valueOf(1), task.get());
+        assertSame(results[0], results[1]);
+        assertTrue(task.handlers().isEmpty());  //完成之后不再持有handler
+        assertFalse(task.cancel(true));
+    }
+
+    @Test
+    public void cancelBeforeRun() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        ListenableRunTask<Void> task = new ListenableRunTask<>(count::incrementAndGet, null, executor);
+        assertTrue(task.cancel(false));
+        task.run();
+        assertEquals(0, count.get());
+        assertTrue(task.isCancelled());
+        try {
+            task.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (CancellationException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void cancelInterruptNotLeaked() throws Exception {
+        ExecutorService single0 = Executors.newSingleThreadExecutor();
+        ListenableExecutorService executor0 = ListenableExecutor.create(single0);
+        CountDownLatch started = new CountDownLatch(1);
+        ListenableFuture<String> running = executor0.submit(() -> {
+            started.countDown();
+            while (!Thread.currentThread().isInterrupted()) {
+                //busy
+            }
+            return "interrupted";
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        assertTrue(running.cancel(true));
+        //之后的task不会看到上一个task的中断
+        ListenableFuture<Boolean> next = executor0.submit(() -> Thread.currentThread().isInterrupted());
+        assertFalse(next.get(1, TimeUnit.SECONDS));
+        single0.shutdown();
+    }
+
+    @Test
+    public void waiters() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        ListenableRunTask<String> task = new ListenableRunTask<>(() -> {
+            latch.await();
+            return "done";
+        }, executor);
+        try {
+            task.get(10, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException e) {
+            //expected
+        }
+        ExecutorService getters = Executors.newFixedThreadPool(4);
+        List<java.util.concurrent.Future<String>> gets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) gets.add(getters.submit(() -> task.get()));
+        new Thread(task).start();
+        latch.countDown();
+        for (java.util.concurrent.Future<String> get : gets) assertEquals("done", get.get(1, TimeUnit.SECONDS));
+        getters.shutdown();
+    }
+
+    @Test
+    public void biHandler() {
+        ListenableRunTask<String> task = new ListenableRunTask<>(() -> "done", executor);
+        List<String> order = new ArrayList<>();
+        BiHandler<AsyncResult<String>, List<String>> record = (ar, ctx) -> ctx.add("bi:" + ar.result());
+        task.addHandler(ar -> order.add("h:" + ar.result()));
+        task.addHandler(record, order);
+        assertEquals(2, task.handlers().size());
+        task.run();
+        task.addHandler(record, order);
+        assertEquals(Arrays.asList("h:done", "bi:done", "bi:done"), order);
+    }
+
+    @Test
+    public void awaitInterrupted() throws Exception {
+        ListenableRunTask<String> task = new ListenableRunTask<>(() -> "done", executor);
+        AtomicReference<Throwable> err = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                task.await();
+            } catch (Throwable e) {
+                err.set(e);
+            }
+        });
+        t.start();
+        Thread.sleep(50);
+        t.interrupt();
+        t.join(1000);
+        assertTrue(err.get() instanceof InterruptedException);
+        //被中断的await不会在task上留下handler
+        assertTrue(task.handlers().isEmpty());
+        task.run();
+        assertEquals("done", task.await());
+    }
+}
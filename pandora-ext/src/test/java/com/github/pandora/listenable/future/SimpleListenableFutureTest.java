@@ -2,9 +2,14 @@ package com.github.pandora.listenable.future;
 
 import com.github.pandora.asyncResult.AsyncResult;
 import com.github.pandora.listenable.executor.ListenableExecutor;
+import com.github.pandora.listenable.executor.ListenableExecutorService;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -46,6 +51,37 @@ public class SimpleListenableFutureTest {
         assertEquals(2, promise.handlers().size());
     }
 
+    /**
+     * 添加handler与完成并发时，handler不会丢失，也不会执行两次
+     */
+    @Test
+    public void addHandlerRacingComplete() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                ListenablePromise<Integer> promise = ListenableFuture.ofPromise(executor);
+                AtomicInteger calls = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                java.util.concurrent.Future<?> add = pool.submit(() -> {
+                    start.await();
+                    promise.addHandler(ar -> calls.incrementAndGet());
+                    return null;
+                });
+                java.util.concurrent.Future<?> complete = pool.submit(() -> {
+                    start.await();
+                    return promise.trySuccess(1);
+                });
+                start.countDown();
+                add.get(5, TimeUnit.SECONDS);
+                complete.get(5, TimeUnit.SECONDS);
+                assertEquals(1, calls.get());
+                assertTrue(promise.handlers().isEmpty());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Test
     public void notifyHandlers() {
         //ignore addHandler包含此方法
@@ -308,4 +344,231 @@ public class SimpleListenableFutureTest {
         assertFalse(promise1.isCancelled());
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void throwableAsResult() throws Exception {
+        ListenablePromise<Throwable> promise = ListenableFuture.ofPromise(executor);
+        IllegalStateException value = new IllegalStateException("value");
+        promise.setSuccess(value);
+        assertSame(value, promise.get());
+        promise.addHandler(ar -> {
+            assertTrue(ar.succeeded());
+            assertSame(value, ar.result());
+        });
+
+        ListenablePromise<String> failed = ListenableFuture.ofPromise(executor);
+        failed.setFailure(value);
+        failed.addHandler(ar -> {
+            assertTrue(ar.failed());
+            assertSame(value, ar.cause());
+        });
+        try {
+            failed.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(value, e.getCause());
+        }
+    }
+
+    @Test
+    public void cancelPropagation() throws InterruptedException {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ListenableExecutorService executor0 = ListenableExecutor.create(pool);
+        CountDownLatch block = new CountDownLatch(1);
+        executor0.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                //ignore
+            }
+        });
+
+        ListenablePromise<String> source = ListenableFuture.ofPromise(executor0);
+        AtomicInteger applied = new AtomicInteger();
+        ListenableFuture<Integer> flat = source.flatMap(s -> applied.incrementAndGet());
+        ListenableFuture<Integer> fut = flat.map(i -> i + 1);
+        source.setSuccess("queued");  //flatMap的continuation排在队列中
+        assertTrue(pool.getQueue().contains(flat));
+        assertTrue(fut.cancel(true));
+        assertTrue(fut.isCancelled());
+        //continuation已从队列中移除，剩下的只是取消的通知
+        assertFalse(pool.getQueue().contains(flat));
+
+        //用户的promise不会被取消，同一个中间结果的其他下游不受影响
+        ListenablePromise<String> source1 = ListenableFuture.ofPromise(executor0);
+        ListenableFuture<Integer> length = source1.map(String::length);
+        ListenableFuture<Integer> fut1 = length.otherwise(e -> -1);
+        ListenableFuture<Integer> sibling = length.map(i -> i * 2);
+        assertTrue(fut1.cancel(true));
+        assertFalse(length.isDone());
+        assertTrue(sibling.cancel(true));
+        assertTrue(length.isCancelled());
+        assertFalse(source1.isDone());
+        assertTrue(source1.trySuccess("ok"));
+
+        block.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(0, applied.get());
+    }
+
+    @Test
+    public void cancelRunningTask() throws InterruptedException {
+        ListenableExecutorService executor0 = ListenableExecutor.create(Executors.newSingleThreadExecutor());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ListenableFuture<String> task = executor0.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "done";
+        });
+        ListenableFuture<Integer> fut = task.map(String::length);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        fut.cancel(true);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertTrue(task.isCancelled());
+        executor0.shutdown();
+    }
+
+    @Test
+    public void nullResultIsDone() throws Exception {
+        SimpleListenableFuture<String> future = new SimpleListenableFuture<>(executor);
+        assertTrue(future.trySuccess(null));
+        assertTrue(future.isDone());
+        assertFalse(future.trySuccess("again"));
+        assertNull(future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void waitersReleased() throws InterruptedException {
+        SimpleListenableFuture<String> future = new SimpleListenableFuture<>(executor);
+        int n = 8;
+        CountDownLatch done = new CountDownLatch(n);
+        AtomicInteger got = new AtomicInteger();
+        for (int i = 0; i < n; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    if ("ok".equals(future.get())) got.incrementAndGet();
+                } catch (Exception e) {
+                    //ignore
+                }
+                done.countDown();
+            });
+            t.setDaemon(true);
+            t.start();
+        }
+        Thread.sleep(50);
+        future.setSuccess("ok");
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(n, got.get());
+    }
+
+    @Test
+    public void waiterTimeoutAndInterrupt() throws Exception {
+        SimpleListenableFuture<String> future = new SimpleListenableFuture<>(executor);
+        for (int i = 0; i < 3; i++) {
+            try {
+                future.get(10, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException e) {
+                //expected
+            }
+        }
+
+        AtomicReference<Throwable> err = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                future.get();
+            } catch (Throwable e) {
+                err.set(e);
+            }
+        });
+        t.start();
+        Thread.sleep(50);
+        t.interrupt();
+        t.join(1000);
+        assertTrue(err.get() instanceof InterruptedException);
+
+        future.setSuccess("late");
+        assertEquals("late", future.get());
+    }
+
+    @Test
+    public void flatMapInlineOnSameExecutor() throws Exception {
+        ExecutorService single0 = Executors.newSingleThreadExecutor();
+        ListenableExecutorService executor0 = ListenableExecutor.create(single0);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        ListenableFuture<String> task = executor0.submit(() -> {
+            latch.await();
+            return "task";
+        });
+        ListenableFuture<String> cont = task.flatMap(s -> {
+            order.add("cont");
+            return s;
+        }, single0);
+        executor0.submit(() -> order.add("queued"));
+        latch.countDown();
+        assertEquals("task", cont.get(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        //已经在同一个executor上，不再排到队尾
+        assertEquals(Arrays.asList("cont", "queued"), order);
+
+        //不同executor仍然提交
+        ListenableFuture<String> other = executor0.submit(() -> "task")
+                .flatMap(s -> Thread.currentThread().getName(), r -> new Thread(r, "other").start());
+        assertEquals("other", other.get(1, TimeUnit.SECONDS));
+        single0.shutdown();
+    }
+
+    @Test
+    public void flatMapFailureAndReject() throws Exception {
+        ListenableFuture<Integer> failed = ListenableFuture.ofPromise(executor, "a")
+                .flatMap(s -> Integer.parseInt(s), single);
+        try {
+            failed.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+        ListenableFuture<String> rejected = ListenableFuture.ofPromise(executor, "a")
+                .flatMap(s -> s, r -> {
+                    throw new RejectedExecutionException("rejected");
+                });
+        assertTrue(rejected.isDone());
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void awaitInterrupted() throws Exception {
+        SimpleListenableFuture<String> future = new SimpleListenableFuture<>(executor);
+        for (int i = 0; i < 3; i++) {
+            AtomicReference<Throwable> err = new AtomicReference<>();
+            Thread t = new Thread(() -> {
+                try {
+                    future.await();
+                } catch (Throwable e) {
+                    err.set(e);
+                }
+            });
+            t.start();
+            Thread.sleep(50);
+            t.interrupt();
+            t.join(1000);
+            assertTrue(err.get() instanceof InterruptedException);
+        }
+        //被中断的await不会在future上留下handler
+        assertTrue(future.handlers().isEmpty());
+        future.setSuccess("late");
+        assertEquals("late", future.await());
+    }
+}
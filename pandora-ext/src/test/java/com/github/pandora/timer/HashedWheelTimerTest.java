@@ -0,0 +1,100 @@
+package com.github.pandora.timer;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HashedWheelTimerTest {
+
+    @Test
+    public void newTimeout() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Timeout timeout = timer.newTimeout(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        timer.stop();
+    }
+
+    @Test
+    public void rounds() throws InterruptedException {
+        //一圈8格 * 10ms = 80ms，超过一圈的timeout需要多转几圈
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(latch::countDown, 250, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+        timer.stop();
+    }
+
+    @Test
+    public void cancel() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        AtomicInteger count = new AtomicInteger();
+        int size = 10000;
+        for (int i = 0; i < size; i++) {
+            Timeout timeout = timer.newTimeout(count::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+            if (i % 2 == 0) {
+                assertTrue(timeout.cancel());
+                assertTrue(timeout.isCancelled());
+            }
+        }
+        assertEquals(size / 2, timer.pendingTimeouts());
+        Thread.sleep(300);
+        assertEquals(size / 2, count.get());
+        assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    public void stop() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        timer.newTimeout(() -> {}, 1, TimeUnit.HOURS);
+        Timeout cancelled = timer.newTimeout(() -> {}, 1, TimeUnit.HOURS);
+        cancelled.cancel();
+        List<Timeout> unprocessed = timer.stop();
+        assertEquals(1, unprocessed.size());
+        try {
+            timer.newTimeout(() -> {}, 1, TimeUnit.SECONDS);
+            fail();
+        } catch (RejectedExecutionException e) {
+            //timer已停止
+        }
+    }
+
+    @Test
+    public void sharedCantStop() throws InterruptedException {
+        HashedWheelTimer timer = HashedWheelTimer.shared();
+        try {
+            timer.stop();
+            fail();
+        } catch (IllegalStateException e) {
+            //共享的timer不能停止
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(latch::countDown, 10, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void taskFailure() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        timer.newTimeout(() -> {
+            throw new IllegalStateException();
+        }, 10, TimeUnit.MILLISECONDS);
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        timer.stop();
+    }
+}